@@ -0,0 +1,77 @@
+package gui;
+
+import javax.swing.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs storage and export work off the EDT. Tasks run one at a time on a background thread,
+ * in the order they were started, so an edit never overtakes the save before it; their
+ * results are handed back on the EDT. The progress listener is told, on the EDT, how many
+ * tasks are waiting or running and what the latest one is doing.
+ */
+public class BackgroundTasks {
+
+    public interface ProgressListener {
+        // description is null once no task is left
+        void tasksChanged(int pending, String description);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "background-tasks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProgressListener progress;
+    private int pending;
+    private String latest;
+
+    public BackgroundTasks(ProgressListener progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Runs work in the background and passes its result to onSuccess on the EDT; failures are
+     * shown in an error dialog. Call on the EDT.
+     */
+    public <T> void run(String description, Callable<T> work, Consumer<T> onSuccess) {
+        run(description, work, onSuccess, e -> JOptionPane.showMessageDialog(null,
+                description + " failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    public <T> void run(String description, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        pending++;
+        latest = description;
+        progress.tasksChanged(pending, description);
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return work.call();
+            }
+
+            @Override
+            protected void done() {
+                pending--;
+                progress.tasksChanged(pending, pending > 0 ? latest : null);
+                T result;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    System.err.println(description + " failed: " + cause);
+                    onFailure.accept(cause instanceof Exception ? (Exception) cause : e);
+                    return;
+                } catch (InterruptedException | CancellationException e) {
+                    return;
+                }
+                onSuccess.accept(result);
+            }
+        };
+        EXECUTOR.execute(worker);
+    }
+
+    public int getPending() {
+        return pending;
+    }
+}
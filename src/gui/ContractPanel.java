@@ -1,7 +1,12 @@
 package gui;
 
 import model.Contract;
+import util.CompressedBitmap;
 import util.DataStorage;
+import util.EntityType;
+import util.IndexedColumn;
+import util.StorageEvent;
+import util.StorageListener;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
@@ -10,13 +15,15 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.Callable;
 
-public class ContractPanel extends JPanel {
+public class ContractPanel extends JPanel implements StorageListener {
     private final MainFrame mainFrame;
     private final DataStorage dataStorage;
     private JTable contractTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Contract> tableModel;
     private JTextField searchField;
+    private LiveSearch liveSearch;
     private JButton addButton, editButton, deleteButton, refreshButton, viewButton;
     private JComboBox<String> statusFilterCombo, paymentMethodFilterCombo;
 
@@ -108,19 +115,9 @@ public class ContractPanel extends JPanel {
         String[] columnNames = {"Contract ID", "Contract Code", "Student ID", "Room ID",
                 "Start Date", "End Date", "Room Price", "Payment Method",
                 "Contract Status", "Deposit Amount"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column == 0 || column == 2 || column == 3) return Integer.class;
-                if (column == 6 || column == 9) return BigDecimal.class;
-                return String.class;
-            }
-        };
+        Class<?>[] columnClasses = {Integer.class, String.class, Integer.class, Integer.class, String.class,
+                String.class, BigDecimal.class, String.class, String.class, BigDecimal.class};
+        tableModel = new EntityTableModel<>(EntityType.CONTRACT, columnNames, columnClasses, dataStorage::getContractById, this::toRow);
 
         contractTable = new JTable(tableModel);
         contractTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -210,9 +207,9 @@ public class ContractPanel extends JPanel {
         viewButton.addActionListener(e -> viewSelectedContract());
         refreshButton.addActionListener(e -> refreshData());
 
-        searchField.addActionListener(e -> performSearch());
-        statusFilterCombo.addActionListener(e -> performSearch());
-        paymentMethodFilterCombo.addActionListener(e -> performSearch());
+        liveSearch = new LiveSearch(searchField, tableModel, this::prepareSearch, this::clearSelectionButtons);
+        statusFilterCombo.addActionListener(e -> liveSearch.runNow());
+        paymentMethodFilterCombo.addActionListener(e -> liveSearch.runNow());
 
         contractTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -225,71 +222,84 @@ public class ContractPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Contract> contracts = dataStorage.getAllContracts();
-
-        if (contracts != null) {
-            for (Contract contract : contracts) {
-                Object[] rowData = {
-                        contract.getContractId(),
-                        contract.getContractCode() != null ? contract.getContractCode() : "",
-                        contract.getStudentId(),
-                        contract.getRoomId(),
-                        contract.getStartDate() != null ? contract.getStartDate().format(DATE_FORMATTER) : "",
-                        contract.getEndDate() != null ? contract.getEndDate().format(DATE_FORMATTER) : "",
-                        contract.getRoomPrice() != null ? String.format("$%.2f", contract.getRoomPrice()) : "$0.00",
-                        contract.getPaymentMethod() != null ? contract.getPaymentMethod() : "MONTHLY",
-                        contract.getContractStatus() != null ? contract.getContractStatus() : "ACTIVE",
-                        contract.getDepositAmount() != null ? String.format("$%.2f", contract.getDepositAmount()) : "$0.00"
-                };
-                tableModel.addRow(rowData);
-            }
-        }
+        tableModel.setIds(dataStorage.getIds(EntityType.CONTRACT));
+        clearSelectionButtons();
+    }
 
-        // Update button states
+    // Nothing is selected once the rows are replaced
+    private void clearSelectionButtons() {
         editButton.setEnabled(false);
         deleteButton.setEnabled(false);
         viewButton.setEnabled(false);
     }
 
-    private void performSearch() {
+    // Applies DataStorage changes, delivered on the EDT once per frame by MainFrame
+    @Override
+    public void storageChanged(List<StorageEvent> events) {
+        if (!tableModel.affects(events)) {
+            return;
+        }
+        if (isFiltered()) {
+            // a changed row may start or stop matching the filters, so search again
+            liveSearch.runNow();
+        } else if (tableModel.apply(events)) {
+            refreshData();
+        }
+    }
+
+    private boolean isFiltered() {
+        return !searchField.getText().trim().isEmpty()
+                || !"All".equals(statusFilterCombo.getSelectedItem())
+                || !"All".equals(paymentMethodFilterCombo.getSelectedItem());
+    }
+
+    private Object[] toRow(Contract contract) {
+        return new Object[]{
+                contract.getContractId(),
+                contract.getContractCode() != null ? contract.getContractCode() : "",
+                contract.getStudentId(),
+                contract.getRoomId(),
+                contract.getStartDate() != null ? contract.getStartDate().format(DATE_FORMATTER) : "",
+                contract.getEndDate() != null ? contract.getEndDate().format(DATE_FORMATTER) : "",
+                contract.getRoomPrice() != null ? String.format("$%.2f", contract.getRoomPrice()) : "$0.00",
+                contract.getPaymentMethod() != null ? contract.getPaymentMethod() : "MONTHLY",
+                contract.getContractStatus() != null ? contract.getContractStatus() : "ACTIVE",
+                contract.getDepositAmount() != null ? String.format("$%.2f", contract.getDepositAmount()) : "$0.00"
+        };
+    }
+
+    // Reads the filters on the EDT; the returned query finds the matching ids in the background
+    private Callable<int[]> prepareSearch() {
         String searchText = searchField.getText().trim().toLowerCase();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
         String paymentFilter = (String) paymentMethodFilterCombo.getSelectedItem();
 
-        tableModel.setRowCount(0);
-        List<Contract> contracts = dataStorage.getAllContracts();
+        return () -> {
+            // the status filter is a bitmap lookup
+            if (searchText.isEmpty() && "All".equals(paymentFilter)) {
+                return "All".equals(statusFilter) ? dataStorage.getIds(EntityType.CONTRACT)
+                        : dataStorage.select(IndexedColumn.CONTRACT_STATUS, statusFilter).toArray();
+            }
+            List<Contract> contracts = "All".equals(statusFilter) ? dataStorage.getAllContracts()
+                    : dataStorage.getContracts(dataStorage.select(IndexedColumn.CONTRACT_STATUS, statusFilter));
 
-        if (contracts != null) {
+            CompressedBitmap ids = new CompressedBitmap();
             for (Contract contract : contracts) {
+                LiveSearch.checkCancelled();
                 boolean matchesSearch = searchText.isEmpty() ||
                         (contract.getContractCode() != null && contract.getContractCode().toLowerCase().contains(searchText)) ||
                         String.valueOf(contract.getStudentId()).contains(searchText) ||
                         String.valueOf(contract.getRoomId()).contains(searchText);
 
-                boolean matchesStatus = "All".equals(statusFilter) ||
-                        (contract.getContractStatus() != null && contract.getContractStatus().equals(statusFilter));
-
                 boolean matchesPayment = "All".equals(paymentFilter) ||
                         (contract.getPaymentMethod() != null && contract.getPaymentMethod().equals(paymentFilter));
 
-                if (matchesSearch && matchesStatus && matchesPayment) {
-                    Object[] rowData = {
-                            contract.getContractId(),
-                            contract.getContractCode() != null ? contract.getContractCode() : "",
-                            contract.getStudentId(),
-                            contract.getRoomId(),
-                            contract.getStartDate() != null ? contract.getStartDate().format(DATE_FORMATTER) : "",
-                            contract.getEndDate() != null ? contract.getEndDate().format(DATE_FORMATTER) : "",
-                            contract.getRoomPrice() != null ? String.format("$%.2f", contract.getRoomPrice()) : "$0.00",
-                            contract.getPaymentMethod() != null ? contract.getPaymentMethod() : "MONTHLY",
-                            contract.getContractStatus() != null ? contract.getContractStatus() : "ACTIVE",
-                            contract.getDepositAmount() != null ? String.format("$%.2f", contract.getDepositAmount()) : "$0.00"
-                    };
-                    tableModel.addRow(rowData);
+                if (matchesSearch && matchesPayment) {
+                    ids.add(contract.getContractId());
                 }
             }
-        }
+            return ids.toArray();
+        };
     }
 
     private void editSelectedContract() {
@@ -299,13 +309,9 @@ public class ContractPanel extends JPanel {
             return;
         }
 
-        int contractId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        List<Contract> contracts = dataStorage.getAllContracts();
-
-        if (contracts != null) {
-            contracts.stream()
-                    .filter(c -> c.getContractId() == contractId)
-                    .findFirst().ifPresent(this::showContractForm);
+        Contract contract = dataStorage.getContractById(tableModel.getIdAt(selectedRow));
+        if (contract != null) {
+            showContractForm(contract);
         }
     }
 
@@ -322,11 +328,12 @@ public class ContractPanel extends JPanel {
             JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            int contractId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            if (dataStorage.deleteContract(contractId)) {
-                refreshData();
-                mainFrame.updateStatusBar("Contract deleted successfully");
-            }
+            int contractId = tableModel.getIdAt(selectedRow);
+            mainFrame.getTasks().run("Deleting contract", () -> dataStorage.deleteContract(contractId), deleted -> {
+                if (deleted) {
+                    mainFrame.updateStatusBar("Contract deleted successfully");
+                }
+            });
         }
     }
 
@@ -337,16 +344,7 @@ public class ContractPanel extends JPanel {
             return;
         }
 
-        int contractId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        List<Contract> contracts = dataStorage.getAllContracts();
-        Contract contract = null;
-
-        if (contracts != null) {
-            contract = contracts.stream()
-                    .filter(c -> c.getContractId() == contractId)
-                    .findFirst()
-                    .orElse(null);
-        }
+        Contract contract = dataStorage.getContractById(tableModel.getIdAt(selectedRow));
 
         if (contract != null) {
             showContractViewDialog(contract);
@@ -691,61 +689,46 @@ public class ContractPanel extends JPanel {
 
             // Check for duplicate contract code
             String contractCode = contractCodeField.getText().trim();
-            List<Contract> existingContracts = dataStorage.getAllContracts();
-            if (existingContracts != null) {
-                boolean isDuplicate = existingContracts.stream()
-                        .anyMatch(c -> c.getContractCode() != null &&
-                                c.getContractCode().equals(contractCode) &&
-                                (currentContract == null || c.getContractId() != currentContract.getContractId()));
-
-                if (isDuplicate) {
-                    JOptionPane.showMessageDialog(formDialog,
-                            "Contract code already exists. Please use a unique contract code.",
-                            "Validation Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            if (!dataStorage.isContractCodeAvailable(contractCode,
+                    currentContract == null ? 0 : currentContract.getContractId())) {
+                JOptionPane.showMessageDialog(formDialog,
+                        "Contract code already exists. Please use a unique contract code.",
+                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            if (currentContract == null) {
+            boolean adding = currentContract == null;
+            Contract contract;
+            if (adding) {
                 // Create a new contract
-                Contract contract = new Contract(contractCode, studentId, roomId, startDate, endDate, roomPrice);
-                contract.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
-                contract.setContractStatus((String) contractStatusCombo.getSelectedItem());
-                contract.setDepositAmount(depositAmount);
-
-                boolean contractAdded = dataStorage.addContract(contract);
-                if (contractAdded) {
-                    mainFrame.updateStatusBar("Contract added successfully");
-                } else {
-                    JOptionPane.showMessageDialog(formDialog,
-                            "Failed to add contract. Contract code may already exist.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+                contract = new Contract(contractCode, studentId, roomId, startDate, endDate, roomPrice);
             } else {
                 // Update existing contract
-                currentContract.setContractCode(contractCode);
-                currentContract.setStudentId(studentId);
-                currentContract.setRoomId(roomId);
-                currentContract.setStartDate(startDate);
-                currentContract.setEndDate(endDate);
-                currentContract.setRoomPrice(roomPrice);
-                currentContract.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
-                currentContract.setContractStatus((String) contractStatusCombo.getSelectedItem());
-                currentContract.setDepositAmount(depositAmount);
-
-                if (dataStorage.updateContract(currentContract)) {
-                    mainFrame.updateStatusBar("Contract updated successfully");
-                } else {
-                    JOptionPane.showMessageDialog(formDialog,
-                            "Failed to update contract.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+                contract = currentContract;
+                contract.setContractCode(contractCode);
+                contract.setStudentId(studentId);
+                contract.setRoomId(roomId);
+                contract.setStartDate(startDate);
+                contract.setEndDate(endDate);
+                contract.setRoomPrice(roomPrice);
             }
-
-            formDialog.dispose();
-            refreshData();
+            contract.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
+            contract.setContractStatus((String) contractStatusCombo.getSelectedItem());
+            contract.setDepositAmount(depositAmount);
+
+            // Save in the background; the dialog stays open if the contract code is taken
+            JDialog dialog = formDialog;
+            mainFrame.getTasks().run("Saving contract",
+                    () -> adding ? dataStorage.addContract(contract) : dataStorage.updateContract(contract), saved -> {
+                        if (!saved) {
+                            JOptionPane.showMessageDialog(dialog,
+                                    "Failed to " + (adding ? "add" : "update") + " contract. Contract code may already exist.",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        mainFrame.updateStatusBar("Contract " + (adding ? "added" : "updated") + " successfully");
+                        dialog.dispose();
+                    });
 
         } catch (Exception e) {
             JOptionPane.showMessageDialog(formDialog,
@@ -0,0 +1,63 @@
+package gui;
+
+import javax.swing.*;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Logs work that keeps the EDT busy for longer than a threshold. A daemon thread posts a
+ * heartbeat to the EDT and, if it has not run within the threshold, prints what the EDT is
+ * doing at that moment. Modal dialogs keep pumping events, so waiting for the user is not
+ * reported. The threshold comes from the edt.watchdog.millis system property; 0 turns it off.
+ */
+public class EdtWatchdog extends TimerTask {
+    private static final int STACK_DEPTH = 15;
+
+    private final long thresholdMillis;
+    private volatile Thread edt;
+    private volatile long postedAt;
+    private volatile boolean reported;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    // Starts watching; call once at startup
+    public static void install() {
+        long threshold = Long.getLong("edt.watchdog.millis", 500);
+        if (threshold > 0) {
+            new Timer("edt-watchdog", true).schedule(new EdtWatchdog(threshold), 0, Math.max(1, threshold / 4));
+        }
+    }
+
+    @Override
+    public void run() {
+        long posted = postedAt;
+        if (posted == 0) {
+            postedAt = System.nanoTime();
+            SwingUtilities.invokeLater(this::heartbeat);
+            return;
+        }
+        long millis = (System.nanoTime() - posted) / 1_000_000;
+        Thread thread = edt;
+        if (!reported && millis > thresholdMillis && thread != null) {
+            reported = true;
+            StackTraceElement[] stack = thread.getStackTrace();
+            StringBuilder message = new StringBuilder("EDT blocked for " + millis + " ms, running:");
+            for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++) {
+                message.append("\n\tat ").append(stack[i]);
+            }
+            System.err.println(message);
+        }
+    }
+
+    private void heartbeat() {
+        edt = Thread.currentThread();
+        if (reported) {
+            long millis = (System.nanoTime() - postedAt) / 1_000_000;
+            System.err.println("EDT free again after " + millis + " ms");
+            reported = false;
+        }
+        postedAt = 0;
+    }
+}
@@ -0,0 +1,254 @@
+package gui;
+
+import util.EntityType;
+import util.StorageEvent;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * A table model that holds only the ids of the rows it shows. Cell values are built from the
+ * entity in DataStorage when the table first paints a row and kept in a small cache of
+ * recently painted rows, so memory and repaint work follow the visible rows, not the table
+ * size. Storage events update single rows instead of rebuilding the whole model.
+ */
+public class EntityTableModel<T> extends AbstractTableModel {
+    private static final int CACHE_SIZE = 1024;
+
+    private final EntityType type;
+    private final String[] columnNames;
+    private final Class<?>[] columnClasses;
+    private final IntFunction<T> lookup;
+    private final Function<T, Object[]> rowFunction;
+    private int[] ids = new int[0];
+    // whether ids are in ascending order, which apply needs to find rows by binary search
+    private boolean sorted = true;
+
+    // Rows painted most recently, keyed by id; the eldest is dropped when full
+    private final Map<Integer, Object[]> rowCache = new LinkedHashMap<Integer, Object[]>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public EntityTableModel(EntityType type, String[] columnNames, Class<?>[] columnClasses,
+                            IntFunction<T> lookup, Function<T, Object[]> rowFunction) {
+        this.type = type;
+        this.columnNames = columnNames;
+        this.columnClasses = columnClasses;
+        this.lookup = lookup;
+        this.rowFunction = rowFunction;
+    }
+
+    // Shows the given ids in this order; the array is kept, not copied
+    public void setIds(int[] ids) {
+        this.ids = ids;
+        sorted = isAscending(ids);
+        rowCache.clear();
+        fireTableDataChanged();
+    }
+
+    public int getIdAt(int row) {
+        return ids[row];
+    }
+
+    // True if any of the events is for this model's type
+    public boolean affects(List<StorageEvent> events) {
+        for (StorageEvent event : events) {
+            if (event.getType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Row updates
+    /**
+     * Applies the events for this model's type to rows shown in id order, as getIds gives
+     * them: inserted records are merged in, updated ones repainted and deleted ones removed,
+     * each kind in one pass however many events the batch holds. It does not know the
+     * panel's filters, so a filtered panel should search again instead. Returns true if the
+     * type was reloaded or the rows are search results in another order, in which case the
+     * caller should show its ids again with setIds.
+     */
+    public boolean apply(List<StorageEvent> events) {
+        Set<Integer> inserted = new HashSet<>();
+        Set<Integer> updated = new HashSet<>();
+        Set<Integer> deleted = new HashSet<>();
+        for (StorageEvent event : events) {
+            if (event.getType() != type) {
+                continue;
+            }
+            if (!sorted) {
+                return true;
+            }
+            int id = event.getId();
+            switch (event.getKind()) {
+                case RELOAD:
+                    return true;
+                case INSERT:
+                    deleted.remove(id);
+                    inserted.add(id);
+                    break;
+                case DELETE:
+                    inserted.remove(id);
+                    updated.remove(id);
+                    deleted.add(id);
+                    break;
+                default:
+                    if (!deleted.contains(id)) {
+                        updated.add(id);
+                    }
+            }
+        }
+        rowsRemoved(deleted);
+        rowsAdded(inserted, updated);
+        rowsUpdated(updated);
+        return false;
+    }
+
+    // AbstractTableModel
+    @Override
+    public int getRowCount() {
+        return ids.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columnClasses[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return getRow(ids[row])[column];
+    }
+
+    // Helpers
+    // Drops the shown rows of deleted entities in one compaction pass
+    private void rowsRemoved(Set<Integer> deleted) {
+        int[] rows = rowsOf(deleted);
+        if (rows.length == 0) {
+            return;
+        }
+        int[] remaining = new int[ids.length - rows.length];
+        int from = 0;
+        int to = 0;
+        for (int row : rows) {
+            rowCache.remove(ids[row]);
+            System.arraycopy(ids, from, remaining, to, row - from);
+            to += row - from;
+            from = row + 1;
+        }
+        System.arraycopy(ids, from, remaining, to, ids.length - from);
+        ids = remaining;
+        // last run first, so each event is right for the rows before it
+        int last = rows.length - 1;
+        for (int i = rows.length - 1; i >= 0; i--) {
+            if (i == 0 || rows[i - 1] != rows[i] - 1) {
+                fireTableRowsDeleted(rows[i], rows[last]);
+                last = i - 1;
+            }
+        }
+    }
+
+    // Merges new ids into place in one pass; ids already shown are repainted instead
+    private void rowsAdded(Set<Integer> inserted, Set<Integer> updated) {
+        int[] added = new int[inserted.size()];
+        int count = 0;
+        for (int id : inserted) {
+            if (indexOf(id) >= 0) {
+                updated.add(id);
+            } else {
+                added[count++] = id;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        added = Arrays.copyOf(added, count);
+        Arrays.sort(added);
+        int[] merged = new int[ids.length + added.length];
+        int[] rows = new int[added.length];
+        int old = 0;
+        for (int i = 0, row = 0; row < merged.length; row++) {
+            if (i < added.length && (old == ids.length || added[i] < ids[old])) {
+                rows[i] = row;
+                merged[row] = added[i++];
+            } else {
+                merged[row] = ids[old++];
+            }
+        }
+        ids = merged;
+        // in row order, so each event is right for the rows after it
+        int first = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (i == rows.length - 1 || rows[i + 1] != rows[i] + 1) {
+                fireTableRowsInserted(rows[first], rows[i]);
+                first = i + 1;
+            }
+        }
+    }
+
+    // One event covering the first to the last updated row
+    private void rowsUpdated(Set<Integer> updated) {
+        int[] rows = rowsOf(updated);
+        for (int id : updated) {
+            rowCache.remove(id);
+        }
+        if (rows.length > 0) {
+            fireTableRowsUpdated(rows[0], rows[rows.length - 1]);
+        }
+    }
+
+    // The rows showing the given ids, in ascending order
+    private int[] rowsOf(Set<Integer> idSet) {
+        return idSet.stream().mapToInt(this::indexOf).filter(row -> row >= 0).sorted().toArray();
+    }
+
+    private Object[] getRow(int id) {
+        Object[] values = rowCache.get(id);
+        if (values == null) {
+            T entity = lookup.apply(id);
+            // deleted elsewhere but not yet refreshed here: show the id only
+            values = entity != null ? rowFunction.apply(entity) : new Object[columnNames.length];
+            if (entity == null) {
+                values[0] = id;
+            }
+            rowCache.put(id, values);
+        }
+        return values;
+    }
+
+    // Rows are in id order whenever events are applied
+    private int indexOf(int id) {
+        int row = Arrays.binarySearch(ids, id);
+        return row >= 0 ? row : -1;
+    }
+
+    private static boolean isAscending(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1] >= ids[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
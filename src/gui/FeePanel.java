@@ -2,8 +2,14 @@ package gui;
 
 import model.Fee;
 import model.FeeType;
+import model.Money;
 import model.Student;
+import util.CompressedBitmap;
 import util.DataStorage;
+import util.EntityType;
+import util.IndexedColumn;
+import util.StorageEvent;
+import util.StorageListener;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
@@ -11,14 +17,17 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
-public class FeePanel extends JPanel {
+public class FeePanel extends JPanel implements StorageListener {
     private final MainFrame mainFrame;
     private final DataStorage dataStorage;
     private JTable feeTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Fee> tableModel;
     private JTextField searchField;
+    private LiveSearch liveSearch;
     private JButton addButton, editButton, deleteButton, refreshButton, markPaidButton, viewButton;
     private JComboBox<String> filterCombo, statusFilterCombo;
 
@@ -120,19 +129,9 @@ public class FeePanel extends JPanel {
         String[] columnNames = {"Fee ID", "Fee Code", "Student ID", "Fee Type",
                 "Amount", "Payment Method", "Payment Status", "Due Date", "Payment Date",
                 "Description"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column == 0 || column == 2) return Integer.class;
-                if (column == 4) return BigDecimal.class;
-                return String.class;
-            }
-        };
+        Class<?>[] columnClasses = {Integer.class, String.class, Integer.class, String.class, BigDecimal.class,
+                String.class, String.class, String.class, String.class, String.class};
+        tableModel = new EntityTableModel<>(EntityType.FEE, columnNames, columnClasses, dataStorage::getFeeById, this::toRow);
 
         feeTable = new JTable(tableModel);
         feeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -219,9 +218,9 @@ public class FeePanel extends JPanel {
         markPaidButton.addActionListener(e -> markSelectedFeeAsPaid());
         refreshButton.addActionListener(e -> refreshData());
 
-        searchField.addActionListener(e -> performSearch());
-        filterCombo.addActionListener(e -> performSearch());
-        statusFilterCombo.addActionListener(e -> performSearch());
+        liveSearch = new LiveSearch(searchField, tableModel, this::prepareSearch, this::clearSelectionButtons);
+        filterCombo.addActionListener(e -> liveSearch.runNow());
+        statusFilterCombo.addActionListener(e -> liveSearch.runNow());
 
         feeTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -243,68 +242,89 @@ public class FeePanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Fee> fees = dataStorage.getAllFees();
-
-        for (Fee fee : fees) {
-            Object[] rowData = {
-                    fee.getFeeId(),
-                    fee.getFeeCode(),
-                    fee.getStudentId(),
-                    fee.getFeeType(),
-                    fee.getAmount(),
-                    fee.getPaymentMethod(),
-                    fee.getPaymentStatus(),
-                    fee.getDueDate() != null ? fee.getDueDate().format(DATE_FORMATTER) : "",
-                    fee.getPaymentDate() != null ? fee.getPaymentDate().format(DATE_FORMATTER) : "",
-                    fee.getDescription()
-            };
-            tableModel.addRow(rowData);
-        }
+        tableModel.setIds(dataStorage.getIds(EntityType.FEE));
+        clearSelectionButtons();
+    }
 
-        // Update button states
+    // Nothing is selected once the rows are replaced
+    private void clearSelectionButtons() {
         editButton.setEnabled(false);
         deleteButton.setEnabled(false);
         viewButton.setEnabled(false);
         markPaidButton.setEnabled(false);
     }
 
-    private void performSearch() {
+    // Applies DataStorage changes, delivered on the EDT once per frame by MainFrame
+    @Override
+    public void storageChanged(List<StorageEvent> events) {
+        if (!tableModel.affects(events)) {
+            return;
+        }
+        if (isFiltered()) {
+            // a changed row may start or stop matching the filters, so search again
+            liveSearch.runNow();
+        } else if (tableModel.apply(events)) {
+            refreshData();
+        }
+    }
+
+    private boolean isFiltered() {
+        return !searchField.getText().trim().isEmpty()
+                || !"All".equals(filterCombo.getSelectedItem())
+                || !"All".equals(statusFilterCombo.getSelectedItem());
+    }
+
+    private Object[] toRow(Fee fee) {
+        return new Object[]{
+                fee.getFeeId(),
+                fee.getFeeCode(),
+                fee.getStudentId(),
+                fee.getFeeType(),
+                fee.getAmount(),
+                fee.getPaymentMethod(),
+                fee.getPaymentStatus(),
+                fee.getDueDate() != null ? fee.getDueDate().format(DATE_FORMATTER) : "",
+                fee.getPaymentDate() != null ? fee.getPaymentDate().format(DATE_FORMATTER) : "",
+                fee.getDescription()
+        };
+    }
+
+    // Reads the filters on the EDT; the returned query finds the matching ids in the background
+    private Callable<int[]> prepareSearch() {
         String searchText = searchField.getText().trim().toLowerCase();
         String typeFilter = (String) filterCombo.getSelectedItem();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
+        // the combo lists the fee types in enum order
+        FeeType type = "All".equals(typeFilter) ? null : FeeType.values()[filterCombo.getSelectedIndex() - 1];
+
+        return () -> {
+            // Type and status filters are bitmap lookups
+            CompressedBitmap matches = null;
+            if (type != null) {
+                matches = dataStorage.select(IndexedColumn.FEE_TYPE, type.name());
+            }
+            if (!"All".equals(statusFilter)) {
+                CompressedBitmap withStatus = dataStorage.select(IndexedColumn.FEE_STATUS, statusFilter);
+                matches = matches != null ? matches.and(withStatus) : withStatus;
+            }
+            if (searchText.isEmpty()) {
+                return matches != null ? matches.toArray() : dataStorage.getIds(EntityType.FEE);
+            }
+            List<Fee> fees = matches != null ? dataStorage.getFees(matches) : dataStorage.getAllFees();
+
+            CompressedBitmap ids = new CompressedBitmap();
+            for (Fee fee : fees) {
+                LiveSearch.checkCancelled();
+                boolean matchesSearch = fee.getFeeCode().toLowerCase().contains(searchText) ||
+                        fee.getDescription() != null && fee.getDescription().toLowerCase().contains(searchText) ||
+                        String.valueOf(fee.getStudentId()).contains(searchText);
 
-        tableModel.setRowCount(0);
-        List<Fee> fees = dataStorage.getAllFees();
-
-        for (Fee fee : fees) {
-            boolean matchesSearch = searchText.isEmpty() ||
-                    fee.getFeeCode().toLowerCase().contains(searchText) ||
-                    fee.getDescription() != null && fee.getDescription().toLowerCase().contains(searchText) ||
-                    String.valueOf(fee.getStudentId()).contains(searchText);
-
-            boolean matchesType = "All".equals(typeFilter) ||
-                    fee.getFeeType().getDisplayName().equals(typeFilter);
-
-            boolean matchesStatus = "All".equals(statusFilter) ||
-                    fee.getPaymentStatus().equals(statusFilter);
-
-            if (matchesSearch && matchesType && matchesStatus) {
-                Object[] rowData = {
-                        fee.getFeeId(),
-                        fee.getFeeCode(),
-                        fee.getStudentId(),
-                        fee.getFeeType(),
-                        fee.getAmount(),
-                        fee.getPaymentMethod(),
-                        fee.getPaymentStatus(),
-                        fee.getDueDate() != null ? fee.getDueDate().format(DATE_FORMATTER) : "",
-                        fee.getPaymentDate() != null ? fee.getPaymentDate().format(DATE_FORMATTER) : "",
-                        fee.getDescription()
-                };
-                tableModel.addRow(rowData);
+                if (matchesSearch) {
+                    ids.add(fee.getFeeId());
+                }
             }
-        }
+            return ids.toArray();
+        };
     }
 
     private void viewSelectedFee() {
@@ -314,17 +334,28 @@ public class FeePanel extends JPanel {
             return;
         }
 
-        int feeId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Fee fee = dataStorage.getAllFees().stream()
-                .filter(f -> f.getFeeId() == feeId)
-                .findFirst()
-                .orElse(null);
+        int feeId = tableModel.getIdAt(selectedRow);
+        Fee fee = dataStorage.getFeeById(feeId);
 
         if (fee != null) {
             showFeeDetailsDialog(fee);
         }
     }
 
+    private String getOtherUnpaidFees(Fee fee) {
+        List<Fee> unpaid = new ArrayList<>();
+        for (Fee other : dataStorage.getFeesForStudent(fee.getStudentId())) {
+            if (other.getFeeId() != fee.getFeeId() && other.isUnpaid()) {
+                unpaid.add(other);
+            }
+        }
+        if (unpaid.isEmpty()) {
+            return "None";
+        }
+        BigDecimal total = Money.sum(unpaid, Fee::getAmountMinor).toBigDecimal();
+        return String.format("%d ($%.2f)", unpaid.size(), total);
+    }
+
     private void showFeeDetailsDialog(Fee fee) {
         JDialog detailsDialog = new JDialog(mainFrame, "Fee Details", true);
         detailsDialog.setSize(500, 600);
@@ -421,6 +452,7 @@ public class FeePanel extends JPanel {
             addDetailRow(studentPanel, sgbc, 3, "Phone:", student.getPhoneNumber());
             addDetailRow(studentPanel, sgbc, 4, "Room:", 
                 student.getRoomId() != 0 ? "Room " + student.getRoomId() : "Not assigned");
+            addDetailRow(studentPanel, sgbc, 5, "Other Unpaid Fees:", getOtherUnpaidFees(fee));
 
             contentPanel.add(studentPanel);
             contentPanel.add(Box.createVerticalStrut(10));
@@ -502,10 +534,11 @@ public class FeePanel extends JPanel {
             return;
         }
 
-        int feeId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        dataStorage.getAllFees().stream()
-                .filter(f -> f.getFeeId() == feeId)
-                .findFirst().ifPresent(this::showFeeForm);
+        int feeId = tableModel.getIdAt(selectedRow);
+        Fee fee = dataStorage.getFeeById(feeId);
+        if (fee != null) {
+            showFeeForm(fee);
+        }
     }
 
     private void deleteSelectedFee() {
@@ -521,11 +554,12 @@ public class FeePanel extends JPanel {
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            int feeId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            if (dataStorage.deleteFee(feeId)) {
-                refreshData();
-                mainFrame.updateStatusBar("Fee deleted successfully");
-            }
+            int feeId = tableModel.getIdAt(selectedRow);
+            mainFrame.getTasks().run("Deleting fee", () -> dataStorage.deleteFee(feeId), deleted -> {
+                if (deleted) {
+                    mainFrame.updateStatusBar("Fee deleted successfully");
+                }
+            });
         }
     }
 
@@ -536,23 +570,20 @@ public class FeePanel extends JPanel {
             return;
         }
 
-        int feeId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Fee fee = dataStorage.getAllFees().stream()
-                .filter(f -> f.getFeeId() == feeId)
-                .findFirst()
-                .orElse(null);
+        int feeId = tableModel.getIdAt(selectedRow);
+        Fee fee = dataStorage.getFeeById(feeId);
 
         if (fee != null && ("PENDING".equals(fee.getPaymentStatus()) || "OVERDUE".equals(fee.getPaymentStatus()))) {
-            fee.setPaymentStatus("PAID");
-            fee.setPaymentDate(LocalDate.now());
-
-            if (dataStorage.updateFee(fee)) {
-                refreshData();
-                mainFrame.updateStatusBar("Fee marked as paid successfully");
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update fee status.",
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // the row repaints with the storage event; the selection stays
+            markPaidButton.setEnabled(false);
+            mainFrame.getTasks().run("Recording payment", () -> dataStorage.recordFeePayment(feeId), paid -> {
+                if (paid) {
+                    mainFrame.updateStatusBar("Fee marked as paid successfully");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to update fee status.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         } else {
             JOptionPane.showMessageDialog(this, "Selected fee cannot be marked as paid.",
                     "Invalid Operation", JOptionPane.WARNING_MESSAGE);
@@ -709,48 +740,46 @@ public class FeePanel extends JPanel {
                 return;
             }
 
-            if (currentFee == null) {
-                // Create a new fee
-                Fee fee = new Fee(feeCodeField.getText().trim(), studentId,
-                        (FeeType) feeTypeCombo.getSelectedItem(), amount, dueDate);
-                fee.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
-                fee.setPaymentStatus((String) paymentStatusCombo.getSelectedItem());
-                fee.setPaymentDate(paymentDate);
-                fee.setDescription(descriptionField.getText().trim());
-
-                boolean feeAdded = dataStorage.addFee(fee);
-                if (feeAdded) {
-                    mainFrame.updateStatusBar("Fee added successfully for " + student.getFullName());
-                } else {
-                    JOptionPane.showMessageDialog(formDialog,
-                            "Failed to add fee.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-            } else {
-                // Update existing fee
-                currentFee.setFeeCode(feeCodeField.getText().trim());
-                currentFee.setStudentId(studentId);
-                currentFee.setFeeType((FeeType) feeTypeCombo.getSelectedItem());
-                currentFee.setAmount(amount);
-                currentFee.setDueDate(dueDate);
-                currentFee.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
-                currentFee.setPaymentStatus((String) paymentStatusCombo.getSelectedItem());
-                currentFee.setPaymentDate(paymentDate);
-                currentFee.setDescription(descriptionField.getText().trim());
-
-                if (dataStorage.updateFee(currentFee)) {
-                    mainFrame.updateStatusBar("Fee updated successfully for " + student.getFullName());
-                } else {
-                    JOptionPane.showMessageDialog(formDialog,
-                            "Failed to update fee.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            boolean adding = currentFee == null;
+
+            // Check for a duplicate fee code before touching the stored fee
+            if (!dataStorage.isFeeCodeAvailable(feeCodeField.getText().trim(),
+                    adding ? 0 : currentFee.getFeeId())) {
+                JOptionPane.showMessageDialog(formDialog,
+                        "Fee code already exists. Please use a unique fee code.",
+                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            formDialog.dispose();
-            refreshData();
+            Fee fee = adding ? new Fee(feeCodeField.getText().trim(), studentId,
+                    (FeeType) feeTypeCombo.getSelectedItem(), amount, dueDate) : currentFee;
+            if (!adding) {
+                // Update existing fee
+                fee.setFeeCode(feeCodeField.getText().trim());
+                fee.setStudentId(studentId);
+                fee.setFeeType((FeeType) feeTypeCombo.getSelectedItem());
+                fee.setAmount(amount);
+                fee.setDueDate(dueDate);
+            }
+            fee.setPaymentMethod((String) paymentMethodCombo.getSelectedItem());
+            fee.setPaymentStatus((String) paymentStatusCombo.getSelectedItem());
+            fee.setPaymentDate(paymentDate);
+            fee.setDescription(descriptionField.getText().trim());
+
+            // Save in the background; the dialog stays open if the fee code is taken
+            JDialog dialog = formDialog;
+            mainFrame.getTasks().run("Saving fee", () -> adding ? dataStorage.addFee(fee) : dataStorage.updateFee(fee),
+                    saved -> {
+                        if (!saved) {
+                            JOptionPane.showMessageDialog(dialog,
+                                    "Failed to " + (adding ? "add" : "update") + " fee. Fee code may already exist.",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        mainFrame.updateStatusBar("Fee " + (adding ? "added" : "updated")
+                                + " successfully for " + student.getFullName());
+                        dialog.dispose();
+                    });
 
         } catch (Exception e) {
             JOptionPane.showMessageDialog(formDialog,
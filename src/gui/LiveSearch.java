@@ -0,0 +1,95 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Filters a panel's table while the user types. Keystrokes restart a short timer; when it
+ * fires the panel reads its filter fields on the EDT and returns the query, which finds the
+ * matching ids on a background thread. A newer search cancels the one still running, stale
+ * results are dropped, and the finished ids replace the table's contents in one step.
+ */
+public class LiveSearch {
+    private static final int DELAY_MILLIS = 250;
+
+    // One thread for all panels: only the latest search of each panel matters
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final EntityTableModel<?> tableModel;
+    private final Supplier<Callable<int[]>> prepare;
+    private final Runnable afterUpdate;
+    private final Timer timer;
+    private long generation;
+    private Future<?> running;
+
+    /**
+     * prepare runs on the EDT and captures the filter values; the Callable it returns runs
+     * in the background and should call checkCancelled() while it loops over rows.
+     * afterUpdate runs on the EDT once new rows are shown.
+     */
+    public LiveSearch(JTextField searchField, EntityTableModel<?> tableModel,
+                      Supplier<Callable<int[]>> prepare, Runnable afterUpdate) {
+        this.tableModel = tableModel;
+        this.prepare = prepare;
+        this.afterUpdate = afterUpdate;
+        this.timer = new Timer(DELAY_MILLIS, e -> runNow());
+        this.timer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        searchField.addActionListener(e -> runNow());
+    }
+
+    // Starts a search right away, e.g. when a filter combo changes; call on the EDT
+    public void runNow() {
+        timer.stop();
+        if (running != null) {
+            running.cancel(true);
+        }
+        long current = ++generation;
+        Callable<int[]> query = prepare.get();
+        running = EXECUTOR.submit(() -> {
+            try {
+                int[] ids = query.call();
+                checkCancelled();
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        tableModel.setIds(ids);
+                        afterUpdate.run();
+                    }
+                });
+            } catch (CancellationException e) {
+                // a newer search took over
+            } catch (Exception e) {
+                System.err.println("Search failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // Throws CancellationException in a search that a newer one has replaced
+    public static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package gui;
 import util.DataStorage;
+import util.StorageEvent;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.List;
 
 /**
  * Main application window for the Dormitory Management System
@@ -18,6 +21,9 @@ public class MainFrame extends JFrame {
     private FeePanel feePanel;
     private ReportPanel reportPanel;
     private StatisticsPanel statisticsPanel;
+    private final StorageEventQueue storageEvents = new StorageEventQueue();
+    private JProgressBar taskProgress;
+    private BackgroundTasks tasks;
 
     public MainFrame() {
         try {
@@ -36,6 +42,7 @@ public class MainFrame extends JFrame {
         setupLayout();
         setupMenuBar();
         setupEventHandlers();
+        setupStorageEvents();
         setupWindowClosing();
     }
 
@@ -43,6 +50,11 @@ public class MainFrame extends JFrame {
         return dataStorage;
     }
 
+    // Runs storage and export work off the EDT, with progress in the status bar
+    public BackgroundTasks getTasks() {
+        return tasks;
+    }
+
     public StudentPanel getStudentPanel() {
         return studentPanel;
     }
@@ -61,12 +73,17 @@ public class MainFrame extends JFrame {
 
     private void initializeComponents() {
         tabbedPane = new JTabbedPane();
+        taskProgress = new JProgressBar();
+        taskProgress.setIndeterminate(true);
+        taskProgress.setStringPainted(true);
+        taskProgress.setVisible(false);
+        tasks = new BackgroundTasks(this::showTaskProgress);
 
         studentPanel = new StudentPanel(this);
         roomPanel = new RoomPanel(this);
         contractPanel = new ContractPanel(this);
         feePanel = new FeePanel(this);
-        reportPanel = new ReportPanel();
+        reportPanel = new ReportPanel(this);
         statisticsPanel = new StatisticsPanel();
 
         tabbedPane.addTab("Students", studentPanel);
@@ -85,9 +102,17 @@ public class MainFrame extends JFrame {
         statusBar.setBorder(BorderFactory.createLoweredBevelBorder());
         JLabel statusLabel = new JLabel("Ready");
         statusBar.add(statusLabel);
+        statusBar.add(taskProgress);
         add(statusBar, BorderLayout.SOUTH);
     }
 
+    private void showTaskProgress(int pending, String description) {
+        taskProgress.setVisible(pending > 0);
+        if (pending > 0) {
+            taskProgress.setString(pending > 1 ? description + " (+" + (pending - 1) + " more)" : description);
+        }
+    }
+
     private void setupMenuBar() {
         JMenuBar menuBar = new JMenuBar();
 
@@ -106,19 +131,67 @@ public class MainFrame extends JFrame {
         JMenu fileMenu = new JMenu("File");
         JMenuItem refreshItem = new JMenuItem("Refresh All");
         JMenuItem saveItem = new JMenuItem("Save All");
+        JMenuItem exportItem = new JMenuItem("Export Text Data...");
+        JMenuItem importItem = new JMenuItem("Import Text Data...");
         JMenuItem exitItem = new JMenuItem("Exit");
 
         refreshItem.addActionListener(e -> refreshAllPanels());
-        saveItem.addActionListener(e -> dataStorage.saveAllData());
+        saveItem.addActionListener(e -> tasks.run("Saving data", () -> {
+            dataStorage.saveAllData();
+            return null;
+        }, done -> updateStatusBar("All data saved")));
+        exportItem.addActionListener(e -> exportTextData());
+        importItem.addActionListener(e -> importTextData());
         exitItem.addActionListener(e -> handleExit());
 
         fileMenu.add(refreshItem);
         fileMenu.add(saveItem);
         fileMenu.addSeparator();
+        fileMenu.add(exportItem);
+        fileMenu.add(importItem);
+        fileMenu.addSeparator();
         fileMenu.add(exitItem);
         return fileMenu;
     }
 
+    private void exportTextData() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Export Data To Folder");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File directory = chooser.getSelectedFile();
+        tasks.run("Exporting data", () -> dataStorage.exportToText(directory), exported -> {
+            if (exported) {
+                updateStatusBar("Data exported to " + directory);
+            }
+        });
+    }
+
+    private void importTextData() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Import Data From Folder");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Importing replaces all students, rooms, contracts and fees. Continue?",
+            "Confirm Import",
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        File directory = chooser.getSelectedFile();
+        tasks.run("Importing data", () -> dataStorage.importFromText(directory), imported -> {
+            if (imported) {
+                // the reload events refresh the panels
+                updateStatusBar("Data imported from " + directory);
+            }
+        });
+    }
+
     private JMenu createHelpMenu() {
         JMenu helpMenu = new JMenu("Help");
         JMenuItem aboutItem = new JMenuItem("About");
@@ -131,18 +204,7 @@ public class MainFrame extends JFrame {
         tabbedPane.addChangeListener(e -> {
             int selectedIndex = tabbedPane.getSelectedIndex();
             switch (selectedIndex) {
-                case 0: // Students tab
-                    studentPanel.refreshData();
-                    break;
-                case 1: // Rooms tab
-                    roomPanel.refreshData();
-                    break;
-                case 2: // Contracts tab
-                    contractPanel.refreshData();
-                    break;
-                case 3: // Fees tab
-                    feePanel.refreshData();
-                    break;
+                // the entity tabs are kept current by storage events
                 case 4: // Reports tab
                     reportPanel.refreshData();
                     break;
@@ -153,6 +215,23 @@ public class MainFrame extends JFrame {
         });
     }
 
+    // Panels apply the changes of each frame to their tables instead of reloading them
+    private void setupStorageEvents() {
+        storageEvents.addListener(studentPanel);
+        storageEvents.addListener(roomPanel);
+        storageEvents.addListener(contractPanel);
+        storageEvents.addListener(feePanel);
+        storageEvents.addListener(this::refreshVisibleStatistics);
+        dataStorage.addStorageListener(storageEvents);
+    }
+
+    // Statistics are recomputed only while shown; opening the tab refreshes them anyway
+    private void refreshVisibleStatistics(List<StorageEvent> events) {
+        if (tabbedPane.getSelectedComponent() == statisticsPanel) {
+            statisticsPanel.refreshData();
+        }
+    }
+
     private void setupWindowClosing() {
         addWindowListener(new WindowAdapter() {
             @Override
@@ -164,8 +243,15 @@ public class MainFrame extends JFrame {
 
     private void handleExit() {
         if (dataStorage.showExitConfirmation()) {
-            dispose();
-            System.exit(0);
+            // queued behind any save still running
+            Runnable exit = () -> {
+                dispose();
+                System.exit(0);
+            };
+            tasks.run("Closing", () -> {
+                dataStorage.shutdown();
+                return null;
+            }, done -> exit.run(), e -> exit.run());
         }
     }
 
@@ -181,36 +267,6 @@ public class MainFrame extends JFrame {
         });
     }
 
-    public void refreshRelatedPanels(String source) {
-        SwingUtilities.invokeLater(() -> {
-            switch (source) {
-                case "student":
-                    contractPanel.refreshData();
-                    feePanel.refreshData();
-                    statisticsPanel.refreshData();
-                    break;
-                case "room":
-                    studentPanel.refreshData();
-                    contractPanel.refreshData();
-                    statisticsPanel.refreshData();
-                    break;
-                case "contract":
-                    studentPanel.refreshData();
-                    roomPanel.refreshData();
-                    feePanel.refreshData();
-                    statisticsPanel.refreshData();
-                    break;
-                case "fee":
-                    studentPanel.refreshData();
-                    statisticsPanel.refreshData();
-                    break;
-                case "report":
-                    // No need to refresh other panels
-                    break;
-            }
-        });
-    }
-
     public void updateStatusBar(String message) {
         SwingUtilities.invokeLater(() -> {
             Component statusBar = ((BorderLayout) getContentPane().getLayout()).getLayoutComponent(BorderLayout.SOUTH);
@@ -4,21 +4,24 @@ import model.Report;
 import model.Student;
 import model.Room;
 import model.Contract;
+import model.ContractStatus;
 import model.Fee;
 import model.FeeType;
+import model.Money;
+import model.PaymentStatus;
 import util.ReportExporter;
 import util.DataStorage;
 
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ReportPanel extends JPanel {
+    private final MainFrame mainFrame;
     private final DataStorage dataStorage;
     private JComboBox<String> reportTypeCombo;
     private JTextField titleField;
@@ -32,8 +35,9 @@ public class ReportPanel extends JPanel {
     private DefaultTableModel tableModel;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public ReportPanel() {
-        this.dataStorage = DataStorage.getInstance();
+    public ReportPanel(MainFrame mainFrame) {
+        this.mainFrame = mainFrame;
+        this.dataStorage = mainFrame.getDataStorage();
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -248,26 +252,24 @@ public class ReportPanel extends JPanel {
         dataStorage.addReport(report);
         refreshData();
         
-        // Generate report content
-        String[][] data = generateReportData(type);
-        String[] headers = getReportHeaders(type);
-        
-        // Export based on format
-        String filePath;
-        if ("PDF".equals(format)) {
-            String content = formatReportContent(data, headers);
-            filePath = ReportExporter.exportToPDF(report, content);
-        } else {
-            filePath = ReportExporter.exportToExcel(report, data, headers);
-        }
-        
-        if (filePath != null) {
-            report.setStatus("COMPLETED");
-        } else {
+        // Gather the data and write the file in the background
+        mainFrame.getTasks().run("Generating " + type, () -> {
+            String[][] data = generateReportData(type);
+            String[] headers = getReportHeaders(type);
+
+            // Export based on format
+            if ("PDF".equals(format)) {
+                String content = formatReportContent(type, data, headers);
+                return ReportExporter.exportToPDF(report, content);
+            }
+            return ReportExporter.exportToExcel(report, data, headers);
+        }, filePath -> {
+            report.setStatus(filePath != null ? "COMPLETED" : "FAILED");
+            refreshData();
+        }, e -> {
             report.setStatus("FAILED");
-        }
-        
-        refreshData();
+            refreshData();
+        });
         
         // Clear form
         titleField.setText("");
@@ -330,23 +332,21 @@ public class ReportPanel extends JPanel {
                 data.add(new String[]{"Total Students", String.valueOf(dataStorage.getAllStudents().size())});
                 data.add(new String[]{"Total Rooms", String.valueOf(dataStorage.getAllRooms().size())});
                 data.add(new String[]{"Active Contracts", String.valueOf(dataStorage.getAllContracts().stream()
-                    .filter(c -> "Active".equals(c.getStatus())).count())});
+                    .filter(c -> c.getContractStatusType() == ContractStatus.ACTIVE).count())});
                 data.add(new String[]{"Total Fees", String.valueOf(dataStorage.getAllFees().size())});
                 break;
                 
             case "Financial Report":
-                BigDecimal totalIncome = dataStorage.getAllFees().stream()
-                    .filter(f -> "Paid".equals(f.getPaymentStatus()))
-                    .map(Fee::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                BigDecimal pendingPayments = dataStorage.getAllFees().stream()
-                    .filter(f -> "Unpaid".equals(f.getPaymentStatus()))
-                    .map(Fee::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+                // Summed in minor units, without a BigDecimal per fee
+                List<Fee> fees = dataStorage.getAllFees();
+                Money totalIncome = Money.sum(fees,
+                    f -> f.getPaymentStatusType() == PaymentStatus.PAID ? f.getAmountMinor() : 0);
+                Money pendingPayments = Money.sum(fees,
+                    f -> f.isUnpaid() ? f.getAmountMinor() : 0);
                     
-                data.add(new String[]{"Total Income", totalIncome.toString()});
-                data.add(new String[]{"Pending Payments", pendingPayments.toString()});
-                data.add(new String[]{"Total Expected", totalIncome.add(pendingPayments).toString()});
+                data.add(new String[]{"Total Income", totalIncome.toBigDecimal().toString()});
+                data.add(new String[]{"Pending Payments", pendingPayments.toBigDecimal().toString()});
+                data.add(new String[]{"Total Expected", totalIncome.plus(pendingPayments).toBigDecimal().toString()});
                 break;
                 
             case "Student List Report":
@@ -428,11 +428,11 @@ public class ReportPanel extends JPanel {
         }
     }
 
-    private String formatReportContent(String[][] data, String[] headers) {
+    private String formatReportContent(String type, String[][] data, String[] headers) {
         StringBuilder content = new StringBuilder();
         
         // Add title
-        content.append("Report: ").append(reportTypeCombo.getSelectedItem()).append("\n");
+        content.append("Report: ").append(type).append("\n");
         content.append("Generated: ").append(LocalDateTime.now().format(DATE_FORMATTER)).append("\n\n");
         
         // Add headers
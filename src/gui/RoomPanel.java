@@ -1,21 +1,28 @@
 package gui;
 
 import model.Room;
+import util.CompressedBitmap;
 import util.DataStorage;
+import util.EntityType;
+import util.IndexedColumn;
+import util.StorageEvent;
+import util.StorageListener;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.Callable;
 
-public class RoomPanel extends JPanel {
+public class RoomPanel extends JPanel implements StorageListener {
     private final MainFrame mainFrame;
     private final DataStorage dataStorage;
     private JTable roomTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Room> tableModel;
     private JTextField searchField;
+    private LiveSearch liveSearch;
     private JButton addButton, editButton, deleteButton, viewButton, refreshButton;
-    private JComboBox<String> filterCombo;
+    private JComboBox<String> filterCombo, statusFilterCombo;
 
     // Form fields
     private JTextField roomNumberField, roomPriceField;
@@ -60,7 +67,7 @@ public class RoomPanel extends JPanel {
         // Status filter
         JPanel statusFilterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
         statusFilterPanel.add(new JLabel("Status:"));
-        JComboBox<String> statusFilterCombo = new JComboBox<>(new String[]{"All", "AVAILABLE", "OCCUPIED", "FULL", "MAINTENANCE"});
+        statusFilterCombo = new JComboBox<>(new String[]{"All", "AVAILABLE", "OCCUPIED", "FULL", "MAINTENANCE"});
         statusFilterPanel.add(statusFilterCombo);
         searchFilterPanel.add(statusFilterPanel);
 
@@ -100,19 +107,9 @@ public class RoomPanel extends JPanel {
         // Table setup with enhanced styling
         String[] columnNames = {"ID", "Room Number", "Type", "Bed Count", "Occupancy",
                 "Room Price", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column == 0) return Integer.class;
-                if (column == 5) return Double.class;
-                return String.class;
-            }
-        };
+        Class<?>[] columnClasses = {Integer.class, String.class, String.class, String.class,
+                String.class, Double.class, String.class};
+        tableModel = new EntityTableModel<>(EntityType.ROOM, columnNames, columnClasses, dataStorage::getRoomById, this::toRow);
 
         roomTable = new JTable(tableModel);
         roomTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -201,8 +198,9 @@ public class RoomPanel extends JPanel {
         viewButton.addActionListener(e -> viewSelectedRoom());
         refreshButton.addActionListener(e -> refreshData());
 
-        searchField.addActionListener(e -> performSearch());
-        filterCombo.addActionListener(e -> performSearch());
+        liveSearch = new LiveSearch(searchField, tableModel, this::prepareSearch, this::clearSelectionButtons);
+        filterCombo.addActionListener(e -> liveSearch.runNow());
+        statusFilterCombo.addActionListener(e -> liveSearch.runNow());
 
         roomTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -221,7 +219,7 @@ public class RoomPanel extends JPanel {
             return;
         }
 
-        int roomId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        int roomId = tableModel.getIdAt(selectedRow);
         Room room = dataStorage.getRoomById(roomId);
         if (room == null) {
             JOptionPane.showMessageDialog(this, "Room not found.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -395,11 +393,39 @@ public class RoomPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Room> rooms = dataStorage.getAllRooms();
+        tableModel.setIds(dataStorage.getIds(EntityType.ROOM));
+        clearSelectionButtons();
+    }
+
+    // Nothing is selected once the rows are replaced
+    private void clearSelectionButtons() {
+        editButton.setEnabled(false);
+        deleteButton.setEnabled(false);
+        viewButton.setEnabled(false);
+    }
 
-        for (Room room : rooms) {
-            Object[] rowData = {
+    // Applies DataStorage changes, delivered on the EDT once per frame by MainFrame
+    @Override
+    public void storageChanged(List<StorageEvent> events) {
+        if (!tableModel.affects(events)) {
+            return;
+        }
+        if (isFiltered()) {
+            // a changed row may start or stop matching the filters, so search again
+            liveSearch.runNow();
+        } else if (tableModel.apply(events)) {
+            refreshData();
+        }
+    }
+
+    private boolean isFiltered() {
+        return !searchField.getText().trim().isEmpty()
+                || !"All".equals(filterCombo.getSelectedItem())
+                || !"All".equals(statusFilterCombo.getSelectedItem());
+    }
+
+    private Object[] toRow(Room room) {
+        return new Object[]{
                 room.getRoomId(),
                 room.getRoomNumber(),
                 room.getRoomType(),
@@ -407,52 +433,35 @@ public class RoomPanel extends JPanel {
                 String.format("%d / %d", room.getCurrentOccupancy(), room.getBedCount()),
                 String.format("$%.2f", room.getRoomPrice()),
                 room.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
-
-        // Update button states
-        editButton.setEnabled(false);
-        deleteButton.setEnabled(false);
-        viewButton.setEnabled(false);
+        };
     }
 
-    private void performSearch() {
+    // Reads the filters on the EDT; the returned query finds the matching ids in the background
+    private Callable<int[]> prepareSearch() {
         String searchText = searchField.getText().trim().toLowerCase();
         String typeFilter = (String) filterCombo.getSelectedItem();
+        String statusFilter = (String) statusFilterCombo.getSelectedItem();
 
-        tableModel.setRowCount(0);
-        List<Room> rooms = dataStorage.getAllRooms();
-
-        for (Room room : rooms) {
-            boolean matchesSearch = searchText.isEmpty() ||
-                    room.getRoomNumber().toLowerCase().contains(searchText);
-
-            boolean matchesType = "All".equals(typeFilter) ||
-                    room.getRoomType().equals(typeFilter);
-
-            if (matchesSearch && matchesType) {
-                int currentOccupancy = dataStorage.getCurrentOccupancy(room.getRoomId());
-                long capacity = room.getCapacity();
-                String occupancyDisplay = String.format("%d / %d", currentOccupancy, capacity);
-
-                Object[] rowData = {
-                        room.getRoomId(),
-                        room.getRoomNumber(),
-                        room.getRoomType(),
-                        room.getBedCount(),
-                        occupancyDisplay,
-                        String.format("$%.2f", room.getRoomPrice()),
-                        room.getStatus()
-                };
-                tableModel.addRow(rowData);
+        return () -> {
+            // Type and status filters are bitmap lookups
+            CompressedBitmap matches = null;
+            if (!"All".equals(typeFilter)) {
+                matches = dataStorage.select(IndexedColumn.ROOM_TYPE, typeFilter);
             }
-        }
-        
-        // After search/filter, disable selection-dependent buttons
-        editButton.setEnabled(false);
-        deleteButton.setEnabled(false);
-        viewButton.setEnabled(false);
+            if (!"All".equals(statusFilter)) {
+                CompressedBitmap withStatus = dataStorage.select(IndexedColumn.ROOM_STATUS, statusFilter);
+                matches = matches != null ? matches.and(withStatus) : withStatus;
+            }
+            if (searchText.isEmpty()) {
+                return matches != null ? matches.toArray() : dataStorage.getIds(EntityType.ROOM);
+            }
+            List<Room> rooms = matches != null ? dataStorage.getRooms(matches) : dataStorage.getAllRooms();
+            return rooms.stream()
+                    .filter(room -> room.getRoomNumber().toLowerCase().contains(searchText))
+                    .mapToInt(Room::getRoomId)
+                    .sorted()
+                    .toArray();
+        };
     }
 
     private void editSelectedRoom() {
@@ -462,7 +471,7 @@ public class RoomPanel extends JPanel {
             return;
         }
 
-        int roomId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        int roomId = tableModel.getIdAt(selectedRow);
         Room room = dataStorage.getRoomById(roomId);
         if (room != null) {
             showRoomForm(room);
@@ -482,14 +491,15 @@ public class RoomPanel extends JPanel {
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            int roomId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            if (dataStorage.deleteRoom(roomId)) {
-                refreshData();
-                mainFrame.updateStatusBar("Room deleted successfully");
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete room.",
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            int roomId = tableModel.getIdAt(selectedRow);
+            mainFrame.getTasks().run("Deleting room " + roomNumber, () -> dataStorage.deleteRoom(roomId), deleted -> {
+                if (deleted) {
+                    mainFrame.updateStatusBar("Room deleted successfully");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to delete room.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
@@ -587,35 +597,42 @@ public class RoomPanel extends JPanel {
                     return;
                 }
 
-                if (currentRoom == null) {
+                boolean adding = currentRoom == null;
+
+                // Check for a duplicate room number before touching the stored room
+                if (!dataStorage.isRoomNumberAvailable(roomNumberField.getText().trim(),
+                        adding ? 0 : currentRoom.getRoomId())) {
+                    JOptionPane.showMessageDialog(formDialog,
+                            "Room number already exists. Please use a unique room number.",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                Room target;
+                if (adding) {
                     // Create a new room
-                    Room newRoom = new Room(roomNumberField.getText().trim(), bedCount, roomPrice);
-                    newRoom.setStatus((String) statusCombo.getSelectedItem());
-
-                    if (!dataStorage.addRoom(newRoom)) {
-                        JOptionPane.showMessageDialog(formDialog,
-                                "Failed to add room.",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    mainFrame.updateStatusBar("New room added successfully");
+                    target = new Room(roomNumberField.getText().trim(), bedCount, roomPrice);
                 } else {
                     // Update existing room
-                    currentRoom.setRoomNumber(roomNumberField.getText().trim());
-                    currentRoom.setRoomPrice(roomPrice);
-                    currentRoom.setStatus((String) statusCombo.getSelectedItem());
-
-                    if (!dataStorage.updateRoom(currentRoom)) {
-                        JOptionPane.showMessageDialog(formDialog,
-                                "Failed to update room.",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    mainFrame.updateStatusBar("Room updated successfully");
+                    target = currentRoom;
+                    target.setRoomNumber(roomNumberField.getText().trim());
+                    target.setRoomPrice(roomPrice);
                 }
-
-                formDialog.dispose();
-                refreshData();
+                target.setStatus((String) statusCombo.getSelectedItem());
+
+                // Save in the background; the dialog stays open if the room number is taken
+                JDialog dialog = formDialog;
+                mainFrame.getTasks().run("Saving room",
+                        () -> adding ? dataStorage.addRoom(target) : dataStorage.updateRoom(target), saved -> {
+                            if (!saved) {
+                                JOptionPane.showMessageDialog(dialog,
+                                        "Failed to " + (adding ? "add" : "update") + " room. Room number may already exist.",
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+                                return;
+                            }
+                            mainFrame.updateStatusBar(adding ? "New room added successfully" : "Room updated successfully");
+                            dialog.dispose();
+                        });
 
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(formDialog,
@@ -7,9 +7,9 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 public class StatisticsPanel extends JPanel {
     private final DataStorage dataStorage;
@@ -145,7 +145,7 @@ public class StatisticsPanel extends JPanel {
         cardsPanel.add(createStatCard("Total Students", totalStudentsValue, new Color(230, 240, 255)));
         cardsPanel.add(createStatCard("Room Occupancy Rate", occupancyRateValue, new Color(230, 255, 230)));
         cardsPanel.add(createStatCard("Active Students", activeStudentsValue, new Color(255, 240, 230)));
-        cardsPanel.add(createStatCard("Total Revenue", totalRevenueValue, new Color(255, 255, 230)));
+        cardsPanel.add(createStatCard("Revenue", totalRevenueValue, new Color(255, 255, 230)));
         
         add(cardsPanel, BorderLayout.CENTER);
 
@@ -210,108 +210,96 @@ public class StatisticsPanel extends JPanel {
     }
     
     public void refreshData() {
-        List<Student> students = dataStorage.getAllStudents();
-        List<Room> rooms = dataStorage.getAllRooms();
-        List<Contract> contracts = dataStorage.getAllContracts();
-        List<Fee> fees = dataStorage.getAllFees();
+        // Running totals and date rollups kept by the storage, so this does not walk the records
+        LocalDate today = LocalDate.now();
+        Statistics statistics = dataStorage.getStatistics(periodStart(today), today);
         
         // Update statistics cards
-        updateStatisticsCards(students, rooms, fees);
+        updateStatisticsCards(statistics);
         
         // Update tables
-        updateFinancialTable(fees);
-        updateOccupancyTable(rooms);
+        updateFinancialTable(statistics);
+        updateOccupancyTable(statistics);
     }
     
-    private void updateStatisticsCards(List<Student> students, List<Room> rooms, List<Fee> fees) {
+    // First day of the selected period; null for all time
+    private LocalDate periodStart(LocalDate today) {
+        switch ((String) periodCombo.getSelectedItem()) {
+            case "Last 7 Days":
+                return today.minusDays(6);
+            case "Last 30 Days":
+                return today.minusDays(29);
+            case "Last 3 Months":
+                return today.minusMonths(3).plusDays(1);
+            case "Last 6 Months":
+                return today.minusMonths(6).plusDays(1);
+            case "Last Year":
+                return today.minusYears(1).plusDays(1);
+            default:
+                return null;
+        }
+    }
+    
+    private void updateStatisticsCards(Statistics statistics) {
         // Total students
-        int totalStudents = students.size();
-        totalStudentsValue.setText(String.valueOf(totalStudents));
+        totalStudentsValue.setText(String.valueOf(statistics.getTotalStudents()));
         
         // Active students
-        long activeStudents = students.stream()
-            .filter(s -> "ACTIVE".equals(s.getStatus()))
-            .count();
-        activeStudentsValue.setText(String.valueOf(activeStudents));
+        activeStudentsValue.setText(String.valueOf(statistics.getStudentCount("ACTIVE")));
         
         // Occupancy rate
-        int totalBeds = rooms.stream()
-            .mapToInt(Room::getCapacity)
-            .sum();
-        int occupiedBeds = rooms.stream()
-            .mapToInt(r -> dataStorage.getCurrentOccupancy(r.getRoomId()))
-            .sum();
-        double occupancyRate = totalBeds > 0 ? (double) occupiedBeds / totalBeds * 100 : 0;
-        occupancyRateValue.setText(String.format("%.1f%%", occupancyRate));
+        occupancyRateValue.setText(String.format("%.1f%%", statistics.getBedOccupancyRate()));
         
-        // Total revenue
-        BigDecimal totalRevenue = fees.stream()
-            .filter(f -> "PAID".equals(f.getPaymentStatus()))
-            .map(Fee::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        totalRevenueValue.setText(String.format("$%.2f", totalRevenue));
+        // Revenue: payments received within the period
+        totalRevenueValue.setText(String.format("$%.2f", statistics.getPeriodRevenue()));
     }
     
-    private void updateFinancialTable(List<Fee> fees) {
+    private void updateFinancialTable(Statistics statistics) {
         financialModel.setRowCount(0);
         
-        // Group fees by type and calculate statistics
-        fees.stream()
-            .collect(Collectors.groupingBy(Fee::getFeeType))
-            .forEach((type, typeFees) -> {
-                BigDecimal totalAmount = typeFees.stream()
-                    .map(Fee::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                BigDecimal paidAmount = typeFees.stream()
-                    .filter(f -> "PAID".equals(f.getPaymentStatus()))
-                    .map(Fee::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                double paymentRate = totalAmount.doubleValue() > 0 
-                    ? paidAmount.doubleValue() / totalAmount.doubleValue() * 100 
-                    : 0;
-                
-                String status = paymentRate >= 90 ? "GOOD" :
-                              paymentRate >= 70 ? "WARNING" : "ATTENTION";
-                
-                financialModel.addRow(new Object[] {
-                    type.getDisplayName(),
-                    String.format("$%.2f", totalAmount),
-                    String.format("%.1f%%", paymentRate),
-                    status
-                });
+        // Fees falling due within the period, and how much of them is paid
+        for (FeeType type : statistics.getPeriodDueByFeeType().keySet()) {
+            BigDecimal totalAmount = statistics.getPeriodDueByFeeType().get(type);
+            BigDecimal paidAmount = statistics.getPeriodPaidDueByFeeType().getOrDefault(type, BigDecimal.ZERO);
+
+            double paymentRate = totalAmount.doubleValue() > 0 
+                ? paidAmount.doubleValue() / totalAmount.doubleValue() * 100 
+                : 0;
+
+            String status = paymentRate >= 90 ? "GOOD" :
+                          paymentRate >= 70 ? "WARNING" : "ATTENTION";
+
+            financialModel.addRow(new Object[] {
+                type.getDisplayName(),
+                String.format("$%.2f", totalAmount),
+                String.format("%.1f%%", paymentRate),
+                status
             });
+        }
     }
     
-    private void updateOccupancyTable(List<Room> rooms) {
+    private void updateOccupancyTable(Statistics statistics) {
         occupancyModel.setRowCount(0);
         
-        // Group rooms by type and calculate statistics
-        rooms.stream()
-            .collect(Collectors.groupingBy(Room::getRoomType))
-            .forEach((type, typeRooms) -> {
-                int totalRooms = typeRooms.size();
-                int occupied = (int) typeRooms.stream()
-                    .filter(r -> "OCCUPIED".equals(r.getStatus()) || "FULL".equals(r.getStatus()))
-                    .count();
-                int available = totalRooms - occupied;
-                double rate = totalRooms > 0 ? (double) occupied / totalRooms * 100 : 0;
-                
-                occupancyModel.addRow(new Object[] {
-                    type,
-                    totalRooms,
-                    occupied,
-                    available,
-                    String.format("%.1f%%", rate)
-                });
+        // Rooms in use are the OCCUPIED or FULL ones
+        for (Map.Entry<String, Integer> entry : statistics.getRoomsByType().entrySet()) {
+            int totalRooms = entry.getValue();
+            int occupied = statistics.getRoomsInUseByType().getOrDefault(entry.getKey(), 0);
+            int available = totalRooms - occupied;
+            double rate = totalRooms > 0 ? (double) occupied / totalRooms * 100 : 0;
+
+            occupancyModel.addRow(new Object[] {
+                entry.getKey(),
+                totalRooms,
+                occupied,
+                available,
+                String.format("%.1f%%", rate)
             });
-            
+        }
+
         // Add total row
-        int totalRooms = rooms.size();
-        int totalOccupied = (int) rooms.stream()
-            .filter(r -> "OCCUPIED".equals(r.getStatus()) || "FULL".equals(r.getStatus()))
-            .count();
+        int totalRooms = statistics.getTotalRooms();
+        int totalOccupied = statistics.getOccupiedRooms();
         int totalAvailable = totalRooms - totalOccupied;
         double totalRate = totalRooms > 0 ? (double) totalOccupied / totalRooms * 100 : 0;
         
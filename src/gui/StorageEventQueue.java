@@ -0,0 +1,50 @@
+package gui;
+
+import util.StorageEvent;
+import util.StorageEventCoalescer;
+import util.StorageListener;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Moves DataStorage change events onto the EDT. Events from any thread are coalesced per
+ * record and delivered at most once a frame, so a burst of edits becomes one table update
+ * per panel. Listeners registered here are always called on the EDT.
+ */
+public class StorageEventQueue implements StorageListener {
+    // About one screen refresh
+    private static final int FRAME_MILLIS = 16;
+
+    private final StorageEventCoalescer pending = new StorageEventCoalescer();
+    private final List<StorageListener> listeners = new CopyOnWriteArrayList<>();
+    private final Timer timer;
+
+    public StorageEventQueue() {
+        timer = new Timer(FRAME_MILLIS, e -> deliver());
+        timer.setRepeats(false);
+    }
+
+    public void addListener(StorageListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void storageChanged(List<StorageEvent> events) {
+        if (pending.add(events)) {
+            // the first event of a frame schedules the delivery
+            SwingUtilities.invokeLater(timer::start);
+        }
+    }
+
+    private void deliver() {
+        List<StorageEvent> events = pending.drain();
+        if (events.isEmpty()) {
+            return;
+        }
+        for (StorageListener listener : listeners) {
+            listener.storageChanged(events);
+        }
+    }
+}
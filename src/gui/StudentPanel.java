@@ -1,18 +1,29 @@
 package gui;
 
+import model.Contract;
+import model.Fee;
+import model.Money;
 import model.Student;
 import model.Room;
+import util.CompressedBitmap;
 import util.DataStorage;
+import util.EntityType;
+import util.IndexedColumn;
+import util.StorageEvent;
+import util.StorageListener;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
-public class StudentPanel extends JPanel {
+public class StudentPanel extends JPanel implements StorageListener {
     private final MainFrame mainFrame;
     private final DataStorage dataStorage;
     // Form fields
@@ -22,8 +33,9 @@ public class StudentPanel extends JPanel {
     private Student currentStudent;
     private JButton assignRoomButton;
     private JTable table;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Student> tableModel;
     private JTextField searchField;
+    private LiveSearch liveSearch;
     private JButton addButton, editButton, deleteButton, viewButton, refreshButton;
     private JDialog formDialog;
 
@@ -132,18 +144,9 @@ public class StudentPanel extends JPanel {
     private void setupTable() {
         String[] columnNames = {"ID", "Student Code", "Full Name", "Date of Birth",
                 "Gender", "Phone Number", "Gmail", "Hometown", "Room ID", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column == 0) return Integer.class;
-                return String.class;
-            }
-        };
+        Class<?>[] columnClasses = {Integer.class, String.class, String.class, String.class,
+                String.class, String.class, String.class, String.class, String.class, String.class};
+        tableModel = new EntityTableModel<>(EntityType.STUDENT, columnNames, columnClasses, dataStorage::getStudentById, this::toRow);
 
         table = new JTable(tableModel);
         setupTableProperties();
@@ -162,9 +165,9 @@ public class StudentPanel extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         assignRoomButton.addActionListener(e -> assignRoomToStudent());
 
-        searchField.addActionListener(e -> performSearch());
-        statusFilterCombo.addActionListener(e -> performSearch());
-        roomFilterCombo.addActionListener(e -> performSearch());
+        liveSearch = new LiveSearch(searchField, tableModel, this::prepareSearch, () -> onSelectionChanged(false));
+        statusFilterCombo.addActionListener(e -> liveSearch.runNow());
+        roomFilterCombo.addActionListener(e -> liveSearch.runNow());
 
         table.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -181,63 +184,71 @@ public class StudentPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Student> students = dataStorage.getAllStudents();
-
-        for (Student student : students) {
-            Object[] rowData = {
-                    student.getStudentId(),
-                    student.getStudentCode(),
-                    student.getFullName(),
-                    student.getDateOfBirth(),
-                    student.getGender(),
-                    student.getPhoneNumber(),
-                    student.getEmail(),
-                    student.getHometown(),
-                    student.getRoomId() == 0 ? "Not Assigned" : student.getRoomId(),
-                    student.getStatus()
-            };
-            tableModel.addRow(rowData);
+        tableModel.setIds(dataStorage.getIds(EntityType.STUDENT));
+        onSelectionChanged(false);
+    }
+
+    // Applies DataStorage changes, delivered on the EDT once per frame by MainFrame
+    @Override
+    public void storageChanged(List<StorageEvent> events) {
+        if (!tableModel.affects(events)) {
+            return;
         }
+        if (isFiltered()) {
+            // a changed row may start or stop matching the filters, so search again
+            liveSearch.runNow();
+        } else if (tableModel.apply(events)) {
+            refreshData();
+        }
+    }
+
+    private boolean isFiltered() {
+        return !searchField.getText().trim().isEmpty()
+                || !"All".equals(statusFilterCombo.getSelectedItem())
+                || !"All".equals(roomFilterCombo.getSelectedItem());
+    }
+
+    private Object[] toRow(Student student) {
+        return new Object[]{
+                student.getStudentId(),
+                student.getStudentCode(),
+                student.getFullName(),
+                student.getDateOfBirth(),
+                student.getGender(),
+                student.getPhoneNumber(),
+                student.getEmail(),
+                student.getHometown(),
+                student.getRoomId() == 0 ? "Not Assigned" : student.getRoomId(),
+                student.getStatus()
+        };
     }
 
-    private void performSearch() {
+    // Reads the filters on the EDT; the returned query finds the matching ids in the background
+    private Callable<int[]> prepareSearch() {
         String searchText = searchField.getText().trim().toLowerCase();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
         String roomFilter = (String) roomFilterCombo.getSelectedItem();
 
-        tableModel.setRowCount(0);
-        List<Student> students = dataStorage.getAllStudents();
-
-        for (Student student : students) {
-            boolean matchesSearch = searchText.isEmpty() ||
-                    student.getFullName().toLowerCase().contains(searchText) ||
-                    student.getStudentCode().toLowerCase().contains(searchText) ||
-                    student.getEmail().toLowerCase().contains(searchText);
-
-            boolean matchesStatus = "All".equals(statusFilter) ||
-                    student.getStatus().equals(statusFilter);
-
-            boolean matchesRoom = "All".equals(roomFilter) ||
-                    ("Assigned".equals(roomFilter) && student.getRoomId() != 0) ||
-                    ("Unassigned".equals(roomFilter) && student.getRoomId() == 0);
-
-            if (matchesSearch && matchesStatus && matchesRoom) {
-                Object[] rowData = {
-                        student.getStudentId(),
-                        student.getStudentCode(),
-                        student.getFullName(),
-                        student.getDateOfBirth(),
-                        student.getGender(),
-                        student.getPhoneNumber(),
-                        student.getEmail(),
-                        student.getHometown(),
-                        student.getRoomId() == 0 ? "Not Assigned" : student.getRoomId(),
-                        student.getStatus()
-                };
-                tableModel.addRow(rowData);
+        return () -> {
+            // Status and room filters are bitmap lookups; "Assigned"/"Unassigned" are STUDENT_ROOM values
+            CompressedBitmap matches = null;
+            if (!"All".equals(statusFilter)) {
+                matches = dataStorage.select(IndexedColumn.STUDENT_STATUS, statusFilter);
             }
-        }
+            if (!"All".equals(roomFilter)) {
+                CompressedBitmap inRoom = dataStorage.select(IndexedColumn.STUDENT_ROOM, roomFilter);
+                matches = matches != null ? matches.and(inRoom) : inRoom;
+            }
+            if (searchText.isEmpty()) {
+                return matches != null ? matches.toArray() : dataStorage.getIds(EntityType.STUDENT);
+            }
+            // ranked by the text index, best match first
+            CompressedBitmap filter = matches;
+            return dataStorage.searchStudents(searchText).stream()
+                    .mapToInt(Student::getStudentId)
+                    .filter(id -> filter == null || filter.contains(id))
+                    .toArray();
+        };
     }
 
     private void showAddForm() {
@@ -251,7 +262,7 @@ public class StudentPanel extends JPanel {
             return;
         }
 
-        int studentId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        int studentId = tableModel.getIdAt(selectedRow);
         Student student = dataStorage.getStudentById(studentId);
         if (student != null) {
             displayStudentForm(student);
@@ -266,12 +277,12 @@ public class StudentPanel extends JPanel {
         }
 
         showConfirmDialog("Are you sure you want to delete this student?", () -> {
-            int studentId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            if (dataStorage.deleteStudent(studentId)) {
-                mainFrame.refreshRelatedPanels("student");
-                refreshData();
-                mainFrame.updateStatusBar("Student deleted successfully");
-            }
+            int studentId = tableModel.getIdAt(selectedRow);
+            mainFrame.getTasks().run("Deleting student", () -> dataStorage.deleteStudent(studentId), deleted -> {
+                if (deleted) {
+                    mainFrame.updateStatusBar("Student deleted successfully");
+                }
+            });
         });
     }
 
@@ -282,7 +293,7 @@ public class StudentPanel extends JPanel {
             return;
         }
 
-        int studentId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        int studentId = tableModel.getIdAt(selectedRow);
         Student student = dataStorage.getStudentById(studentId);
         if (student == null) {
             showErrorDialog("Student not found.");
@@ -299,7 +310,7 @@ public class StudentPanel extends JPanel {
             return;
         }
 
-        int studentId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        int studentId = tableModel.getIdAt(selectedRow);
         Student student = dataStorage.getStudentById(studentId);
         if (student == null) {
             showErrorDialog("Student not found.");
@@ -434,14 +445,16 @@ public class StudentPanel extends JPanel {
                         "Confirm Assignment", JOptionPane.YES_NO_OPTION);
 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    if (dataStorage.assignStudentToRoom(student.getStudentId(), roomId)) {
-                        showInfoDialog("Student successfully assigned to room " + roomId + ".");
-                        assignDialog.dispose();
-                        refreshData();
-                        mainFrame.updateStatusBar("Room assigned successfully");
-                    } else {
-                        showErrorDialog("Failed to assign room. The room may be full or unavailable.");
-                    }
+                    mainFrame.getTasks().run("Assigning room",
+                            () -> dataStorage.assignStudentToRoom(student.getStudentId(), roomId), assigned -> {
+                                if (assigned) {
+                                    showInfoDialog("Student successfully assigned to room " + roomId + ".");
+                                    assignDialog.dispose();
+                                    mainFrame.updateStatusBar("Room assigned successfully");
+                                } else {
+                                    showErrorDialog("Failed to assign room. The room may be full or unavailable.");
+                                }
+                            });
                 }
             });
 
@@ -453,14 +466,16 @@ public class StudentPanel extends JPanel {
                         "Confirm Removal", JOptionPane.YES_NO_OPTION);
 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    if (dataStorage.removeStudentFromRoom(student.getStudentId())) {
-                        showInfoDialog("Student successfully removed from room.");
-                        assignDialog.dispose();
-                        refreshData();
-                        mainFrame.updateStatusBar("Student removed from room successfully");
-                    } else {
-                        showErrorDialog("Failed to remove student from room.");
-                    }
+                    mainFrame.getTasks().run("Removing from room",
+                            () -> dataStorage.removeStudentFromRoom(student.getStudentId()), removed -> {
+                                if (removed) {
+                                    showInfoDialog("Student successfully removed from room.");
+                                    assignDialog.dispose();
+                                    mainFrame.updateStatusBar("Student removed from room successfully");
+                                } else {
+                                    showErrorDialog("Failed to remove student from room.");
+                                }
+                            });
                 }
             });
 
@@ -634,8 +649,17 @@ public class StudentPanel extends JPanel {
                 return;
             }
 
+            boolean adding = currentStudent == null;
+
+            // Check for a duplicate student code before touching the stored student
+            if (!dataStorage.isStudentCodeAvailable(studentCodeField.getText().trim(),
+                    adding ? 0 : currentStudent.getStudentId())) {
+                showErrorDialog("Student code already exists. Please use a unique student code.");
+                return;
+            }
+
             Student student;
-            if (currentStudent == null) {
+            if (adding) {
                 // Create new student
                 student = new Student(
                         studentCodeField.getText().trim(),
@@ -646,37 +670,30 @@ public class StudentPanel extends JPanel {
                         emailField.getText().trim(),
                         hometownField.getText().trim()
                 );
-                student.setStatus((String) statusCombo.getSelectedItem());
-
-                if (dataStorage.addStudent(student)) {
-                    showInfoDialog("Student added successfully");
-                    mainFrame.refreshRelatedPanels("student");
-                } else {
-                    showErrorDialog("Failed to add student.");
-                    return;
-                }
             } else {
                 // Update existing student
-                currentStudent.setStudentCode(studentCodeField.getText().trim());
-                currentStudent.setFullName(fullNameField.getText().trim());
-                currentStudent.setDateOfBirth(dateOfBirth);
-                currentStudent.setGender((String) genderCombo.getSelectedItem());
-                currentStudent.setPhoneNumber(phoneField.getText().trim());
-                currentStudent.setEmail(emailField.getText().trim());
-                currentStudent.setHometown(hometownField.getText().trim());
-                currentStudent.setStatus((String) statusCombo.getSelectedItem());
-
-                if (dataStorage.updateStudent(currentStudent)) {
-                    showInfoDialog("Student updated successfully");
-                    mainFrame.refreshRelatedPanels("student");
-                } else {
-                    showErrorDialog("Failed to update student.");
-                    return;
-                }
+                student = currentStudent;
+                student.setStudentCode(studentCodeField.getText().trim());
+                student.setFullName(fullNameField.getText().trim());
+                student.setDateOfBirth(dateOfBirth);
+                student.setGender((String) genderCombo.getSelectedItem());
+                student.setPhoneNumber(phoneField.getText().trim());
+                student.setEmail(emailField.getText().trim());
+                student.setHometown(hometownField.getText().trim());
             }
-
-            formDialog.dispose();
-            refreshData();
+            student.setStatus((String) statusCombo.getSelectedItem());
+
+            // Save in the background; the form stays open if the student code is taken
+            JDialog dialog = formDialog;
+            mainFrame.getTasks().run("Saving student",
+                    () -> adding ? dataStorage.addStudent(student) : dataStorage.updateStudent(student), saved -> {
+                        if (!saved) {
+                            showErrorDialog("Failed to " + (adding ? "add" : "update") + " student. Student code may already exist.");
+                            return;
+                        }
+                        dialog.dispose();
+                        showInfoDialog("Student " + (adding ? "added" : "updated") + " successfully");
+                    });
 
         } catch (Exception e) {
             showErrorDialog("Error saving student: " + e.getMessage());
@@ -787,6 +804,7 @@ public class StudentPanel extends JPanel {
                 addDetailRow(roomPanel, rgbc, 1, "Room Type:", room.getRoomType());
                 addDetailRow(roomPanel, rgbc, 2, "Room Status:", room.getStatus());
                 addDetailRow(roomPanel, rgbc, 3, "Room Price:", String.format("$%.2f", room.getRoomPrice()));
+                addDetailRow(roomPanel, rgbc, 4, "Roommates:", getRoommateNames(student));
 
                 contentPanel.add(roomPanel);
             }
@@ -803,6 +821,31 @@ public class StudentPanel extends JPanel {
             addDetailRow(roomPanel, rgbc, 0, "Room Assignment:", "Not assigned to any room");
             contentPanel.add(roomPanel);
         }
+        contentPanel.add(Box.createVerticalStrut(10));
+
+        // Contracts and Fees Section
+        List<Contract> contracts = dataStorage.getContractsForStudent(student.getStudentId());
+        List<Fee> fees = dataStorage.getFeesForStudent(student.getStudentId());
+        List<Fee> unpaidFees = fees.stream()
+                .filter(Fee::isUnpaid)
+                .collect(Collectors.toList());
+        BigDecimal outstanding = Money.sum(unpaidFees, Fee::getAmountMinor).toBigDecimal();
+
+        JPanel accountPanel = new JPanel(new GridBagLayout());
+        accountPanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY), "Contracts and Fees"),
+            BorderFactory.createEmptyBorder(5, 5, 5, 5)
+        ));
+        GridBagConstraints agbc = new GridBagConstraints();
+        agbc.insets = new Insets(5, 5, 5, 5);
+        agbc.anchor = GridBagConstraints.WEST;
+
+        addDetailRow(accountPanel, agbc, 0, "Contracts:", contracts.isEmpty() ? "None"
+                : contracts.stream().map(Contract::getContractCode).collect(Collectors.joining(", ")));
+        addDetailRow(accountPanel, agbc, 1, "Fees:", String.valueOf(fees.size()));
+        addDetailRow(accountPanel, agbc, 2, "Unpaid Fees:", String.valueOf(unpaidFees.size()));
+        addDetailRow(accountPanel, agbc, 3, "Outstanding:", String.format("$%.2f", outstanding));
+        contentPanel.add(accountPanel);
 
         // Add scrolling to content
         JScrollPane scrollPane = new JScrollPane(contentPanel);
@@ -846,6 +889,14 @@ public class StudentPanel extends JPanel {
         viewDialog.setVisible(true);
     }
 
+    private String getRoommateNames(Student student) {
+        String names = dataStorage.getStudentsInRoom(student.getRoomId()).stream()
+                .filter(other -> other.getStudentId() != student.getStudentId())
+                .map(Student::getFullName)
+                .collect(Collectors.joining(", "));
+        return names.isEmpty() ? "None" : names;
+    }
+
     private void setupTableProperties() {
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
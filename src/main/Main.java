@@ -1,11 +1,14 @@
 package main;
 
+import gui.EdtWatchdog;
 import gui.LoginFrame;
 import javax.swing.*;
 import java.awt.*;
 
 public class Main {
     public static void main(String[] args) {
+        // logs anything that keeps the EDT busy, see edt.watchdog.millis
+        EdtWatchdog.install();
         SwingUtilities.invokeLater(() -> {
             try {
                 // Set Windows Look and Feel for modern native look
@@ -10,10 +10,11 @@ public class Contract {
     private int roomId;
     private LocalDate startDate;
     private LocalDate endDate;
-    private BigDecimal roomPrice;
-    private String paymentMethod;
-    private String contractStatus;
-    private BigDecimal depositAmount;
+    private Money roomPrice;
+    private String paymentMethod;  // pooled; contracts also use billing terms such as MONTHLY
+    private ContractStatus contractStatus;
+    private String unknownContractStatus;  // a legacy value no constant matches, kept as text
+    private Money depositAmount;
 
 
     public Contract(String contractCode, int studentId, int roomId,
@@ -23,10 +24,10 @@ public class Contract {
         this.roomId = roomId;
         this.startDate = startDate;
         this.endDate = endDate;
-        this.roomPrice = roomPrice;
+        this.roomPrice = Money.of(roomPrice);
         this.paymentMethod = "MONTHLY";
-        this.contractStatus = "ACTIVE";
-        this.depositAmount = BigDecimal.ZERO;
+        this.contractStatus = ContractStatus.ACTIVE;
+        this.depositAmount = Money.zero(Money.Currency.getDefault());
     }
     
     // Getters and Setters
@@ -48,32 +49,49 @@ public class Contract {
     public LocalDate getEndDate() { return endDate; }
     public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
     
-    public BigDecimal getRoomPrice() { return roomPrice; }
-    public void setRoomPrice(BigDecimal roomPrice) { this.roomPrice = roomPrice; }
+    public BigDecimal getRoomPrice() { return Money.toBigDecimal(roomPrice); }
+    public void setRoomPrice(BigDecimal roomPrice) { this.roomPrice = Money.of(roomPrice); }
+
+    public Money getRoomPriceMoney() { return roomPrice; }
+    public void setRoomPriceMoney(Money roomPrice) { this.roomPrice = roomPrice; }
+    public long getRoomPriceMinor() { return Money.minorUnits(roomPrice); }
     
     public String getPaymentMethod() { return paymentMethod; }
-    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = Vocabulary.intern(paymentMethod); }
     
-    public String getContractStatus() { return contractStatus; }
-    public void setContractStatus(String contractStatus) { this.contractStatus = contractStatus; }
+    public String getContractStatus() { return Vocabulary.name(contractStatus, unknownContractStatus); }
+    public void setContractStatus(String contractStatus) {
+        this.contractStatus = ContractStatus.parse(contractStatus);
+        this.unknownContractStatus = Vocabulary.unknown(this.contractStatus, contractStatus);
+    }
+
+    public ContractStatus getContractStatusType() { return contractStatus; }
+    public void setContractStatusType(ContractStatus contractStatus) {
+        this.contractStatus = contractStatus;
+        this.unknownContractStatus = null;
+    }
     
-    public BigDecimal getDepositAmount() { return depositAmount; }
-    public void setDepositAmount(BigDecimal depositAmount) { this.depositAmount = depositAmount; }
+    public BigDecimal getDepositAmount() { return Money.toBigDecimal(depositAmount); }
+    public void setDepositAmount(BigDecimal depositAmount) { this.depositAmount = Money.of(depositAmount); }
+
+    public Money getDepositAmountMoney() { return depositAmount; }
+    public void setDepositAmountMoney(Money depositAmount) { this.depositAmount = depositAmount; }
+    public long getDepositAmountMinor() { return Money.minorUnits(depositAmount); }
     
     public BigDecimal getMonthlyFee() {
-        return roomPrice;
+        return getRoomPrice();
     }
 
     public void setMonthlyFee(BigDecimal fee) {
-        this.roomPrice = fee;
+        setRoomPrice(fee);
     }
 
     public String getStatus() {
-        return contractStatus;
+        return getContractStatus();
     }
 
     public void setStatus(String status) {
-        this.contractStatus = status;
+        setContractStatus(status);
     }
     
     @Override
@@ -0,0 +1,13 @@
+package model;
+
+public enum ContractStatus {
+    ACTIVE,
+    EXPIRED,
+    TERMINATED,
+    PENDING;
+
+    // Ignores case and treats spaces as underscores; empty or unknown values give null
+    public static ContractStatus parse(String value) {
+        return Vocabulary.parse(ContractStatus.class, value);
+    }
+}
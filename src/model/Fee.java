@@ -8,9 +8,11 @@ public class Fee {
     private String feeCode;
     private int studentId;
     private FeeType feeType;
-    private BigDecimal amount;
-    private String paymentMethod;
-    private String paymentStatus;
+    private Money amount;
+    private PaymentMethod paymentMethod;
+    private String unknownPaymentMethod;  // a legacy value no constant matches, kept as text
+    private PaymentStatus paymentStatus;
+    private String unknownPaymentStatus;
     private LocalDate dueDate;
     private LocalDate paymentDate;
     private String description;
@@ -21,10 +23,10 @@ public class Fee {
         this.feeCode = feeCode;
         this.studentId = studentId;
         this.feeType = feeType;
-        this.amount = amount;
+        this.amount = Money.of(amount);
         this.dueDate = dueDate;
-        this.paymentMethod = "CASH";
-        this.paymentStatus = "PENDING";
+        this.paymentMethod = PaymentMethod.CASH;
+        this.paymentStatus = PaymentStatus.PENDING;
         this.contractId = 0;
     }
     
@@ -41,14 +43,37 @@ public class Fee {
     public FeeType getFeeType() { return feeType; }
     public void setFeeType(FeeType feeType) { this.feeType = feeType; }
     
-    public BigDecimal getAmount() { return amount; }
-    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public BigDecimal getAmount() { return Money.toBigDecimal(amount); }
+    public void setAmount(BigDecimal amount) { this.amount = Money.of(amount); }
+
+    // The amount without a BigDecimal; 0 minor units when there is none
+    public Money getAmountMoney() { return amount; }
+    public void setAmountMoney(Money amount) { this.amount = amount; }
+    public long getAmountMinor() { return Money.minorUnits(amount); }
     
-    public String getPaymentMethod() { return paymentMethod; }
-    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    public String getPaymentMethod() { return Vocabulary.name(paymentMethod, unknownPaymentMethod); }
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = PaymentMethod.parse(paymentMethod);
+        this.unknownPaymentMethod = Vocabulary.unknown(this.paymentMethod, paymentMethod);
+    }
+
+    public PaymentMethod getPaymentMethodType() { return paymentMethod; }
+    public void setPaymentMethodType(PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+        this.unknownPaymentMethod = null;
+    }
     
-    public String getPaymentStatus() { return paymentStatus; }
-    public void setPaymentStatus(String paymentStatus) { this.paymentStatus = paymentStatus; }
+    public String getPaymentStatus() { return Vocabulary.name(paymentStatus, unknownPaymentStatus); }
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = PaymentStatus.parse(paymentStatus);
+        this.unknownPaymentStatus = Vocabulary.unknown(this.paymentStatus, paymentStatus);
+    }
+
+    public PaymentStatus getPaymentStatusType() { return paymentStatus; }
+    public void setPaymentStatusType(PaymentStatus paymentStatus) {
+        this.paymentStatus = paymentStatus;
+        this.unknownPaymentStatus = null;
+    }
     
     public LocalDate getDueDate() { return dueDate; }
     public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
@@ -64,7 +89,12 @@ public class Fee {
     }
 
     public String getStatus() {
-        return paymentStatus;
+        return getPaymentStatus();
+    }
+
+    // Pending and overdue fees still have to be paid
+    public boolean isUnpaid() {
+        return paymentStatus == PaymentStatus.PENDING || paymentStatus == PaymentStatus.OVERDUE;
     }
 
     public int getContractId() {
@@ -77,6 +107,6 @@ public class Fee {
     
     @Override
     public String toString() {
-        return String.format("%s - %s: $%.2f", feeCode, feeType.getDisplayName(), amount);
+        return String.format("%s - %s: $%.2f", feeCode, feeType.getDisplayName(), getAmount());
     }
 }
\ No newline at end of file
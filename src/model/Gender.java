@@ -0,0 +1,36 @@
+package model;
+
+import java.util.Locale;
+
+public enum Gender {
+    MALE("Male"),
+    FEMALE("Female"),
+    OTHER("Other");
+
+    private final String displayName;
+
+    Gender(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Accepts the display names and constant names in any case, and the Vietnamese "Nam"/"Nữ"
+    public static Gender parse(String value) {
+        if (value != null) {
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "nam":
+                    return MALE;
+                case "nữ":
+                case "nu":
+                    return FEMALE;
+                case "khác":
+                    return OTHER;
+                default:
+            }
+        }
+        return Vocabulary.parse(Gender.class, value);
+    }
+}
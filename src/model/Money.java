@@ -0,0 +1,151 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * An amount of money held as a long count of the currency's minor units (dong for VND, cents
+ * for USD), so adding amounts up is plain long arithmetic. Amounts from BigDecimal are
+ * rounded half-up to the currency's scale. Amounts in different currencies are never mixed.
+ */
+public final class Money implements Comparable<Money> {
+
+    public enum Currency {
+        VND(0),
+        USD(2);
+
+        private final int scale;
+        private final Money zero;
+
+        Currency(int scale) {
+            this.scale = scale;
+            this.zero = new Money(0, this);
+        }
+
+        public int getScale() { return scale; }
+
+        // The billing currency, set with -Dmoney.currency=VND; USD unless set
+        public static Currency getDefault() {
+            return DefaultCurrency.VALUE;
+        }
+    }
+
+    static final class DefaultCurrency {
+        static final Currency VALUE = parse(System.getProperty("money.currency", "USD"));
+
+        // An unsupported name is reported and replaced by USD instead of failing class initialization
+        static Currency parse(String name) {
+            try {
+                return Currency.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unsupported money.currency " + name + ", using USD");
+                return Currency.USD;
+            }
+        }
+    }
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return minorUnits == 0 ? currency.zero : new Money(minorUnits, currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return currency.zero;
+    }
+
+    // In the default currency; null stays null
+    public static Money of(BigDecimal amount) {
+        return of(amount, Currency.getDefault());
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        if (amount == null) {
+            return null;
+        }
+        return ofMinor(amount.setScale(currency.scale, RoundingMode.HALF_UP).unscaledValue().longValueExact(), currency);
+    }
+
+    /**
+     * Sums the amounts of the items in the default currency without creating an object per
+     * item; the function gives each item's amount in minor units.
+     */
+    public static <T> Money sum(Collection<? extends T> items, ToLongFunction<? super T> minorUnits) {
+        long total = 0;
+        for (T item : items) {
+            total = Math.addExact(total, minorUnits.applyAsLong(item));
+        }
+        return ofMinor(total, Currency.getDefault());
+    }
+
+    // Minor units of a possibly missing amount
+    public static long minorUnits(Money money) {
+        return money != null ? money.minorUnits : 0;
+    }
+
+    public static BigDecimal toBigDecimal(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public Currency getCurrency() { return currency; }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.scale);
+    }
+
+    // Arithmetic
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return ofMinor(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, sameCurrency(other).minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+
+    private Money sameCurrency(Money other) {
+        if (other.currency != currency) {
+            throw new IllegalArgumentException("Cannot combine " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+}
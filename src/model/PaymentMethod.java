@@ -0,0 +1,13 @@
+package model;
+
+public enum PaymentMethod {
+    CASH,
+    CREDIT_CARD,
+    BANK_TRANSFER,
+    CHEQUE;
+
+    // Ignores case and treats spaces as underscores; empty or unknown values give null
+    public static PaymentMethod parse(String value) {
+        return Vocabulary.parse(PaymentMethod.class, value);
+    }
+}
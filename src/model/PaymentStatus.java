@@ -0,0 +1,13 @@
+package model;
+
+public enum PaymentStatus {
+    PENDING,
+    PAID,
+    OVERDUE,
+    CANCELLED;
+
+    // Ignores case and treats spaces as underscores; empty or unknown values give null
+    public static PaymentStatus parse(String value) {
+        return Vocabulary.parse(PaymentStatus.class, value);
+    }
+}
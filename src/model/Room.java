@@ -6,7 +6,7 @@ public class Room {
     private int roomId;
     private String roomNumber;
     private int bedCount;
-    private BigDecimal roomPrice;
+    private Money roomPrice;
     private String status;
     private int currentOccupancy;
 
@@ -16,7 +16,7 @@ public class Room {
         }
         this.roomNumber = roomNumber;
         this.bedCount = bedCount;
-        this.roomPrice = roomPrice;
+        this.roomPrice = Money.of(roomPrice);
         this.status = "AVAILABLE";
         this.currentOccupancy = 0;
     }
@@ -30,8 +30,12 @@ public class Room {
     
     public int getBedCount() { return bedCount; }
     
-    public BigDecimal getRoomPrice() { return roomPrice; }
-    public void setRoomPrice(BigDecimal roomPrice) { this.roomPrice = roomPrice; }
+    public BigDecimal getRoomPrice() { return Money.toBigDecimal(roomPrice); }
+    public void setRoomPrice(BigDecimal roomPrice) { this.roomPrice = Money.of(roomPrice); }
+
+    public Money getRoomPriceMoney() { return roomPrice; }
+    public void setRoomPriceMoney(Money roomPrice) { this.roomPrice = roomPrice; }
+    public long getRoomPriceMinor() { return Money.minorUnits(roomPrice); }
     
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -86,7 +90,7 @@ public class Room {
     }
     
     public BigDecimal getMonthlyFee() {
-        return roomPrice;
+        return getRoomPrice();
     }
     
     @Override
@@ -95,7 +99,7 @@ public class Room {
     }
 
     public BigDecimal getTotalPrice() {
-        return roomPrice;
+        return getRoomPrice();
     }
 
     public BigDecimal getAdditionalFee() {
@@ -1,8 +1,11 @@
 package model;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.TreeMap;
 
 public class Statistics {
     private LocalDateTime periodStart;
@@ -13,10 +16,42 @@ public class Statistics {
     private double occupancyRate;
     private Map<String, Integer> studentsByStatus;
     private Map<String, Double> financialSummary;
+    private int totalBeds;
+    private int occupiedBeds;
+
+    // Rooms by room type ("4-Person"), and beds in them
+    private Map<String, Integer> roomsByType;
+    private Map<String, Integer> roomsInUseByType;
+    private Map<String, Integer> bedsByType;
+    private Map<String, Integer> occupiedBedsByType;
+
+    // Fees by fee type: how many, their total, and the paid and pending parts of it
+    private Map<FeeType, Integer> feeCountByType;
+    private Map<FeeType, BigDecimal> totalByFeeType;
+    private Map<FeeType, BigDecimal> paidByFeeType;
+    private Map<FeeType, BigDecimal> pendingByFeeType;
+
+    // Within the period: payments received, contracts started, and fees falling due by fee type
+    private BigDecimal periodRevenue;
+    private int periodPayments;
+    private int periodContractsStarted;
+    private Map<FeeType, BigDecimal> periodDueByFeeType;
+    private Map<FeeType, BigDecimal> periodPaidDueByFeeType;
     
     public Statistics() {
         this.studentsByStatus = new HashMap<>();
         this.financialSummary = new HashMap<>();
+        this.roomsByType = new TreeMap<>();
+        this.roomsInUseByType = new TreeMap<>();
+        this.bedsByType = new TreeMap<>();
+        this.occupiedBedsByType = new TreeMap<>();
+        this.feeCountByType = new EnumMap<>(FeeType.class);
+        this.totalByFeeType = new EnumMap<>(FeeType.class);
+        this.paidByFeeType = new EnumMap<>(FeeType.class);
+        this.pendingByFeeType = new EnumMap<>(FeeType.class);
+        this.periodRevenue = BigDecimal.ZERO;
+        this.periodDueByFeeType = new EnumMap<>(FeeType.class);
+        this.periodPaidDueByFeeType = new EnumMap<>(FeeType.class);
     }
     
     // Getters and Setters
@@ -48,6 +83,58 @@ public class Statistics {
         this.financialSummary = financialSummary; 
     }
     
+    public int getTotalBeds() { return totalBeds; }
+    public void setTotalBeds(int totalBeds) { this.totalBeds = totalBeds; }
+
+    public int getOccupiedBeds() { return occupiedBeds; }
+    public void setOccupiedBeds(int occupiedBeds) { this.occupiedBeds = occupiedBeds; }
+
+    public Map<String, Integer> getRoomsByType() { return roomsByType; }
+    public Map<String, Integer> getRoomsInUseByType() { return roomsInUseByType; }
+    public Map<String, Integer> getBedsByType() { return bedsByType; }
+    public Map<String, Integer> getOccupiedBedsByType() { return occupiedBedsByType; }
+
+    public Map<FeeType, Integer> getFeeCountByType() { return feeCountByType; }
+    public Map<FeeType, BigDecimal> getTotalByFeeType() { return totalByFeeType; }
+    public Map<FeeType, BigDecimal> getPaidByFeeType() { return paidByFeeType; }
+    public Map<FeeType, BigDecimal> getPendingByFeeType() { return pendingByFeeType; }
+
+    public BigDecimal getPeriodRevenue() { return periodRevenue; }
+    public void setPeriodRevenue(BigDecimal periodRevenue) { this.periodRevenue = periodRevenue; }
+
+    public int getPeriodPayments() { return periodPayments; }
+    public void setPeriodPayments(int periodPayments) { this.periodPayments = periodPayments; }
+
+    public int getPeriodContractsStarted() { return periodContractsStarted; }
+    public void setPeriodContractsStarted(int periodContractsStarted) {
+        this.periodContractsStarted = periodContractsStarted;
+    }
+
+    // Fees due within the period, and the paid part of them
+    public Map<FeeType, BigDecimal> getPeriodDueByFeeType() { return periodDueByFeeType; }
+    public Map<FeeType, BigDecimal> getPeriodPaidDueByFeeType() { return periodPaidDueByFeeType; }
+
+    public int getStudentCount(String status) {
+        return studentsByStatus.getOrDefault(status, 0);
+    }
+
+    // Occupied beds as a percentage of all beds
+    public double getBedOccupancyRate() {
+        return totalBeds > 0 ? (double) occupiedBeds / totalBeds * 100 : 0;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return sum(paidByFeeType);
+    }
+
+    public BigDecimal getTotalPending() {
+        return sum(pendingByFeeType);
+    }
+
+    private static BigDecimal sum(Map<FeeType, BigDecimal> amounts) {
+        return amounts.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
     public void calculateOccupancyRate() {
         if (totalRooms > 0) {
             this.occupancyRate = (double) occupiedRooms / totalRooms * 100;
@@ -7,23 +7,25 @@ public class Student {
     private String studentCode;
     private String fullName;
     private LocalDate dateOfBirth;
-    private String gender;
+    private Gender gender;
+    private String unknownGender;  // a legacy value no constant matches, kept as text
     private String phoneNumber;
     private String email;
-    private String hometown;
+    private String hometown;  // pooled
     private int roomId;
-    private String status;
+    private StudentStatus status;
+    private String unknownStatus;
 
     public Student(String studentCode, String fullName, LocalDate dateOfBirth,
                    String gender, String phoneNumber, String email, String hometown) {
         this.studentCode = studentCode;
         this.fullName = fullName;
         this.dateOfBirth = dateOfBirth;
-        this.gender = gender;
+        setGender(gender);
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.hometown = hometown;
-        this.status = "ACTIVE";
+        this.hometown = Vocabulary.intern(hometown);
+        this.status = StudentStatus.ACTIVE;
     }
     
     // Getters and Setters
@@ -39,8 +41,17 @@ public class Student {
     public LocalDate getDateOfBirth() { return dateOfBirth; }
     public void setDateOfBirth(LocalDate dateOfBirth) { this.dateOfBirth = dateOfBirth; }
     
-    public String getGender() { return gender; }
-    public void setGender(String gender) { this.gender = gender; }
+    public String getGender() { return gender != null ? gender.getDisplayName() : unknownGender; }
+    public void setGender(String gender) {
+        this.gender = Gender.parse(gender);
+        this.unknownGender = Vocabulary.unknown(this.gender, gender);
+    }
+
+    public Gender getGenderType() { return gender; }
+    public void setGenderType(Gender gender) {
+        this.gender = gender;
+        this.unknownGender = null;
+    }
     
     public String getPhoneNumber() { return phoneNumber; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
@@ -49,13 +60,22 @@ public class Student {
     public void setEmail(String email) { this.email = email; }
     
     public String getHometown() { return hometown; }
-    public void setHometown(String hometown) { this.hometown = hometown; }
+    public void setHometown(String hometown) { this.hometown = Vocabulary.intern(hometown); }
     
     public int getRoomId() { return roomId; }
     public void setRoomId(int roomId) { this.roomId = roomId; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public String getStatus() { return Vocabulary.name(status, unknownStatus); }
+    public void setStatus(String status) {
+        this.status = StudentStatus.parse(status);
+        this.unknownStatus = Vocabulary.unknown(this.status, status);
+    }
+
+    public StudentStatus getStatusType() { return status; }
+    public void setStatusType(StudentStatus status) {
+        this.status = status;
+        this.unknownStatus = null;
+    }
     
     @Override
     public String toString() {
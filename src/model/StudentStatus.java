@@ -0,0 +1,12 @@
+package model;
+
+public enum StudentStatus {
+    ACTIVE,
+    INACTIVE,
+    GRADUATED;
+
+    // Ignores case and treats spaces as underscores; empty or unknown values give null
+    public static StudentStatus parse(String value) {
+        return Vocabulary.parse(StudentStatus.class, value);
+    }
+}
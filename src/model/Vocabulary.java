@@ -0,0 +1,61 @@
+package model;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared helpers for the model's repeated text values: lenient parsing of the enum-valued
+ * fields, and a pool so that open but repetitive values (hometowns, contract payment methods)
+ * are held once however many records carry them.
+ */
+final class Vocabulary {
+    private static final Map<String, String> POOL = new ConcurrentHashMap<>();
+
+    private Vocabulary() {
+    }
+
+    /**
+     * Parses a constant ignoring case and treating spaces and hyphens as underscores, so
+     * "Bank Transfer" is BANK_TRANSFER. Null, blank or the text "null" give null, and so does
+     * a value no constant matches; the models keep such values as text, see unknown().
+     */
+    static <E extends Enum<E>> E parse(Class<E> type, String value) {
+        if (isEmpty(value)) {
+            return null;
+        }
+        String name = value.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The text to keep for a value that parsed to no constant, such as "M" in files written
+     * before the field was an enum, so saving the record does not lose it. Null when the
+     * value parsed or was empty.
+     */
+    static String unknown(Enum<?> parsed, String value) {
+        return parsed == null && !isEmpty(value) ? intern(value.trim()) : null;
+    }
+
+    // The constant's name, or the kept text when there is no constant
+    static String name(Enum<?> value, String unknown) {
+        return value != null ? value.name() : unknown;
+    }
+
+    static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty() || value.trim().equalsIgnoreCase("null");
+    }
+
+    // The pooled copy of the value
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = POOL.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+}
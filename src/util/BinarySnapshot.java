@@ -0,0 +1,373 @@
+package util;
+
+import model.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of one entity type, read in one piece through a FileChannel.
+ * Layout: a header (magic, version, entity type, row count, row width, dictionary size),
+ * the string dictionary, fixed-width rows and a trailing CRC32 of everything before it.
+ * Strings are stored as dictionary indexes (-1 for null), dates as epoch days and
+ * money as a long count of minor units in the currency named in the header.
+ * Version 1 files, whose money is an unscaled long followed by its scale, are still read.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x4B545842; // "KTXB"
+    private static final int VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int LEGACY_HEADER_SIZE = 24;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NO_MONEY = Long.MIN_VALUE;
+    private static final byte LEGACY_NO_MONEY = Byte.MIN_VALUE;
+    private static final int MIN_ROWS_PER_CHUNK = 20000;
+
+    // Column widths
+    private static final int INT = 4;
+    private static final int STRING = 4;
+    private static final int DATE = 4;
+    private static final int MONEY = 8;
+    private static final int LEGACY_MONEY = 9;
+
+    public static int rowWidth(EntityType type) {
+        return rowWidth(type, MONEY);
+    }
+
+    private static int rowWidth(EntityType type, int money) {
+        switch (type) {
+            case STUDENT: return INT + STRING * 7 + DATE + INT;
+            case ROOM: return INT + STRING + INT + money + INT + STRING;
+            case CONTRACT: return INT * 3 + STRING * 3 + DATE * 2 + money * 2;
+            default: return INT * 2 + STRING * 5 + money + DATE * 2;
+        }
+    }
+
+    public static void write(File target, EntityType type, Collection<?> entities) throws IOException {
+        List<?> rowsToWrite = new ArrayList<>(entities);
+        int width = rowWidth(type);
+        Dictionary dictionary = new Dictionary();
+        ByteBuffer rows = ByteBuffer.allocate(width * rowsToWrite.size());
+        for (Object entity : rowsToWrite) {
+            writeRow(type, entity, rows, dictionary);
+        }
+        rows.flip();
+
+        ByteBuffer strings = ByteBuffer.wrap(dictionary.toBytes());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(type.ordinal())
+              .putInt(rowsToWrite.size()).putInt(width).putInt(dictionary.size())
+              .putInt(Money.Currency.getDefault().ordinal());
+        header.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        crc.update(strings.duplicate());
+        crc.update(rows.duplicate());
+        ByteBuffer trailer = ByteBuffer.allocate(8).putLong(crc.getValue());
+        trailer.flip();
+
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, strings, rows, trailer};
+            long total = 0;
+            for (ByteBuffer part : parts) {
+                total += part.remaining();
+            }
+            long written = 0;
+            while (written < total) {
+                written += channel.write(parts);
+            }
+            channel.force(true);
+        }
+        SnapshotFile.moveIntoPlace(temp, target);
+    }
+
+    /**
+     * Reads the file, verifies its checksum and passes every entity to the sink.
+     * Returns the number of rows read.
+     */
+    public static int read(File file, EntityType type, Consumer<Object> sink) throws IOException {
+        return read(file, type, sink, false);
+    }
+
+    /**
+     * Like read, but large files are decoded by several threads at once;
+     * the sink must then be thread-safe.
+     */
+    public static int read(File file, EntityType type, Consumer<Object> sink, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < LEGACY_HEADER_SIZE + 8 || size > Integer.MAX_VALUE) {
+                throw new SnapshotFile.CorruptSnapshotException(file.getName() + " has an invalid size");
+            }
+            // Read onto the heap rather than mapped: a mapping stays open until it is garbage collected,
+            // which on Windows keeps the file from being replaced
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new SnapshotFile.CorruptSnapshotException(file.getName() + " ended early");
+                }
+            }
+            buffer.flip();
+
+            ByteBuffer body = buffer.duplicate();
+            body.limit((int) size - 8);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                throw new SnapshotFile.CorruptSnapshotException(file.getName() + " failed its checksum");
+            }
+
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || (version != VERSION && version != LEGACY_VERSION)) {
+                throw new IOException(file.getName() + " is not a version " + VERSION + " snapshot");
+            }
+            if (buffer.getInt() != type.ordinal()) {
+                throw new IOException(file.getName() + " does not contain " + type.getBaseName());
+            }
+            int rowCount = buffer.getInt();
+            int width = buffer.getInt();
+            if (width != rowWidth(type, version == LEGACY_VERSION ? LEGACY_MONEY : MONEY)) {
+                throw new IOException(file.getName() + " has an unexpected row layout");
+            }
+
+            String[] dictionary = new String[buffer.getInt()];
+            // null for version 1, whose amounts carry their own scale
+            Money.Currency currency = null;
+            if (version != LEGACY_VERSION) {
+                int ordinal = buffer.getInt();
+                if (ordinal < 0 || ordinal >= Money.Currency.values().length) {
+                    throw new IOException(file.getName() + " has an unknown currency");
+                }
+                currency = Money.Currency.values()[ordinal];
+            }
+            Money.Currency rowCurrency = currency;
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < dictionary.length; i++) {
+                int length = buffer.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[length];
+                }
+                buffer.get(scratch, 0, length);
+                dictionary[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int chunks = parallel ? Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                    rowCount / MIN_ROWS_PER_CHUNK)) : 1;
+            int rowsStart = buffer.position();
+            IntStream ranges = IntStream.range(0, chunks);
+            (parallel ? ranges.parallel() : ranges).forEach(chunk -> {
+                int from = (int) ((long) rowCount * chunk / chunks);
+                int to = (int) ((long) rowCount * (chunk + 1) / chunks);
+                ByteBuffer rows = buffer.duplicate();
+                rows.position(rowsStart + from * width);
+                for (int row = from; row < to; row++) {
+                    sink.accept(readRow(type, rows, dictionary, rowCurrency));
+                }
+            });
+            return rowCount;
+        }
+    }
+
+    // Row encoding
+    private static void writeRow(EntityType type, Object entity, ByteBuffer out, Dictionary dictionary) {
+        switch (type) {
+            case STUDENT:
+                Student student = (Student) entity;
+                out.putInt(student.getStudentId());
+                out.putInt(dictionary.indexOf(student.getStudentCode()));
+                out.putInt(dictionary.indexOf(student.getFullName()));
+                putDate(out, student.getDateOfBirth());
+                out.putInt(dictionary.indexOf(student.getGender()));
+                out.putInt(dictionary.indexOf(student.getPhoneNumber()));
+                out.putInt(dictionary.indexOf(student.getEmail()));
+                out.putInt(dictionary.indexOf(student.getHometown()));
+                out.putInt(student.getRoomId());
+                out.putInt(dictionary.indexOf(student.getStatus()));
+                break;
+            case ROOM:
+                Room room = (Room) entity;
+                out.putInt(room.getRoomId());
+                out.putInt(dictionary.indexOf(room.getRoomNumber()));
+                out.putInt(room.getBedCount());
+                putMoney(out, room.getRoomPriceMoney());
+                out.putInt(room.getCurrentOccupancy());
+                out.putInt(dictionary.indexOf(room.getStatus()));
+                break;
+            case CONTRACT:
+                Contract contract = (Contract) entity;
+                out.putInt(contract.getContractId());
+                out.putInt(dictionary.indexOf(contract.getContractCode()));
+                out.putInt(contract.getStudentId());
+                out.putInt(contract.getRoomId());
+                putDate(out, contract.getStartDate());
+                putDate(out, contract.getEndDate());
+                putMoney(out, contract.getRoomPriceMoney());
+                out.putInt(dictionary.indexOf(contract.getPaymentMethod()));
+                out.putInt(dictionary.indexOf(contract.getContractStatus()));
+                putMoney(out, contract.getDepositAmountMoney());
+                break;
+            default:
+                Fee fee = (Fee) entity;
+                out.putInt(fee.getFeeId());
+                out.putInt(dictionary.indexOf(fee.getFeeCode()));
+                out.putInt(fee.getStudentId());
+                out.putInt(dictionary.indexOf(fee.getFeeType().name()));
+                putMoney(out, fee.getAmountMoney());
+                out.putInt(dictionary.indexOf(fee.getPaymentMethod()));
+                out.putInt(dictionary.indexOf(fee.getPaymentStatus()));
+                putDate(out, fee.getDueDate());
+                putDate(out, fee.getPaymentDate());
+                out.putInt(dictionary.indexOf(fee.getDescription()));
+                break;
+        }
+    }
+
+    private static Object readRow(EntityType type, ByteBuffer in, String[] dictionary, Money.Currency currency) {
+        switch (type) {
+            case STUDENT: {
+                int id = in.getInt();
+                String code = getString(in, dictionary);
+                String fullName = getString(in, dictionary);
+                LocalDate dateOfBirth = getDate(in);
+                String gender = getString(in, dictionary);
+                String phone = getString(in, dictionary);
+                String email = getString(in, dictionary);
+                String hometown = getString(in, dictionary);
+                Student student = new Student(code, fullName, dateOfBirth, gender, phone, email, hometown);
+                student.setStudentId(id);
+                student.setRoomId(in.getInt());
+                student.setStatus(getString(in, dictionary));
+                return student;
+            }
+            case ROOM: {
+                int id = in.getInt();
+                String roomNumber = getString(in, dictionary);
+                int bedCount = in.getInt();
+                Room room = new Room(roomNumber, bedCount, null);
+                room.setRoomPriceMoney(getMoney(in, currency));
+                room.setRoomId(id);
+                room.setCurrentOccupancy(in.getInt());
+                room.setStatus(getString(in, dictionary));
+                return room;
+            }
+            case CONTRACT: {
+                int id = in.getInt();
+                String code = getString(in, dictionary);
+                int studentId = in.getInt();
+                int roomId = in.getInt();
+                LocalDate startDate = getDate(in);
+                LocalDate endDate = getDate(in);
+                Contract contract = new Contract(code, studentId, roomId, startDate, endDate, null);
+                contract.setRoomPriceMoney(getMoney(in, currency));
+                contract.setContractId(id);
+                contract.setPaymentMethod(getString(in, dictionary));
+                contract.setContractStatus(getString(in, dictionary));
+                contract.setDepositAmountMoney(getMoney(in, currency));
+                return contract;
+            }
+            default: {
+                int id = in.getInt();
+                String code = getString(in, dictionary);
+                int studentId = in.getInt();
+                FeeType feeType = FeeType.valueOf(getString(in, dictionary));
+                Money amount = getMoney(in, currency);
+                String paymentMethod = getString(in, dictionary);
+                String paymentStatus = getString(in, dictionary);
+                Fee fee = new Fee(code, studentId, feeType, null, getDate(in));
+                fee.setAmountMoney(amount);
+                fee.setFeeId(id);
+                fee.setPaymentMethod(paymentMethod);
+                fee.setPaymentStatus(paymentStatus);
+                fee.setPaymentDate(getDate(in));
+                fee.setDescription(getString(in, dictionary));
+                return fee;
+            }
+        }
+    }
+
+    // Column helpers
+    private static void putDate(ByteBuffer out, LocalDate date) {
+        out.putInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+    }
+
+    private static LocalDate getDate(ByteBuffer in) {
+        int epochDay = in.getInt();
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    private static void putMoney(ByteBuffer out, Money amount) {
+        out.putLong(amount != null ? amount.getMinorUnits() : NO_MONEY);
+    }
+
+    // Amounts written in another currency than the current default are rescaled to it
+    private static Money getMoney(ByteBuffer in, Money.Currency currency) {
+        if (currency == null) {
+            long unscaled = in.getLong();
+            byte scale = in.get();
+            return scale != LEGACY_NO_MONEY ? Money.of(new BigDecimal(BigInteger.valueOf(unscaled), scale)) : null;
+        }
+        long minorUnits = in.getLong();
+        if (minorUnits == NO_MONEY) {
+            return null;
+        }
+        Money amount = Money.ofMinor(minorUnits, currency);
+        return currency == Money.Currency.getDefault() ? amount : Money.of(amount.toBigDecimal());
+    }
+
+    private static String getString(ByteBuffer in, String[] dictionary) {
+        int index = in.getInt();
+        return index >= 0 ? dictionary[index] : null;
+    }
+
+    // Each distinct string is stored once and referenced by index
+    private static class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        byte[] toBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.write(bytes.length >>> 24);
+                out.write(bytes.length >>> 16);
+                out.write(bytes.length >>> 8);
+                out.write(bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            return out.toByteArray();
+        }
+    }
+}
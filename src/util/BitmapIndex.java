@@ -0,0 +1,69 @@
+package util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * One CompressedBitmap of entity ids per distinct value of a column, so filters combine as
+ * bitwise and/or and counts are bitmap cardinalities. Ids are handed out densely from 1,
+ * so they serve as row numbers directly. Like the other indexes it remembers the value each
+ * id was filed under, since entities are edited in place.
+ */
+public class BitmapIndex<T> {
+    private final Function<T, String> valueFunction;
+    private final Map<String, CompressedBitmap> bitmaps = new HashMap<>();
+    private final Map<Integer, String> valuesById = new HashMap<>();
+
+    public BitmapIndex(Function<T, String> valueFunction) {
+        this.valueFunction = valueFunction;
+    }
+
+    // Returns a copy of the ids with the value; empty if there are none
+    public synchronized CompressedBitmap get(String value) {
+        CompressedBitmap bitmap = bitmaps.get(value);
+        return bitmap != null ? bitmap.copy() : new CompressedBitmap();
+    }
+
+    public synchronized int count(String value) {
+        CompressedBitmap bitmap = bitmaps.get(value);
+        return bitmap != null ? bitmap.getCardinality() : 0;
+    }
+
+    public synchronized Set<String> getValues() {
+        return new TreeSet<>(bitmaps.keySet());
+    }
+
+    public synchronized void put(int id, T entity) {
+        String value = valueFunction.apply(entity);
+        String previous = valuesById.get(id);
+        if (previous != null && previous.equals(value)) {
+            return;
+        }
+        remove(id);
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, v -> new CompressedBitmap()).add(id);
+            valuesById.put(id, value);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        String previous = valuesById.remove(id);
+        if (previous != null) {
+            CompressedBitmap bitmap = bitmaps.get(previous);
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(previous);
+            }
+        }
+    }
+
+    public synchronized void rebuild(Map<Integer, ? extends T> table) {
+        clear();
+        table.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        bitmaps.clear();
+        valuesById.clear();
+    }
+}
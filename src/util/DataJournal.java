@@ -0,0 +1,199 @@
+package util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of entity mutations, one file per entity type.
+ * Each line is "crc|P|id|record" for an insert/update or "crc|D|id" for a delete,
+ * where crc is the CRC32 of everything after the first '|'. Replay stops at the
+ * first damaged line, so a record torn by a crash is simply ignored.
+ */
+public class DataJournal implements Closeable {
+
+    public enum SyncPolicy {
+        ALWAYS,   // fsync after every record
+        INTERVAL, // fsync at most once per sync interval
+        NEVER     // leave it to the operating system
+    }
+
+    public interface Visitor {
+        void put(int id, String record);
+        void delete(int id);
+    }
+
+    private static final char PUT = 'P';
+    private static final char DELETE = 'D';
+
+    private final File directory;
+    private final SyncPolicy syncPolicy;
+    private final long syncIntervalMillis;
+    private final Map<EntityType, Log> logs = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, Integer> recordCounts = new EnumMap<>(EntityType.class);
+
+    public DataJournal(File directory, SyncPolicy syncPolicy, long syncIntervalMillis) {
+        this.directory = directory;
+        this.syncPolicy = syncPolicy;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    // Append methods
+    public void appendPut(EntityType type, int id, String record) throws IOException {
+        append(type, PUT + "|" + id + "|" + record);
+    }
+
+    public void appendDelete(EntityType type, int id) throws IOException {
+        append(type, DELETE + "|" + id);
+    }
+
+    private synchronized void append(EntityType type, String body) throws IOException {
+        Log log = openLog(type);
+        log.writer.write(checksum(body));
+        log.writer.write('|');
+        log.writer.write(body);
+        log.writer.write('\n');
+        log.writer.flush();
+        recordCounts.merge(type, 1, Integer::sum);
+
+        long now = System.currentTimeMillis();
+        if (syncPolicy == SyncPolicy.ALWAYS
+                || (syncPolicy == SyncPolicy.INTERVAL && now - log.lastSync >= syncIntervalMillis)) {
+            log.stream.getChannel().force(false);
+            log.lastSync = now;
+        }
+    }
+
+    /**
+     * Forces every open journal to disk regardless of the sync policy.
+     */
+    public synchronized void sync() throws IOException {
+        for (Log log : logs.values()) {
+            log.writer.flush();
+            log.stream.getChannel().force(false);
+            log.lastSync = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized int getRecordCount(EntityType type) {
+        return recordCounts.getOrDefault(type, 0);
+    }
+
+    /**
+     * Feeds every intact record of the type's journal to the visitor, oldest first,
+     * and cuts off a damaged tail so later appends are not hidden behind it.
+     * Returns the number of records replayed.
+     */
+    public int replay(EntityType type, Visitor visitor) throws IOException {
+        return replay(type, true, visitor);
+    }
+
+    // Without repairTail the file is only read, for directories opened read-only
+    public synchronized int replay(EntityType type, boolean repairTail, Visitor visitor) throws IOException {
+        File file = getFile(type);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int replayed = 0;
+        long validLength = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('|');
+                if (separator < 0 || !line.substring(0, separator).equals(checksum(line.substring(separator + 1)))) {
+                    System.err.println("Journal " + file.getName() + " is damaged after record "
+                            + replayed + ", ignoring the rest");
+                    break;
+                }
+                String body = line.substring(separator + 1);
+                int idEnd = body.indexOf('|', 2);
+                int id = Integer.parseInt(idEnd < 0 ? body.substring(2) : body.substring(2, idEnd));
+                if (body.charAt(0) == PUT) {
+                    visitor.put(id, body.substring(idEnd + 1));
+                } else {
+                    visitor.delete(id);
+                }
+                replayed++;
+                validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+
+        if (repairTail && validLength != file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (validLength > raf.length()) {
+                    // last record is intact but lost its line break
+                    raf.seek(raf.length());
+                    raf.write('\n');
+                } else {
+                    raf.setLength(validLength);
+                }
+                raf.getFD().sync();
+            }
+        }
+
+        recordCounts.put(type, replayed);
+        return replayed;
+    }
+
+    /**
+     * Discards the type's journal. Call only after a checkpoint of that type has been written.
+     */
+    public synchronized void truncate(EntityType type) throws IOException {
+        Log log = logs.remove(type);
+        if (log != null) {
+            log.writer.close();
+        }
+        File file = getFile(type);
+        if (file.exists()) {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.getChannel().force(false);
+            }
+        }
+        recordCounts.put(type, 0);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        for (Log log : logs.values()) {
+            log.writer.close();
+        }
+        logs.clear();
+    }
+
+    // Helpers
+    private Log openLog(EntityType type) throws IOException {
+        Log log = logs.get(type);
+        if (log == null) {
+            log = new Log(getFile(type));
+            logs.put(type, log);
+        }
+        return log;
+    }
+
+    private File getFile(EntityType type) {
+        return new File(directory, type.getJournalFileName());
+    }
+
+    private static String checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static class Log {
+        final FileOutputStream stream;
+        final BufferedWriter writer;
+        long lastSync;
+
+        Log(File file) throws IOException {
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            lastSync = System.currentTimeMillis();
+        }
+    }
+}
@@ -7,34 +7,69 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class DataStorage {
     private static final String DATA_DIRECTORY = "data";
-    private static final String STUDENTS_FILE = "students.txt";
-    private static final String ROOMS_FILE = "rooms.txt";
-    private static final String CONTRACTS_FILE = "contracts.txt";
-    private static final String FEES_FILE = "fees.txt";
 
     private static volatile DataStorage instance;
 
-    // Using ConcurrentHashMap for thread-safety
-    private final Map<Integer, Student> students = new ConcurrentHashMap<>();
-    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
-    private final Map<Integer, Contract> contracts = new ConcurrentHashMap<>();
-    private final Map<Integer, Fee> fees = new ConcurrentHashMap<>();
+    // In-memory tables, filled and persisted by the storage engine
+    private final EntityTables tables = new EntityTables();
+    private final IntObjectMap<Student> students = tables.getStudents();
+    private final IntObjectMap<Room> rooms = tables.getRooms();
+    private final IntObjectMap<Contract> contracts = tables.getContracts();
+    private final IntObjectMap<Fee> fees = tables.getFees();
 
     // Atomic counters for IDs
-    private final AtomicInteger studentIdCounter = new AtomicInteger(0);
-    private final AtomicInteger roomIdCounter = new AtomicInteger(0);
-    private final AtomicInteger contractIdCounter = new AtomicInteger(0);
-    private final AtomicInteger feeIdCounter = new AtomicInteger(0);
+    private final AtomicInteger studentIdCounter = tables.getCounter(EntityType.STUDENT);
+    private final AtomicInteger roomIdCounter = tables.getCounter(EntityType.ROOM);
+    private final AtomicInteger contractIdCounter = tables.getCounter(EntityType.CONTRACT);
+    private final AtomicInteger feeIdCounter = tables.getCounter(EntityType.FEE);
+
+    // Natural key indexes, kept in step with the tables
+    private final UniqueIndex<Student> studentCodes = new UniqueIndex<>(Student::getStudentCode);
+    private final UniqueIndex<Room> roomNumbers = new UniqueIndex<>(Room::getRoomNumber);
+    private final UniqueIndex<Contract> contractCodes = new UniqueIndex<>(Contract::getContractCode);
+    private final UniqueIndex<Fee> feeCodes = new UniqueIndex<>(Fee::getFeeCode);
+
+    // Reverse foreign key indexes: parent id -> ids of the rows referring to it
+    private final ForeignKeyIndex<Student> studentsByRoom = new ForeignKeyIndex<>(Student::getRoomId);
+    private final ForeignKeyIndex<Contract> contractsByStudent = new ForeignKeyIndex<>(Contract::getStudentId);
+    private final ForeignKeyIndex<Contract> contractsByRoom = new ForeignKeyIndex<>(Contract::getRoomId);
+    private final ForeignKeyIndex<Fee> feesByStudent = new ForeignKeyIndex<>(Fee::getStudentId);
+
+    // Unpaid fees by due date
+    private final DueDateIndex dueDates = new DueDateIndex();
+
+    // Substring search over the students' text fields, most important first
+    private final TrigramIndex<Student> studentText = new TrigramIndex<>(student -> new String[]{
+            student.getStudentCode(), student.getFullName(), student.getEmail(),
+            student.getHometown(), student.getPhoneNumber()});
+
+    // Word-prefix search over names and hometowns, ignoring Vietnamese diacritics
+    private final TokenPrefixIndex<Student> studentWords = new TokenPrefixIndex<>(student -> new String[]{
+            student.getFullName(), student.getHometown()});
+
+    // Bitmap indexes over the status and type columns
+    private final Map<IndexedColumn, BitmapIndex<Object>> bitmapIndexes = createBitmapIndexes();
+
+    // Told about every insert, update and delete
+    private final List<StorageListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Statistics totals, kept current by the storage events
+    private final StatisticsAggregator statistics = new StatisticsAggregator(tables);
 
     private List<Report> reports;
     private AtomicInteger reportIdCounter;
 
+    // Persistence settings and the engine behind the tables
+    private StorageConfig config;
+    private StorageEngine engine;
+    private PersistenceFlusher flusher;
+
     public static DataStorage getInstance() {
         if (instance == null) {
             synchronized (DataStorage.class) {
@@ -47,14 +82,46 @@ public class DataStorage {
     }
 
     private DataStorage() {
+        listeners.add(statistics);
         initializeDataDirectory();
-        loadAllData();
-        if (getAllStudents().isEmpty()) {
+        config = StorageConfig.load(DATA_DIRECTORY);
+        engine = createEngine(config);
+        boolean loaded = loadAllData();
+        if (getAllStudents().isEmpty() && loaded && engine.isIntact()) {
             initializeSampleData();
         }
         reports = Collections.synchronizedList(new ArrayList<>());
         reportIdCounter = new AtomicInteger(1);
         loadReports();
+        if (config.isAsyncPersistence()) {
+            flusher = new PersistenceFlusher(this::writeBatch,
+                    config.getFlushIntervalMillis(), config.getFlushThreshold(), new PersistenceFlusher.FailureListener() {
+                        @Override
+                        public void failed(Exception e) {
+                            showError("Saving changes in the background", e);
+                        }
+
+                        @Override
+                        public void recovered() {
+                            showMessage("Changes are being saved again", "Saved", JOptionPane.INFORMATION_MESSAGE);
+                        }
+                    });
+        }
+    }
+
+    private StorageEngine createEngine(StorageConfig config) {
+        switch (config.getEngine()) {
+            case "memory":
+                return new InMemoryStorageEngine();
+            case "jdbc":
+                return new JdbcStorageEngine(config.getJdbcUrl(), config.getJdbcUser(), config.getJdbcPassword(),
+                        config.getJdbcPoolSize(), config.getJdbcBatchSize());
+            case "file":
+                break;
+            default:
+                System.err.println("Unknown storage.engine '" + config.getEngine() + "', using file");
+        }
+        return new FileStorageEngine(new File(DATA_DIRECTORY), config, this::reportEngineError);
     }
 
     // Data methods
@@ -74,14 +141,24 @@ public class DataStorage {
         return new ArrayList<>(fees.values());
     }
 
+    // All ids of the type in ascending order, for tables that look rows up as they are painted
+    public int[] getIds(EntityType type) {
+        int[] ids = tables.get(type).keys();
+        Arrays.sort(ids);
+        return ids;
+    }
+
     // Add methods
     public boolean addStudent(Student student) {
         if (student == null) return false;
         try {
             int id = studentIdCounter.incrementAndGet();
             student.setStudentId(id);
+            if (!indexStudent(student)) {
+                return false;
+            }
             students.put(id, student);
-            saveStudents();
+            persist(EntityType.STUDENT, id, StorageEvent.Kind.INSERT);
             return true;
         } catch (Exception e) {
             showError("Adding student", e);
@@ -94,8 +171,11 @@ public class DataStorage {
         try {
             int id = roomIdCounter.incrementAndGet();
             room.setRoomId(id);
+            if (!indexRoom(room)) {
+                return false;
+            }
             rooms.put(id, room);
-            saveRooms();
+            persist(EntityType.ROOM, id, StorageEvent.Kind.INSERT);
             return true;
         } catch (Exception e) {
             showError("Adding room", e);
@@ -108,8 +188,11 @@ public class DataStorage {
         try {
             int id = contractIdCounter.incrementAndGet();
             contract.setContractId(id);
+            if (!indexContract(contract)) {
+                return false;
+            }
             contracts.put(id, contract);
-            saveContracts();
+            persist(EntityType.CONTRACT, id, StorageEvent.Kind.INSERT);
             return true;
         } catch (Exception e) {
             showError("Adding contract", e);
@@ -122,8 +205,11 @@ public class DataStorage {
         try {
             int id = feeIdCounter.incrementAndGet();
             fee.setFeeId(id);
+            if (!indexFee(fee)) {
+                return false;
+            }
             fees.put(id, fee);
-            saveFees();
+            persist(EntityType.FEE, id, StorageEvent.Kind.INSERT);
             return true;
         } catch (Exception e) {
             showError("Adding fee", e);
@@ -138,9 +224,14 @@ public class DataStorage {
         }
         try {
             students.remove(studentId);
-            contracts.values().removeIf(contract -> contract.getStudentId() == studentId);
-            fees.values().removeIf(fee -> fee.getStudentId() == studentId);
-            saveAllData();
+            unindexStudent(studentId);
+            List<Integer> removedContracts = contractsByStudent.get(studentId);
+            removedContracts.forEach(this::removeContract);
+            List<Integer> removedFees = feesByStudent.get(studentId);
+            removedFees.forEach(this::removeFee);
+            persist(EntityType.STUDENT, studentId, StorageEvent.Kind.DELETE);
+            persistAll(EntityType.CONTRACT, removedContracts, StorageEvent.Kind.DELETE);
+            persistAll(EntityType.FEE, removedFees, StorageEvent.Kind.DELETE);
             return true;
         } catch (Exception e) {
             showError("Deleting student", e);
@@ -153,12 +244,22 @@ public class DataStorage {
             return false;
         }
         try {
-            students.values().stream()
-                    .filter(student -> student.getRoomId() == roomId)
-                    .forEach(student -> student.setRoomId(0));
+            List<Integer> releasedStudents = studentsByRoom.get(roomId);
+            for (int studentId : releasedStudents) {
+                Student student = students.get(studentId);
+                if (student != null) {
+                    student.setRoomId(0);
+                    indexStudent(student);
+                }
+            }
             rooms.remove(roomId);
-            contracts.values().removeIf(contract -> contract.getRoomId() == roomId);
-            saveAllData();
+            roomNumbers.remove(roomId);
+            unindexColumns(EntityType.ROOM, roomId);
+            List<Integer> removedContracts = contractsByRoom.get(roomId);
+            removedContracts.forEach(this::removeContract);
+            persistAll(EntityType.STUDENT, releasedStudents, StorageEvent.Kind.UPDATE);
+            persist(EntityType.ROOM, roomId, StorageEvent.Kind.DELETE);
+            persistAll(EntityType.CONTRACT, removedContracts, StorageEvent.Kind.DELETE);
             return true;
         } catch (Exception e) {
             showError("Deleting room", e);
@@ -171,8 +272,8 @@ public class DataStorage {
             return false;
         }
         try {
-            contracts.remove(contractId);
-            saveContracts();
+            removeContract(contractId);
+            persist(EntityType.CONTRACT, contractId, StorageEvent.Kind.DELETE);
             return true;
         } catch (Exception e) {
             showError("Deleting contract", e);
@@ -185,8 +286,8 @@ public class DataStorage {
             return false;
         }
         try {
-            fees.remove(feeId);
-            saveFees();
+            removeFee(feeId);
+            persist(EntityType.FEE, feeId, StorageEvent.Kind.DELETE);
             return true;
         } catch (Exception e) {
             showError("Deleting fee", e);
@@ -194,179 +295,291 @@ public class DataStorage {
         }
     }
 
-    // Load methods
-    private void loadStudents() {
-        List<String> lines = loadFromFile(STUDENTS_FILE);
-        
-        for (String line : lines) {
-            try {
-                String[] parts = line.split(",");
-                if (parts.length == 10) {
-                    Student student = new Student(
-                        parts[1], // studentCode
-                        parts[2], // fullName
-                        LocalDate.parse(parts[3]), // dateOfBirth
-                        parts[4], // gender
-                        parts[5], // phoneNumber
-                        parts[6], // email
-                        parts[7]  // hometown
-                    );
-                    student.setStudentId(Integer.parseInt(parts[0]));
-                    student.setRoomId(Integer.parseInt(parts[8]));
-                    student.setStatus(parts[9]);
-                    students.put(student.getStudentId(), student);
-                }
-            } catch (Exception e) {
-                showError("Loading student data", e);
-            }
+    // Returns false if the engine could not be opened at all
+    private boolean loadAllData() {
+        try {
+            engine.load(tables);
+            rebuildIndexes();
+            return true;
+        } catch (IOException e) {
+            showError("Loading data from the " + engine.getName() + " engine", e);
+            return false;
         }
     }
 
-    private void loadRooms() {
-        List<String> lines = loadFromFile(ROOMS_FILE);
-        rooms.clear();
-        
-        for (String line : lines) {
-            try {
-                String[] parts = line.split(",");
-                if (parts.length >= 7) {
-                    int roomId = Integer.parseInt(parts[0]);
-                    String roomNumber = parts[1];
-                    int bedCount = Integer.parseInt(parts[3]);
-                    BigDecimal roomPrice = new BigDecimal(parts[4]);
-                    int occupancy = parts.length > 5 ? Integer.parseInt(parts[5]) : 0;
-                    String status = parts[parts.length - 1];
-
-                    Room room = new Room(roomNumber, bedCount, roomPrice);
-                    room.setRoomId(roomId);
-                    room.setCurrentOccupancy(occupancy);
-                    room.setStatus(status);
-                    rooms.put(roomId, room);
-                    
-                    if (roomId > roomIdCounter.get()) {
-                        roomIdCounter.set(roomId);
-                    }
-                }
-            } catch (Exception e) {
-                showError("Loading room data", e);
-            }
+    private void rebuildIndexes() {
+        int duplicates = studentCodes.rebuild(students) + roomNumbers.rebuild(rooms)
+                + contractCodes.rebuild(contracts) + feeCodes.rebuild(fees);
+        studentsByRoom.rebuild(students);
+        studentText.rebuild(students);
+        studentWords.rebuild(students);
+        contractsByStudent.rebuild(contracts);
+        contractsByRoom.rebuild(contracts);
+        feesByStudent.rebuild(fees);
+        dueDates.rebuild(fees.values());
+        statistics.rebuild();
+        bitmapIndexes.forEach((column, index) -> index.rebuild(tables.get(column.getType())));
+        if (duplicates > 0) {
+            System.err.println(duplicates + " records share a code with an older record; lookups by code return the older one");
         }
     }
 
-    private void loadContracts() {
-        List<String> lines = loadFromFile(CONTRACTS_FILE);
-        
-        for (String line : lines) {
-            try {
-                String[] parts = line.split(",");
-                if (parts.length == 10) {
-                    Contract contract = new Contract(
-                        parts[1], // contractCode
-                        Integer.parseInt(parts[2]), // studentId
-                        Integer.parseInt(parts[3]), // roomId
-                        LocalDate.parse(parts[4]), // startDate
-                        LocalDate.parse(parts[5]), // endDate
-                        new BigDecimal(parts[6]) // roomPrice
-                    );
-                    contract.setContractId(Integer.parseInt(parts[0]));
-                    contract.setPaymentMethod(parts[7]);
-                    contract.setContractStatus(parts[8]);
-                    contract.setDepositAmount(new BigDecimal(parts[9]));
-                    contracts.put(contract.getContractId(), contract);
-                }
-            } catch (Exception e) {
-                showError("Loading contract data", e);
+    // Text import/export, available whatever storage engine is configured
+    public boolean exportToText(File directory) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            showError("Exporting data", new IOException("Could not create " + directory));
+            return false;
+        }
+        flush();
+        try {
+            FileStorageEngine.exportText(tables, directory);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            showError("Exporting data", e);
+            return false;
+        }
+    }
+
+    // Replaces all students, rooms, contracts and fees with the text files found in the directory
+    public boolean importFromText(File directory) {
+        for (EntityType type : EntityType.values()) {
+            if (!new File(directory, type.getFileName()).exists()) {
+                showError("Importing data", new IOException(type.getFileName() + " not found in " + directory));
+                return false;
             }
         }
+        flush();
+        tables.clear();
+        // a file engine with default settings reads exactly the plain text files
+        try (FileStorageEngine source = new FileStorageEngine(directory,
+                new StorageConfig(new Properties()), this::showError)) {
+            source.load(tables);
+            rebuildIndexes();
+            engine.replaceAll();
+            publishReload();
+            return true;
+        } catch (IOException e) {
+            rebuildIndexes();
+            publishReload();
+            showError("Importing data", e);
+            return false;
+        }
     }
 
-    private void loadFees() {
-        List<String> lines = loadFromFile(FEES_FILE);
-        
-        for (String line : lines) {
+    // Persistence and change events of single mutations
+    private void persist(EntityType type, int id, StorageEvent.Kind kind) {
+        persistAll(type, Collections.singletonList(id), kind);
+    }
+
+    private void persistAll(EntityType type, Collection<Integer> ids, StorageEvent.Kind kind) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        publish(type, ids, kind);
+        if (flusher != null) {
+            flusher.markDirty(type, ids);
+            return;
+        }
+        try {
+            engine.persist(Collections.singletonMap(type, new HashSet<>(ids)));
+        } catch (IOException e) {
+            showError("Saving " + type.getBaseName(), e);
+        }
+    }
+
+    // Change events
+    public void addStorageListener(StorageListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStorageListener(StorageListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void publish(EntityType type, Collection<Integer> ids, StorageEvent.Kind kind) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<StorageEvent> events = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            events.add(new StorageEvent(type, id, kind));
+        }
+        fireEvents(events);
+    }
+
+    private void publishReload() {
+        List<StorageEvent> events = new ArrayList<>();
+        for (EntityType type : EntityType.values()) {
+            events.add(StorageEvent.reload(type));
+        }
+        fireEvents(events);
+    }
+
+    private void fireEvents(List<StorageEvent> events) {
+        List<StorageEvent> unmodifiable = Collections.unmodifiableList(events);
+        for (StorageListener listener : listeners) {
             try {
-                String[] parts = line.split(",");
-                if (parts.length == 10) {
-                    Fee fee = new Fee(
-                        parts[1], // feeCode
-                        Integer.parseInt(parts[2]), // studentId
-                        FeeType.valueOf(parts[3]), // feeType
-                        new BigDecimal(parts[4]), // amount
-                        LocalDate.parse(parts[7]) // dueDate
-                    );
-                    fee.setFeeId(Integer.parseInt(parts[0]));
-                    fee.setPaymentMethod(parts[5]);
-                    fee.setPaymentStatus(parts[6]);
-                    
-                    if (!"null".equals(parts[8])) {
-                        fee.setPaymentDate(LocalDate.parse(parts[8]));
-                    }
-                    
-                    if (!"null".equals(parts[9])) {
-                        fee.setDescription(parts[9].replace(";;", ","));
-                    }
-                    
-                    fees.put(fee.getFeeId(), fee);
-                }
-            } catch (Exception e) {
-                showError("Loading fee data", e);
+                listener.storageChanged(unmodifiable);
+            } catch (RuntimeException e) {
+                System.err.println("Storage listener failed: " + e.getMessage());
             }
         }
     }
 
-    // File operations
-    private void saveToFile(String fileName, List<String> data) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIRECTORY + "/" + fileName))) {
-            for (String line : data) {
-                writer.write(line);
-                writer.newLine();
-            }
+    // Called by the background flusher with everything that changed since its last round
+    private void writeBatch(Map<EntityType, Set<Integer>> batch) throws IOException {
+        engine.persist(batch);
+        // one sync commits the whole batch
+        engine.sync();
+    }
+
+    /**
+     * Writes all pending changes now. Returns false if they could not be saved.
+     * Without background persistence every change is already written and this only syncs the engine.
+     */
+    public boolean flush() {
+        if (flusher != null) {
+            return flusher.flush();
+        }
+        try {
+            engine.sync();
+            return true;
         } catch (IOException e) {
-            showError("Saving file " + fileName, e);
+            showError("Syncing " + engine.getName() + " storage", e);
+            return false;
         }
     }
 
-    private List<String> loadFromFile(String fileName) {
-        List<String> data = new ArrayList<>();
-        File file = new File(DATA_DIRECTORY + "/" + fileName);
-        
-        if (!file.exists()) {
-            return data;
+    /**
+     * Waits until every change made so far has been written by the background flusher.
+     * A timeout of 0 waits indefinitely.
+     */
+    public boolean awaitDurable(long timeoutMillis) {
+        return flusher == null || flusher.awaitDurable(timeoutMillis);
+    }
+
+    // Index maintenance; the index*() methods return false if the entity's code is taken
+    private boolean indexStudent(Student student) {
+        if (!studentCodes.put(student.getStudentId(), student)) {
+            return false;
         }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                data.add(line);
+        studentsByRoom.put(student.getStudentId(), student);
+        studentText.put(student.getStudentId(), student);
+        studentWords.put(student.getStudentId(), student);
+        indexColumns(EntityType.STUDENT, student.getStudentId(), student);
+        return true;
+    }
+
+    private void unindexStudent(int studentId) {
+        studentCodes.remove(studentId);
+        studentsByRoom.remove(studentId);
+        studentText.remove(studentId);
+        studentWords.remove(studentId);
+        unindexColumns(EntityType.STUDENT, studentId);
+    }
+
+    private boolean indexRoom(Room room) {
+        if (!roomNumbers.put(room.getRoomId(), room)) {
+            return false;
+        }
+        indexColumns(EntityType.ROOM, room.getRoomId(), room);
+        return true;
+    }
+
+    private boolean indexContract(Contract contract) {
+        if (!contractCodes.put(contract.getContractId(), contract)) {
+            return false;
+        }
+        contractsByStudent.put(contract.getContractId(), contract);
+        contractsByRoom.put(contract.getContractId(), contract);
+        indexColumns(EntityType.CONTRACT, contract.getContractId(), contract);
+        return true;
+    }
+
+    private void removeContract(int contractId) {
+        contracts.remove(contractId);
+        contractCodes.remove(contractId);
+        contractsByStudent.remove(contractId);
+        contractsByRoom.remove(contractId);
+        unindexColumns(EntityType.CONTRACT, contractId);
+    }
+
+    private boolean indexFee(Fee fee) {
+        if (!feeCodes.put(fee.getFeeId(), fee)) {
+            return false;
+        }
+        feesByStudent.put(fee.getFeeId(), fee);
+        dueDates.put(fee);
+        indexColumns(EntityType.FEE, fee.getFeeId(), fee);
+        return true;
+    }
+
+    private void removeFee(int feeId) {
+        fees.remove(feeId);
+        feeCodes.remove(feeId);
+        feesByStudent.remove(feeId);
+        dueDates.remove(feeId);
+        unindexColumns(EntityType.FEE, feeId);
+    }
+
+    private void indexColumns(EntityType type, int id, Object entity) {
+        for (Map.Entry<IndexedColumn, BitmapIndex<Object>> entry : bitmapIndexes.entrySet()) {
+            if (entry.getKey().getType() == type) {
+                entry.getValue().put(id, entity);
+            }
+        }
+    }
+
+    private void unindexColumns(EntityType type, int id) {
+        for (Map.Entry<IndexedColumn, BitmapIndex<Object>> entry : bitmapIndexes.entrySet()) {
+            if (entry.getKey().getType() == type) {
+                entry.getValue().remove(id);
             }
-        } catch (IOException e) {
-            showError("Reading file " + fileName, e);
         }
-        
-        return data;
     }
 
-    // Update counters
-    private void updateCounters() {
-        studentIdCounter.set(students.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
-        roomIdCounter.set(rooms.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
-        contractIdCounter.set(contracts.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
-        feeIdCounter.set(fees.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
+    private static Map<IndexedColumn, BitmapIndex<Object>> createBitmapIndexes() {
+        Map<IndexedColumn, BitmapIndex<Object>> indexes = new EnumMap<>(IndexedColumn.class);
+        for (IndexedColumn column : IndexedColumn.values()) {
+            indexes.put(column, new BitmapIndex<>(column::valueOf));
+        }
+        return indexes;
     }
 
-    private void loadAllData() {
-        loadStudents();
-        loadRooms();
-        loadContracts();
-        loadFees();
-        updateCounters();
+    // Writes pending changes and closes the storage engine; call before the application exits
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.close();
+        }
+        try {
+            engine.close();
+        } catch (IOException e) {
+            showError("Closing " + engine.getName() + " storage", e);
+        }
     }
 
     // Error handling
     private void showError(String operation, Exception e) {
-        String message = String.format("Error during %s: %s", operation, e.getMessage());
+        showMessage(String.format("Error during %s: %s", operation, e.getMessage()), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void showMessage(String message, String title, int messageType) {
         System.err.println(message);
-        JOptionPane.showMessageDialog(null, message, "Error", JOptionPane.ERROR_MESSAGE);
+        if (SwingUtilities.isEventDispatchThread()) {
+            JOptionPane.showMessageDialog(null, message, title, messageType);
+        } else {
+            SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(null, message, title, messageType));
+        }
+    }
+
+    // A failed background write is reported by the flusher once, not again on every retry
+    private void reportEngineError(String operation, Exception e) {
+        if (flusher != null && flusher.isFlusherThread()) {
+            System.err.println(String.format("Error during %s: %s", operation, e.getMessage()));
+            return;
+        }
+        showError(operation, e);
     }
 
     // Initialize data directory
@@ -388,6 +601,7 @@ public class DataStorage {
         rooms.clear();
         contracts.clear();
         fees.clear();
+        rebuildIndexes();
 
         // Reset counters
         studentIdCounter.set(0);
@@ -459,8 +673,11 @@ public class DataStorage {
         if (student == null || !students.containsKey(student.getStudentId())) {
             return false;
         }
+        if (!indexStudent(student)) {
+            return false;
+        }
         students.put(student.getStudentId(), student);
-        saveStudents();
+        persist(EntityType.STUDENT, student.getStudentId(), StorageEvent.Kind.UPDATE);
         return true;
     }
 
@@ -468,8 +685,11 @@ public class DataStorage {
         if (room == null || !rooms.containsKey(room.getRoomId())) {
             return false;
         }
+        if (!indexRoom(room)) {
+            return false;
+        }
         rooms.put(room.getRoomId(), room);
-        saveRooms();
+        persist(EntityType.ROOM, room.getRoomId(), StorageEvent.Kind.UPDATE);
         return true;
     }
 
@@ -477,8 +697,11 @@ public class DataStorage {
         if (contract == null || !contracts.containsKey(contract.getContractId())) {
             return false;
         }
+        if (!indexContract(contract)) {
+            return false;
+        }
         contracts.put(contract.getContractId(), contract);
-        saveContracts();
+        persist(EntityType.CONTRACT, contract.getContractId(), StorageEvent.Kind.UPDATE);
         return true;
     }
 
@@ -486,8 +709,11 @@ public class DataStorage {
         if (fee == null || !fees.containsKey(fee.getFeeId())) {
             return false;
         }
+        if (!indexFee(fee)) {
+            return false;
+        }
         fees.put(fee.getFeeId(), fee);
-        saveFees();
+        persist(EntityType.FEE, fee.getFeeId(), StorageEvent.Kind.UPDATE);
         return true;
     }
 
@@ -508,6 +734,156 @@ public class DataStorage {
         return fees.get(feeId);
     }
 
+    // Lookups by natural key, null if no record has the code
+    public Student getStudentByCode(String studentCode) {
+        Integer id = studentCodes.get(studentCode);
+        return id != null ? students.get(id) : null;
+    }
+
+    public Room getRoomByNumber(String roomNumber) {
+        Integer id = roomNumbers.get(roomNumber);
+        return id != null ? rooms.get(id) : null;
+    }
+
+    public Contract getContractByCode(String contractCode) {
+        Integer id = contractCodes.get(contractCode);
+        return id != null ? contracts.get(id) : null;
+    }
+
+    public Fee getFeeByCode(String feeCode) {
+        Integer id = feeCodes.get(feeCode);
+        return id != null ? fees.get(id) : null;
+    }
+
+    /**
+     * True if the code is free or already belongs to the given id (0 for a new record).
+     * The panels edit stored entities in place, so they check before changing anything:
+     * an update rejected for a taken code would leave the edits on the entity unindexed.
+     */
+    public boolean isStudentCodeAvailable(String studentCode, int studentId) {
+        return studentCodes.isAvailable(studentCode, studentId);
+    }
+
+    public boolean isRoomNumberAvailable(String roomNumber, int roomId) {
+        return roomNumbers.isAvailable(roomNumber, roomId);
+    }
+
+    public boolean isContractCodeAvailable(String contractCode, int contractId) {
+        return contractCodes.isAvailable(contractCode, contractId);
+    }
+
+    public boolean isFeeCodeAvailable(String feeCode, int feeId) {
+        return feeCodes.isAvailable(feeCode, feeId);
+    }
+
+    // Related rows, found through the reverse indexes
+    public List<Student> getStudentsInRoom(int roomId) {
+        return lookupAll(students, studentsByRoom.get(roomId));
+    }
+
+    public List<Contract> getContractsForStudent(int studentId) {
+        return lookupAll(contracts, contractsByStudent.get(studentId));
+    }
+
+    public List<Contract> getContractsForRoom(int roomId) {
+        return lookupAll(contracts, contractsByRoom.get(roomId));
+    }
+
+    public List<Fee> getFeesForStudent(int studentId) {
+        return lookupAll(fees, feesByStudent.get(studentId));
+    }
+
+    // Unpaid fees due from 'from' to 'to', both inclusive, earliest first
+    public List<Fee> getFeesDueBetween(LocalDate from, LocalDate to) {
+        return lookupAll(fees, dueDates.getDueBetween(from, to));
+    }
+
+    // Unpaid fees whose due date is before the given day, earliest first
+    public List<Fee> getOverdueFees(LocalDate asOf) {
+        return lookupAll(fees, dueDates.getDueBefore(asOf));
+    }
+
+    /**
+     * Students whose code, name, email, hometown or phone contains the text, best matches
+     * first, followed by those whose name or hometown words start with the words of the text
+     * ("ng th" finds "Nguyễn Thị C"). Case and diacritics are ignored.
+     */
+    public List<Student> searchStudents(String text) {
+        List<Integer> ids = studentText.search(text);
+        CompressedBitmap found = new CompressedBitmap();
+        ids.forEach(found::add);
+        studentWords.search(text).andNot(found).forEach(ids::add);
+        return lookupAll(students, ids);
+    }
+
+    // Bitmap filters: ids with the value in the column; combine them with and/or/andNot
+    public CompressedBitmap select(IndexedColumn column, String value) {
+        return bitmapIndexes.get(column).get(value);
+    }
+
+    public int count(IndexedColumn column, String value) {
+        return bitmapIndexes.get(column).count(value);
+    }
+
+    // Distinct values currently present in the column
+    public Set<String> getValues(IndexedColumn column) {
+        return bitmapIndexes.get(column).getValues();
+    }
+
+    public List<Student> getStudents(CompressedBitmap ids) {
+        return lookupAll(students, ids);
+    }
+
+    public List<Room> getRooms(CompressedBitmap ids) {
+        return lookupAll(rooms, ids);
+    }
+
+    public List<Contract> getContracts(CompressedBitmap ids) {
+        return lookupAll(contracts, ids);
+    }
+
+    public List<Fee> getFees(CompressedBitmap ids) {
+        return lookupAll(fees, ids);
+    }
+
+    private static <T> List<T> lookupAll(Map<Integer, T> table, CompressedBitmap ids) {
+        List<T> result = new ArrayList<>(ids.getCardinality());
+        ids.forEach(id -> {
+            T entity = table.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+
+    private static <T> List<T> lookupAll(Map<Integer, T> table, List<Integer> ids) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            T entity = table.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    // Statistics
+    // Current totals; cheap enough to call after every change
+    public Statistics getStatistics() {
+        return statistics.snapshot();
+    }
+
+    // Current totals, with payments, contract starts and due fees limited to the period (null: open)
+    public Statistics getStatistics(LocalDate from, LocalDate to) {
+        return statistics.snapshot(from, to);
+    }
+
+    // Recounts the statistics from the tables; returns the counters that were off, if any
+    public List<String> verifyStatistics() {
+        return statistics.verify();
+    }
+
     // Room management methods
     public List<Room> getAvailableRooms() {
         return rooms.values().stream()
@@ -577,94 +953,16 @@ public class DataStorage {
         return room != null ? room.getAvailableBeds() : 0;
     }
 
-    // Data saving and loading methods
+    // Data saving and loading methods; the engine skips whatever is already up to date
     public void saveAllData() {
-        saveStudents();
-        saveRooms();
-        saveContracts();
-        saveFees();
-    }
-
-    // Save students
-    private void saveStudents() {
-        List<String> data = new ArrayList<>();
-        for (Student student : students.values()) {
-            String line = String.format("%d,%s,%s,%s,%s,%s,%s,%s,%d,%s",
-                student.getStudentId(),
-                student.getStudentCode(),
-                student.getFullName(),
-                student.getDateOfBirth(),
-                student.getGender(),
-                student.getPhoneNumber(),
-                student.getEmail(),
-                student.getHometown(),
-                student.getRoomId(),
-                student.getStatus()
-            );
-            data.add(line);
-        }
-        saveToFile(STUDENTS_FILE, data);
-    }
-
-    // Save rooms
-    private void saveRooms() {
-        List<String> data = new ArrayList<>();
-        for (Room room : rooms.values()) {
-            String line = String.format("%d,%s,%s,%d,%.2f,%d,%s",
-                room.getRoomId(),
-                room.getRoomNumber(),
-                room.getRoomType(),
-                room.getBedCount(),
-                room.getRoomPrice(),
-                room.getCurrentOccupancy(),
-                room.getStatus()
-            );
-            data.add(line);
-        }
-        saveToFile(ROOMS_FILE, data);
-    }
-
-    // Save contracts
-    private void saveContracts() {
-        List<String> data = new ArrayList<>();
-        for (Contract contract : contracts.values()) {
-            String line = String.format("%d,%s,%d,%d,%s,%s,%s,%s,%s,%s",
-                contract.getContractId(),
-                contract.getContractCode(),
-                contract.getStudentId(),
-                contract.getRoomId(),
-                contract.getStartDate(),
-                contract.getEndDate(),
-                contract.getRoomPrice(),
-                contract.getPaymentMethod(),
-                contract.getContractStatus(),
-                contract.getDepositAmount()
-            );
-            data.add(line);
-        }
-        saveToFile(CONTRACTS_FILE, data);
-    }
-
-    // Save fees
-    private void saveFees() {
-        List<String> data = new ArrayList<>();
-        for (Fee fee : fees.values()) {
-            String paymentDateStr = fee.getPaymentDate() != null ? fee.getPaymentDate().toString() : "null";
-            String line = String.format("%d,%s,%d,%s,%s,%s,%s,%s,%s,%s",
-                fee.getFeeId(),
-                fee.getFeeCode(),
-                fee.getStudentId(),
-                fee.getFeeType().name(),
-                fee.getAmount().toString(),
-                fee.getPaymentMethod(),
-                fee.getPaymentStatus(),
-                fee.getDueDate().toString(),
-                paymentDateStr,
-                fee.getDescription() != null ? fee.getDescription().replace(",", ";;") : "null"
-            );
-            data.add(line);
-        }
-        saveToFile(FEES_FILE, data);
+        if (flusher != null) {
+            flusher.flush();
+        }
+        try {
+            engine.checkpoint();
+        } catch (IOException e) {
+            showError("Saving data", e);
+        }
     }
 
     // Exit confirmation
@@ -688,8 +986,8 @@ public class DataStorage {
 
     public boolean terminateContract(int contractId) {
         Contract contract = getContractById(contractId);
-        if (contract != null && "Active".equals(contract.getStatus())) {
-            contract.setStatus("Terminated");
+        if (contract != null && contract.getContractStatusType() == ContractStatus.ACTIVE) {
+            contract.setContractStatusType(ContractStatus.TERMINATED);
             return updateContract(contract);
         }
         return false;
@@ -697,8 +995,8 @@ public class DataStorage {
 
     public boolean recordFeePayment(int feeId) {
         Fee fee = getFeeById(feeId);
-        if (fee != null && "Unpaid".equals(fee.getStatus())) {
-            fee.setPaymentStatus("Paid");
+        if (fee != null && fee.isUnpaid()) {
+            fee.setPaymentStatusType(PaymentStatus.PAID);
             fee.setPaymentDate(LocalDate.now());
             return updateFee(fee);
         }
@@ -0,0 +1,124 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Counts and amounts (in minor units, see Money) bucketed by day and by month. A period is summed from the day buckets
+ * at its ragged ends and the month buckets in between, so a query reads at most a couple of
+ * months of days plus one bucket per whole month. Entries without a date are not counted.
+ */
+public class DateRollup {
+    private final NavigableMap<LocalDate, Total> days = new TreeMap<>();
+    private final NavigableMap<YearMonth, Total> months = new TreeMap<>();
+
+    // Adds (sign 1) or takes back (sign -1) one entry on the given date
+    public void add(LocalDate date, long amount, int sign) {
+        if (date == null) {
+            return;
+        }
+        long delta = sign * amount;
+        add(days, date, delta, sign);
+        add(months, YearMonth.from(date), delta, sign);
+    }
+
+    /**
+     * Sums the entries from one date to another, both inclusive; a null bound leaves that
+     * side of the period open.
+     */
+    public Total sum(LocalDate from, LocalDate to) {
+        Total total = new Total();
+        if (days.isEmpty()) {
+            return total;
+        }
+        from = from != null ? from : days.firstKey();
+        to = to != null ? to : days.lastKey();
+        if (from.isAfter(to)) {
+            return total;
+        }
+        YearMonth firstMonth = YearMonth.from(from);
+        YearMonth lastMonth = YearMonth.from(to);
+        if (firstMonth.equals(lastMonth)) {
+            addAll(total, days.subMap(from, true, to, true));
+        } else {
+            addAll(total, days.subMap(from, true, firstMonth.atEndOfMonth(), true));
+            addAll(total, months.subMap(firstMonth, false, lastMonth, false));
+            addAll(total, days.subMap(lastMonth.atDay(1), true, to, true));
+        }
+        return total;
+    }
+
+    // Earliest date with an entry, or null when empty
+    public LocalDate getFirstDate() {
+        return days.isEmpty() ? null : days.firstKey();
+    }
+
+    // Latest date with an entry, or null when empty
+    public LocalDate getLastDate() {
+        return days.isEmpty() ? null : days.lastKey();
+    }
+
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }
+
+    // Same buckets with the same counts and amounts
+    public boolean matches(DateRollup other) {
+        return days.equals(other.days) && months.equals(other.months);
+    }
+
+    @Override
+    public String toString() {
+        return months.toString();
+    }
+
+    // Helpers
+    private static <K> void add(Map<K, Total> buckets, K key, long amount, int sign) {
+        Total total = buckets.computeIfAbsent(key, k -> new Total());
+        total.count += sign;
+        total.amount += amount;
+        if (total.count == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    private static void addAll(Total total, Map<?, Total> buckets) {
+        for (Total bucket : buckets.values()) {
+            total.count += bucket.count;
+            total.amount += bucket.amount;
+        }
+    }
+
+    /**
+     * Number of entries and their summed amount.
+     */
+    public static final class Total {
+        private int count;
+        private long amount;
+
+        public int getCount() { return count; }
+        public long getAmount() { return amount; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Total)) return false;
+            Total total = (Total) o;
+            return count == total.count && amount == total.amount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(count, amount);
+        }
+
+        @Override
+        public String toString() {
+            return count + " / " + amount;
+        }
+    }
+}
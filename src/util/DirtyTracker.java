@@ -0,0 +1,118 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which records of each entity type changed since its snapshot was last written.
+ * Every change raises the type's version; a snapshot records the version it was taken at,
+ * so a type is clean again only if nothing changed while it was being written.
+ */
+public class DirtyTracker {
+
+    // The changes covered by one snapshot write
+    public static class Changes {
+        private final EntityType type;
+        private final long version;
+        private final Set<Integer> ids;
+        private final boolean all;
+
+        Changes(EntityType type, long version, Set<Integer> ids, boolean all) {
+            this.type = type;
+            this.version = version;
+            this.ids = ids;
+            this.all = all;
+        }
+
+        public EntityType getType() { return type; }
+        public long getVersion() { return version; }
+        public Set<Integer> getIds() { return ids; }
+
+        // True if any record may have changed, not just the listed IDs
+        public boolean isAll() { return all; }
+    }
+
+    private final Map<EntityType, State> states = new EnumMap<>(EntityType.class);
+
+    public DirtyTracker() {
+        for (EntityType type : EntityType.values()) {
+            states.put(type, new State());
+        }
+    }
+
+    public void markChanged(EntityType type, Collection<Integer> ids) {
+        State state = states.get(type);
+        state.ids.addAll(ids);
+        synchronized (state) {
+            state.version++;
+        }
+    }
+
+    // Marks the whole type as changed, e.g. after it was replaced by an import
+    public void markAllChanged(EntityType type) {
+        State state = states.get(type);
+        synchronized (state) {
+            state.all = true;
+            state.version++;
+        }
+    }
+
+    public boolean isDirty(EntityType type) {
+        State state = states.get(type);
+        synchronized (state) {
+            return state.version != state.savedVersion;
+        }
+    }
+
+    public long getVersion(EntityType type) {
+        State state = states.get(type);
+        synchronized (state) {
+            return state.version;
+        }
+    }
+
+    /**
+     * Takes the changed IDs of a type before its snapshot is written. Changes made after
+     * this call stay dirty. Pass the result to markSaved or, if the write failed, to restore.
+     */
+    public Changes takeChanges(EntityType type) {
+        State state = states.get(type);
+        long version;
+        boolean all;
+        synchronized (state) {
+            version = state.version;
+            all = state.all;
+            state.all = false;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Iterator<Integer> it = state.ids.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return new Changes(type, version, ids, all);
+    }
+
+    public void markSaved(Changes changes) {
+        State state = states.get(changes.type);
+        synchronized (state) {
+            state.savedVersion = Math.max(state.savedVersion, changes.version);
+        }
+    }
+
+    public void restore(Changes changes) {
+        State state = states.get(changes.type);
+        state.ids.addAll(changes.ids);
+        if (changes.all) {
+            synchronized (state) {
+                state.all = true;
+            }
+        }
+    }
+
+    private static class State {
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        long version;
+        long savedVersion;
+        boolean all;
+    }
+}
@@ -0,0 +1,78 @@
+package util;
+
+import model.Fee;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Unpaid fees ordered by due date, then fee id, so overdue and upcoming fees are found with a
+ * range query instead of a scan. Each entry is packed into one long: the due date's epoch
+ * day in the high half and the fee id in the low half, which sorts in exactly that order.
+ * Paid, cancelled and undated fees are not indexed.
+ */
+public class DueDateIndex {
+    private final ConcurrentSkipListSet<Long> entries = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Long> entriesByFee = new ConcurrentHashMap<>();
+
+    // Indexes the fee under its current due date, or drops it once it is paid
+    public synchronized void put(Fee fee) {
+        Long entry = fee.isUnpaid() && fee.getDueDate() != null ? pack(fee.getDueDate(), fee.getFeeId()) : null;
+        Long previous = entry != null ? entriesByFee.put(fee.getFeeId(), entry) : entriesByFee.remove(fee.getFeeId());
+        if (previous != null && !previous.equals(entry)) {
+            entries.remove(previous);
+        }
+        if (entry != null) {
+            entries.add(entry);
+        }
+    }
+
+    public synchronized void remove(int feeId) {
+        Long previous = entriesByFee.remove(feeId);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+    }
+
+    // Ids of the unpaid fees due from 'from' to 'to', both inclusive, earliest first
+    public List<Integer> getDueBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        return unpack(entries.subSet(pack(from, 0), true, pack(to, -1), true));
+    }
+
+    // Ids of the unpaid fees due strictly before the date, earliest first
+    public List<Integer> getDueBefore(LocalDate date) {
+        return unpack(entries.headSet(pack(date, 0), false));
+    }
+
+    public synchronized void rebuild(Collection<Fee> fees) {
+        clear();
+        fees.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        entriesByFee.clear();
+    }
+
+    public int size() {
+        return entriesByFee.size();
+    }
+
+    // Fee ids are positive, so -1 (all low bits set) is the largest id of a day
+    private static long pack(LocalDate date, int feeId) {
+        return (date.toEpochDay() << 32) | (feeId & 0xFFFFFFFFL);
+    }
+
+    private static List<Integer> unpack(Set<Long> range) {
+        List<Integer> ids = new ArrayList<>();
+        for (long entry : range) {
+            ids.add((int) entry);
+        }
+        return ids;
+    }
+}
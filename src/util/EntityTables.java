@@ -0,0 +1,88 @@
+package util;
+
+import model.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The in-memory tables of students, rooms, contracts and fees with their ID counters.
+ * DataStorage works on these tables; a StorageEngine fills them at startup and persists from them.
+ */
+public class EntityTables {
+    // Keyed by the primitive ID; reads are lock-free, writes lock per table
+    private final IntObjectMap<Student> students = new IntObjectMap<>();
+    private final IntObjectMap<Room> rooms = new IntObjectMap<>();
+    private final IntObjectMap<Contract> contracts = new IntObjectMap<>();
+    private final IntObjectMap<Fee> fees = new IntObjectMap<>();
+
+    // Atomic counters for IDs
+    private final AtomicInteger studentIdCounter = new AtomicInteger(0);
+    private final AtomicInteger roomIdCounter = new AtomicInteger(0);
+    private final AtomicInteger contractIdCounter = new AtomicInteger(0);
+    private final AtomicInteger feeIdCounter = new AtomicInteger(0);
+
+    public IntObjectMap<Student> getStudents() { return students; }
+    public IntObjectMap<Room> getRooms() { return rooms; }
+    public IntObjectMap<Contract> getContracts() { return contracts; }
+    public IntObjectMap<Fee> getFees() { return fees; }
+
+    public IntObjectMap<?> get(EntityType type) {
+        switch (type) {
+            case STUDENT: return students;
+            case ROOM: return rooms;
+            case CONTRACT: return contracts;
+            default: return fees;
+        }
+    }
+
+    public Object get(EntityType type, int id) {
+        return get(type).get(id);
+    }
+
+    // Stores the entity under its own ID and returns that ID
+    public int put(EntityType type, Object entity) {
+        switch (type) {
+            case STUDENT:
+                Student student = (Student) entity;
+                students.put(student.getStudentId(), student);
+                return student.getStudentId();
+            case ROOM:
+                Room room = (Room) entity;
+                rooms.put(room.getRoomId(), room);
+                return room.getRoomId();
+            case CONTRACT:
+                Contract contract = (Contract) entity;
+                contracts.put(contract.getContractId(), contract);
+                return contract.getContractId();
+            default:
+                Fee fee = (Fee) entity;
+                fees.put(fee.getFeeId(), fee);
+                return fee.getFeeId();
+        }
+    }
+
+    public void remove(EntityType type, int id) {
+        get(type).remove(id);
+    }
+
+    // ID counters
+    public AtomicInteger getCounter(EntityType type) {
+        switch (type) {
+            case STUDENT: return studentIdCounter;
+            case ROOM: return roomIdCounter;
+            case CONTRACT: return contractIdCounter;
+            default: return feeIdCounter;
+        }
+    }
+
+    // Makes sure the next ID handed out is above every loaded one
+    public void raiseCounter(EntityType type, int id) {
+        getCounter(type).accumulateAndGet(id, Math::max);
+    }
+
+    public void clear() {
+        for (EntityType type : EntityType.values()) {
+            get(type).clear();
+            getCounter(type).set(0);
+        }
+    }
+}
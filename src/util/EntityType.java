@@ -0,0 +1,30 @@
+package util;
+
+public enum EntityType {
+    STUDENT("students"),
+    ROOM("rooms"),
+    CONTRACT("contracts"),
+    FEE("fees");
+
+    private final String baseName;
+
+    EntityType(String baseName) {
+        this.baseName = baseName;
+    }
+
+    public String getBaseName() {
+        return baseName;
+    }
+
+    public String getFileName() {
+        return baseName + ".txt";
+    }
+
+    public String getBinaryFileName() {
+        return baseName + ".bin";
+    }
+
+    public String getJournalFileName() {
+        return baseName + ".journal";
+    }
+}
@@ -0,0 +1,422 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The file-based engine: text or binary snapshot files, in one file or in ID-range segments
+ * per entity type, optionally with a mutation journal in front of them.
+ */
+public class FileStorageEngine implements StorageEngine {
+    private final File directory;
+    private final StorageConfig config;
+    private final BiConsumer<String, Exception> errorHandler;
+    private final DataJournal journal;
+    private final boolean journalEnabled;
+    private final boolean binarySnapshots;
+    private final boolean segmentedLayout;
+    private final boolean readOnly;
+    private final DirtyTracker dirtyTracker = new DirtyTracker();
+    private final Object persistenceLock = new Object();
+    private volatile boolean snapshotRejected;
+    private EntityTables tables;
+
+    /**
+     * Problems that do not stop the engine, such as a damaged file or an unreadable record,
+     * are passed to the error handler as (operation, exception).
+     */
+    public FileStorageEngine(File directory, StorageConfig config, BiConsumer<String, Exception> errorHandler) {
+        this(directory, config, errorHandler, false);
+    }
+
+    private FileStorageEngine(File directory, StorageConfig config, BiConsumer<String, Exception> errorHandler,
+                              boolean readOnly) {
+        this.directory = directory;
+        this.readOnly = readOnly;
+        this.config = config;
+        this.errorHandler = errorHandler;
+        this.journalEnabled = config.isJournalEnabled();
+        this.binarySnapshots = config.isBinarySnapshots();
+        this.segmentedLayout = config.isSegmentedLayout();
+        this.journal = new DataJournal(directory, config.getJournalSyncPolicy(), config.getJournalSyncIntervalMillis());
+    }
+
+    /**
+     * Opens the directory for reading only: load converts nothing, leaves the journal as it is
+     * and keeps no copies of damaged files, and every write fails.
+     */
+    public static FileStorageEngine openReadOnly(File directory, StorageConfig config,
+                                                 BiConsumer<String, Exception> errorHandler) {
+        return new FileStorageEngine(directory, config, errorHandler, true);
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    // The four types are loaded concurrently; counters are raised while parsing
+    @Override
+    public void load(EntityTables tables) {
+        this.tables = tables;
+        loadTypes(type -> loadEntities(type, findSnapshotFiles(type)));
+        replayJournal();
+        if (readOnly) {
+            return;
+        }
+        // Data found in another format or layout than configured is converted right away
+        for (EntityType type : EntityType.values()) {
+            if (needsConversion(type) && !snapshotRejected) {
+                dirtyTracker.markAllChanged(type);
+                checkpoint(type);
+                if (!dirtyTracker.isDirty(type)) {
+                    removeOtherLayout(type);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isIntact() {
+        return !snapshotRejected;
+    }
+
+    // Writes the current state of the given records: journal records, or the affected snapshot files
+    @Override
+    public void persist(Map<EntityType, Set<Integer>> batch) throws IOException {
+        if (readOnly) {
+            throw new IOException(directory + " is open read-only");
+        }
+        for (Map.Entry<EntityType, Set<Integer>> entry : batch.entrySet()) {
+            writeChanges(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void replaceAll() {
+        checkWritable();
+        for (EntityType type : EntityType.values()) {
+            dirtyTracker.markAllChanged(type);
+        }
+        checkpoint();
+    }
+
+    @Override
+    public void forEach(EntityType type, Consumer<Object> action) {
+        tables.get(type).values().forEach(action);
+    }
+
+    @Override
+    public Object lookup(EntityType type, int id) {
+        return tables.get(type, id);
+    }
+
+    // Types unchanged since their last snapshot are skipped
+    @Override
+    public void checkpoint() {
+        checkWritable();
+        for (EntityType type : EntityType.values()) {
+            if (dirtyTracker.isDirty(type)) {
+                checkpoint(type);
+            }
+        }
+    }
+
+    // Under the NEVER policy the journal is left to the operating system
+    @Override
+    public void sync() throws IOException {
+        if (journalEnabled && config.getJournalSyncPolicy() != DataJournal.SyncPolicy.NEVER) {
+            journal.sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * Writes the tables as plain text files into the directory, whatever layout and format
+     * the engine itself uses.
+     */
+    public static void exportText(EntityTables tables, File directory) throws IOException {
+        for (EntityType type : EntityType.values()) {
+            writeSnapshot(tables.get(type).values(), type, new File(directory, type.getFileName()), false);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException(directory + " is open read-only");
+        }
+    }
+
+    // Load methods
+    // Runs one loader per entity type, in parallel when there is more than one core
+    private static void loadTypes(Consumer<EntityType> loader) {
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            Arrays.stream(EntityType.values()).parallel().forEach(loader);
+        } else {
+            Arrays.stream(EntityType.values()).forEach(loader);
+        }
+    }
+
+    // Safe to run for several types at once; keeps the type's ID counter at the highest ID seen
+    private void loadEntities(EntityType type, List<File> files) {
+        LongAccumulator maxId = new LongAccumulator(Long::max, 0);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean parallel = parallelism > 1;
+
+        // Segments are read concurrently, and large text files are split into chunks on top of that
+        (parallel ? files.parallelStream() : files.stream()).forEach(file -> {
+            if (file.getName().endsWith(".bin")) {
+                try {
+                    BinarySnapshot.read(file, type, entity -> maxId.accumulate(tables.put(type, entity)), parallel);
+                } catch (SnapshotFile.CorruptSnapshotException e) {
+                    snapshotRejected = true;
+                    quarantine(file);
+                    errorHandler.accept("Reading file " + file.getName(), e);
+                } catch (IOException | RuntimeException e) {
+                    // the rows read so far are kept, the rest would be lost by the next save
+                    snapshotRejected = true;
+                    quarantine(file);
+                    errorHandler.accept("Reading file " + file.getName(), e);
+                }
+                return;
+            }
+            List<SnapshotFile.Chunk> chunks = loadChunks(file, parallelism);
+            AtomicInteger fileFailures = new AtomicInteger();
+            (parallel ? chunks.parallelStream() : chunks.stream()).forEach(chunk -> {
+                RecordCodec.Reader reader = chunk.reader();
+                while (reader.nextRecord()) {
+                    try {
+                        maxId.accumulate(tables.put(type, TextRecordFormat.read(type, reader)));
+                    } catch (Exception e) {
+                        fileFailures.incrementAndGet();
+                        firstFailure.compareAndSet(null, e);
+                    }
+                }
+            });
+            // A dropped record would be erased by the next save, so the file is kept aside
+            if (fileFailures.get() > 0) {
+                failures.addAndGet(fileFailures.get());
+                snapshotRejected = true;
+                quarantine(file);
+            }
+        });
+
+        tables.raiseCounter(type, (int) maxId.get());
+        if (failures.get() > 0) {
+            errorHandler.accept("Loading " + type.getBaseName() + " data", new Exception(failures.get()
+                    + " record(s) could not be read, first: " + firstFailure.get().getMessage()));
+        }
+    }
+
+    private List<SnapshotFile.Chunk> loadChunks(File file, int maxChunks) {
+        String fileName = file.getName();
+        try {
+            return SnapshotFile.readChunks(file, maxChunks);
+        } catch (SnapshotFile.CorruptSnapshotException e) {
+            snapshotRejected = true;
+            quarantine(file);
+            errorHandler.accept("Reading file " + fileName, e);
+        } catch (IOException e) {
+            // an unreadable file would be replaced by an empty one on the next save
+            snapshotRejected = true;
+            quarantine(file);
+            errorHandler.accept("Reading file " + fileName, e);
+        }
+        return new ArrayList<>();
+    }
+
+    // Keeps a copy of a damaged snapshot so the next save cannot destroy it
+    private void quarantine(File file) {
+        if (readOnly) {
+            return;
+        }
+        File copy = new File(file.getPath() + ".corrupt-" + System.currentTimeMillis());
+        try {
+            Files.copy(file.toPath(), copy.toPath());
+            System.err.println("Damaged snapshot preserved as " + copy.getName());
+        } catch (IOException e) {
+            System.err.println("Could not preserve " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // The files holding a type's snapshot, preferring the configured layout and format
+    private List<File> findSnapshotFiles(EntityType type) {
+        SegmentedSnapshot segments = getSegmentedSnapshot(type);
+        if (segmentedLayout && segments.exists()) {
+            return segments.listFiles();
+        }
+        for (File single : Arrays.asList(getSingleFile(type, binarySnapshots), getSingleFile(type, !binarySnapshots))) {
+            if (single.exists()) {
+                return Collections.singletonList(single);
+            }
+        }
+        if (segments.exists()) {
+            return segments.listFiles();
+        }
+        // a missing text file reads as empty
+        return Collections.singletonList(getSingleFile(type, false));
+    }
+
+    private boolean needsConversion(EntityType type) {
+        SegmentedSnapshot segments = getSegmentedSnapshot(type);
+        if (segmentedLayout) {
+            return !segments.exists() || !segments.isCurrentFormat() || !segments.isCurrentSize();
+        }
+        if (binarySnapshots) {
+            return !getSingleFile(type, true).exists();
+        }
+        return !getSingleFile(type, false).exists() && (getSingleFile(type, true).exists() || segments.exists());
+    }
+
+    // After a layout switch the old files would only go stale, so they are removed
+    private void removeOtherLayout(EntityType type) {
+        try {
+            if (segmentedLayout) {
+                Files.deleteIfExists(new File(directory, type.getFileName()).toPath());
+                Files.deleteIfExists(new File(directory, type.getBinaryFileName()).toPath());
+            } else {
+                getSegmentedSnapshot(type).delete();
+                Files.deleteIfExists(getSingleFile(type, !binarySnapshots).toPath());
+            }
+        } catch (IOException e) {
+            errorHandler.accept("Removing old " + type.getBaseName() + " files", e);
+        }
+    }
+
+    private File getSingleFile(EntityType type, boolean binary) {
+        return new File(directory, binary ? type.getBinaryFileName() : type.getFileName());
+    }
+
+    private SegmentedSnapshot getSegmentedSnapshot(EntityType type) {
+        return new SegmentedSnapshot(directory, type, config.getSegmentSize(), binarySnapshots);
+    }
+
+    // Journal replay: applies mutations logged since the last checkpoint
+    private void replayJournal() {
+        for (EntityType type : EntityType.values()) {
+            try {
+                int replayed = journal.replay(type, !readOnly, new DataJournal.Visitor() {
+                    @Override
+                    public void put(int id, String record) {
+                        try {
+                            tables.raiseCounter(type, tables.put(type, TextRecordFormat.parse(type, record)));
+                            dirtyTracker.markChanged(type, Collections.singleton(id));
+                        } catch (Exception e) {
+                            errorHandler.accept("Replaying " + type.getBaseName() + " journal", e);
+                        }
+                    }
+
+                    @Override
+                    public void delete(int id) {
+                        tables.remove(type, id);
+                        dirtyTracker.markChanged(type, Collections.singleton(id));
+                    }
+                });
+                // Fold a leftover journal into the snapshot when journaling has been switched off
+                if (replayed > 0 && !journalEnabled && !readOnly) {
+                    checkpoint(type);
+                }
+            } catch (IOException e) {
+                errorHandler.accept("Reading " + type.getJournalFileName(), e);
+            }
+        }
+    }
+
+    // Persistence
+    private void writeChanges(EntityType type, Collection<Integer> ids) throws IOException {
+        synchronized (persistenceLock) {
+            dirtyTracker.markChanged(type, ids);
+            if (!journalEnabled) {
+                if (!saveEntities(type)) {
+                    throw new IOException("Could not save " + type.getFileName());
+                }
+                return;
+            }
+            for (int id : ids) {
+                Object entity = tables.get(type, id);
+                if (entity != null) {
+                    journal.appendPut(type, id, TextRecordFormat.format(type, entity));
+                } else {
+                    journal.appendDelete(type, id);
+                }
+            }
+            if (journal.getRecordCount(type) >= config.getCheckpointThreshold()) {
+                checkpoint(type);
+            }
+        }
+    }
+
+    // Rewrites the snapshot of one entity type and drops its journal
+    private void checkpoint(EntityType type) {
+        synchronized (persistenceLock) {
+            if (!saveEntities(type)) {
+                return;
+            }
+            try {
+                journal.truncate(type);
+            } catch (IOException e) {
+                errorHandler.accept("Truncating " + type.getJournalFileName(), e);
+            }
+        }
+    }
+
+    // Every snapshot in the data directory is written here, so the type is clean afterwards
+    private boolean saveEntities(EntityType type) {
+        DirtyTracker.Changes changes = dirtyTracker.takeChanges(type);
+        boolean written = segmentedLayout ? writeSegments(type, changes) : writeSingleFile(type);
+        if (!written) {
+            dirtyTracker.restore(changes);
+            return false;
+        }
+        dirtyTracker.markSaved(changes);
+        return true;
+    }
+
+    private boolean writeSingleFile(EntityType type) {
+        File file = new File(directory, binarySnapshots ? type.getBinaryFileName() : type.getFileName());
+        try {
+            writeSnapshot(tables.get(type).values(), type, file, binarySnapshots);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            errorHandler.accept("Saving file " + file.getName(), e);
+            return false;
+        }
+    }
+
+    // Rewrites only the segments holding changed records
+    private boolean writeSegments(EntityType type, DirtyTracker.Changes changes) {
+        try {
+            getSegmentedSnapshot(type).write(tables.get(type), changes.isAll() ? null : changes.getIds());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            errorHandler.accept("Saving " + type.getBaseName() + " segments", e);
+            return false;
+        }
+    }
+
+    private static void writeSnapshot(Collection<?> entities, EntityType type, File file, boolean binary)
+            throws IOException {
+        if (binary) {
+            BinarySnapshot.write(file, type, entities);
+        } else {
+            List<String> data = new ArrayList<>();
+            for (Object entity : entities) {
+                data.add(TextRecordFormat.format(type, entity));
+            }
+            SnapshotFile.write(file, data);
+        }
+    }
+}
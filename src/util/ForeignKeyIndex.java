@@ -0,0 +1,82 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Maps a parent id (room, student) to the ids of the entities referring to it, so cascades
+ * and "fees of this student" queries only touch the related rows. Like UniqueIndex it
+ * remembers the parent each child was indexed under, since entities are edited in place.
+ * A parent id of 0 means "no parent" and is not indexed.
+ */
+public class ForeignKeyIndex<T> {
+    private final ToIntFunction<T> parentFunction;
+    private final Map<Integer, Set<Integer>> childrenByParent = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> parentsByChild = new ConcurrentHashMap<>();
+
+    public ForeignKeyIndex(ToIntFunction<T> parentFunction) {
+        this.parentFunction = parentFunction;
+    }
+
+    // Returns the child ids of the parent in ascending order; the list is a copy
+    public List<Integer> get(int parentId) {
+        Set<Integer> children = childrenByParent.get(parentId);
+        if (children == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> ids = new ArrayList<>(children);
+        Collections.sort(ids);
+        return ids;
+    }
+
+    public int count(int parentId) {
+        Set<Integer> children = childrenByParent.get(parentId);
+        return children != null ? children.size() : 0;
+    }
+
+    // Indexes the child under its current parent, moving it away from the previous one
+    public synchronized void put(int childId, T entity) {
+        int parentId = parentFunction.applyAsInt(entity);
+        Integer previous = parentsByChild.get(childId);
+        if (previous != null && previous == parentId) {
+            return;
+        }
+        if (previous != null) {
+            detach(previous, childId);
+        }
+        if (parentId != 0) {
+            childrenByParent.computeIfAbsent(parentId, id -> ConcurrentHashMap.newKeySet()).add(childId);
+            parentsByChild.put(childId, parentId);
+        } else {
+            parentsByChild.remove(childId);
+        }
+    }
+
+    public synchronized void remove(int childId) {
+        Integer previous = parentsByChild.remove(childId);
+        if (previous != null) {
+            detach(previous, childId);
+        }
+    }
+
+    public synchronized void rebuild(Map<Integer, T> table) {
+        clear();
+        table.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        childrenByParent.clear();
+        parentsByChild.clear();
+    }
+
+    private void detach(int parentId, int childId) {
+        Set<Integer> children = childrenByParent.get(parentId);
+        if (children != null) {
+            children.remove(childId);
+            if (children.isEmpty()) {
+                childrenByParent.remove(parentId);
+            }
+        }
+    }
+}
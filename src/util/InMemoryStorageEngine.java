@@ -0,0 +1,85 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the persisted records in memory only, as their text records, so nothing survives a
+ * restart. Useful for tests and as the baseline when comparing engines: it pays for
+ * serialization but not for any I/O.
+ */
+public class InMemoryStorageEngine implements StorageEngine {
+    private final Map<EntityType, Map<Integer, String>> store = new EnumMap<>(EntityType.class);
+    private EntityTables tables;
+
+    public InMemoryStorageEngine() {
+        for (EntityType type : EntityType.values()) {
+            store.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public void load(EntityTables tables) {
+        this.tables = tables;
+        for (EntityType type : EntityType.values()) {
+            forEach(type, entity -> tables.raiseCounter(type, tables.put(type, entity)));
+        }
+    }
+
+    @Override
+    public void persist(Map<EntityType, Set<Integer>> batch) {
+        for (Map.Entry<EntityType, Set<Integer>> entry : batch.entrySet()) {
+            EntityType type = entry.getKey();
+            Map<Integer, String> records = store.get(type);
+            for (int id : entry.getValue()) {
+                Object entity = tables.get(type, id);
+                if (entity != null) {
+                    records.put(id, TextRecordFormat.format(type, entity));
+                } else {
+                    records.remove(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replaceAll() {
+        Map<EntityType, Set<Integer>> batch = new EnumMap<>(EntityType.class);
+        for (EntityType type : EntityType.values()) {
+            store.get(type).clear();
+            batch.put(type, tables.get(type).keySet());
+        }
+        persist(batch);
+    }
+
+    @Override
+    public void forEach(EntityType type, Consumer<Object> action) {
+        for (String record : store.get(type).values()) {
+            action.accept(TextRecordFormat.parse(type, record));
+        }
+    }
+
+    @Override
+    public Object lookup(EntityType type, int id) {
+        String record = store.get(type).get(id);
+        return record != null ? TextRecordFormat.parse(type, record) : null;
+    }
+
+    @Override
+    public void checkpoint() {
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
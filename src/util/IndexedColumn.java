@@ -0,0 +1,43 @@
+package util;
+
+import model.*;
+
+import java.util.function.Function;
+
+/**
+ * The low-cardinality columns kept in bitmap indexes, with the value each entity is filed
+ * under. Entities are passed as Object, as everywhere the entity type is chosen at runtime.
+ */
+public enum IndexedColumn {
+    STUDENT_STATUS(EntityType.STUDENT, entity -> ((Student) entity).getStatus()),
+    STUDENT_ROOM(EntityType.STUDENT, entity -> ((Student) entity).getRoomId() != 0
+            ? IndexedColumn.ASSIGNED : IndexedColumn.UNASSIGNED),
+    ROOM_STATUS(EntityType.ROOM, entity -> ((Room) entity).getStatus()),
+    ROOM_TYPE(EntityType.ROOM, entity -> ((Room) entity).getRoomType()),
+    CONTRACT_STATUS(EntityType.CONTRACT, entity -> ((Contract) entity).getContractStatus()),
+    FEE_STATUS(EntityType.FEE, entity -> ((Fee) entity).getPaymentStatus()),
+    FEE_TYPE(EntityType.FEE, entity -> {
+        FeeType type = ((Fee) entity).getFeeType();
+        return type != null ? type.name() : null;
+    });
+
+    // Values of STUDENT_ROOM
+    public static final String ASSIGNED = "Assigned";
+    public static final String UNASSIGNED = "Unassigned";
+
+    private final EntityType type;
+    private final Function<Object, String> valueFunction;
+
+    IndexedColumn(EntityType type, Function<Object, String> valueFunction) {
+        this.type = type;
+        this.valueFunction = valueFunction;
+    }
+
+    public EntityType getType() {
+        return type;
+    }
+
+    public String valueOf(Object entity) {
+        return valueFunction.apply(entity);
+    }
+}
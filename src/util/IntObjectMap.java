@@ -0,0 +1,341 @@
+package util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A concurrent map from int keys to objects, open addressing with linear probing over an
+ * int[] of keys and an Object[] of values, so entries cost two array slots instead of a node
+ * and a boxed Integer. Writers take the map's lock; readers never lock. A slot's key is
+ * written once, before its value is published with release semantics, and never changes
+ * afterwards (a removed entry leaves a tombstone that only its own key can revive), so a
+ * reader that sees a value also sees the key it belongs to. Growing or clearing swaps in a
+ * new table; reads and iterators already running keep working on the one they started with.
+ * The Map methods box keys as usual; get(int), put(int, V), keys() and forEachEntry do not.
+ */
+public class IntObjectMap<V> extends AbstractMap<Integer, V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+
+    public interface Visitor<V> {
+        void visit(int key, V value);
+    }
+
+    // Primitive access
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = t.slot(key); ; i = (i + 1) & mask) {
+            Object value = SLOTS.getAcquire(t.values, i);
+            if (value == null) {
+                return null;
+            }
+            if (t.keys[i] == key) {
+                return value != TOMBSTONE ? (V) value : null;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V put(int key, V value) {
+        Objects.requireNonNull(value);
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = t.slot(key);
+        for (Object current; (current = t.values[i]) != null; i = (i + 1) & mask) {
+            if (t.keys[i] == key) {
+                SLOTS.setRelease(t.values, i, value);
+                if (current == TOMBSTONE) {
+                    size++;
+                    return null;
+                }
+                return (V) current;
+            }
+        }
+        if ((t.used + 1) * 4 > t.keys.length * 3) {
+            resize();
+            return put(key, value);
+        }
+        t.keys[i] = key;
+        SLOTS.setRelease(t.values, i, value);
+        t.used++;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(int key) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = t.slot(key); t.values[i] != null; i = (i + 1) & mask) {
+            Object current = t.values[i];
+            if (t.keys[i] == key && current != TOMBSTONE) {
+                SLOTS.setRelease(t.values, i, TOMBSTONE);
+                size--;
+                return (V) current;
+            }
+        }
+        return null;
+    }
+
+    // The keys present, in no particular order
+    public int[] keys() {
+        Table t = table;
+        int[] keys = new int[size];
+        int count = 0;
+        for (int i = 0; i < t.keys.length; i++) {
+            Object value = SLOTS.getAcquire(t.values, i);
+            if (value != null && value != TOMBSTONE) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2 + 1);
+                }
+                keys[count++] = t.keys[i];
+            }
+        }
+        return count == keys.length ? keys : Arrays.copyOf(keys, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(Visitor<? super V> visitor) {
+        Table t = table;
+        for (int i = 0; i < t.keys.length; i++) {
+            Object value = SLOTS.getAcquire(t.values, i);
+            if (value != null && value != TOMBSTONE) {
+                visitor.visit(t.keys[i], (V) value);
+            }
+        }
+    }
+
+    // Map
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put((int) key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove((int) (Integer) key) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+    }
+
+    @Override
+    public synchronized V putIfAbsent(Integer key, V value) {
+        V current = get((int) key);
+        return current != null ? current : put((int) key, value);
+    }
+
+    @Override
+    public synchronized V computeIfAbsent(Integer key, Function<? super Integer, ? extends V> function) {
+        V current = get((int) key);
+        if (current == null) {
+            current = function.apply(key);
+            if (current != null) {
+                put((int) key, current);
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        forEachEntry(action::accept);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<V>() {
+                    @Override
+                    V element(int key, V value) {
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SlotIterator<Integer>() {
+                    @Override
+                    Integer element(int key, V value) {
+                        return key;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Entry<Integer, V>>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new SlotIterator<Entry<Integer, V>>() {
+                    @Override
+                    Entry<Integer, V> element(int key, V value) {
+                        return new SimpleImmutableEntry<>(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Helpers
+    // Rehashes the live entries into a table sized for them, dropping tombstones
+    private void resize() {
+        Table old = table;
+        int capacity = old.keys.length;
+        if ((size + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        Table grown = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            Object value = old.values[i];
+            if (value != null && value != TOMBSTONE) {
+                int slot = grown.slot(old.keys[i]);
+                while (grown.values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.keys[slot] = old.keys[i];
+                grown.values[slot] = value;
+                grown.used++;
+            }
+        }
+        table = grown;
+    }
+
+    private static final class Table {
+        final int[] keys;
+        final Object[] values;
+        final int shift;
+        // slots holding a value or a tombstone; changed only under the map's lock
+        int used;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        // Fibonacci hashing spreads consecutive ids over the table
+        int slot(int key) {
+            return (key * 0x9E3779B9) >>> shift;
+        }
+    }
+
+    // Walks the slots of the table current when the iteration started
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final Table t = table;
+        private int next = -1;
+        private Object nextValue;
+        private int lastKey;
+        private boolean canRemove;
+
+        SlotIterator() {
+            advance();
+        }
+
+        abstract E element(int key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return next < t.keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) nextValue;
+            lastKey = t.keys[next];
+            canRemove = true;
+            advance();
+            return element(lastKey, value);
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            canRemove = false;
+            IntObjectMap.this.remove(lastKey);
+        }
+
+        // Moves to the next live slot and keeps the value seen there
+        private void advance() {
+            while (++next < t.keys.length) {
+                nextValue = SLOTS.getAcquire(t.values, next);
+                if (nextValue != null && nextValue != TOMBSTONE) {
+                    return;
+                }
+            }
+        }
+    }
+}
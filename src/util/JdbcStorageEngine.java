@@ -0,0 +1,388 @@
+package util;
+
+import model.*;
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Stores every entity type in a table of an embedded SQL database, by default an H2 file
+ * database under data/. Uses plain JDBC only, so any driver on the classpath works;
+ * the database URL comes from storage.jdbc.url. Writes go through JDBC batches and are
+ * serialized; reads take their own pooled connection and may run alongside a write.
+ */
+public class JdbcStorageEngine implements StorageEngine {
+    private static final long BORROW_TIMEOUT_MILLIS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolSize;
+    private final int batchSize;
+    private final Object writeLock = new Object();
+    private ConnectionPool pool;
+    private EntityTables tables;
+
+    public JdbcStorageEngine(String url, String user, String password, int poolSize, int batchSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    @Override
+    public void load(EntityTables tables) throws IOException {
+        open(tables);
+        // The pool is closed again on any failure, so a failed load leaves no connections open
+        boolean loaded = false;
+        try {
+            for (EntityType type : EntityType.values()) {
+                forEach(type, entity -> tables.raiseCounter(type, tables.put(type, entity)));
+            }
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                close();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Connects and creates any missing tables without reading a row, binding the engine to the
+     * tables as load does. For filling the database from elsewhere, e.g. with replaceAll.
+     */
+    public void open(EntityTables tables) throws IOException {
+        this.tables = tables;
+        pool = new ConnectionPool(() -> {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            connection.setAutoCommit(false);
+            return connection;
+        }, poolSize, BORROW_TIMEOUT_MILLIS);
+        try {
+            execute(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (EntityType type : EntityType.values()) {
+                        statement.execute("CREATE TABLE IF NOT EXISTS " + table(type) + " (" + columnDefinitions(type) + ")");
+                        for (String index : indexes(type)) {
+                            statement.execute("CREATE INDEX IF NOT EXISTS idx_" + table(type) + "_"
+                                    + index.replace(", ", "_") + " ON " + table(type) + " (" + index + ")");
+                        }
+                    }
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            close();
+            pool = null;
+            throw new IOException("Could not open database " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    // One transaction per batch; a failed batch leaves the database unchanged
+    @Override
+    public void persist(Map<EntityType, Set<Integer>> batch) throws IOException {
+        try {
+            execute(connection -> {
+                for (Map.Entry<EntityType, Set<Integer>> entry : batch.entrySet()) {
+                    deleteRecords(connection, entry.getKey(), entry.getValue());
+                    insertRecords(connection, entry.getKey(), entry.getValue());
+                }
+            });
+        } catch (SQLException e) {
+            throw new IOException("Database write failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void replaceAll() throws IOException {
+        try {
+            execute(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (EntityType type : EntityType.values()) {
+                        statement.executeUpdate("DELETE FROM " + table(type));
+                    }
+                }
+                for (EntityType type : EntityType.values()) {
+                    insertRecords(connection, type, tables.get(type).keySet());
+                }
+            });
+        } catch (SQLException e) {
+            throw new IOException("Database write failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void forEach(EntityType type, Consumer<Object> action) throws IOException {
+        try {
+            query(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rows = statement.executeQuery("SELECT " + columns(type) + " FROM " + table(type))) {
+                    while (rows.next()) {
+                        action.accept(read(type, rows));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            // a row the model rejects, such as an unknown fee type, fails the read like a database error
+            throw new IOException("Reading " + table(type) + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object lookup(EntityType type, int id) throws IOException {
+        try {
+            return query(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT " + columns(type) + " FROM " + table(type) + " WHERE id = ?")) {
+                    statement.setInt(1, id);
+                    try (ResultSet rows = statement.executeQuery()) {
+                        return rows.next() ? read(type, rows) : null;
+                    }
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            throw new IOException("Reading " + table(type) + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Every batch is committed by persist, so there is nothing to compact or force
+    @Override
+    public void checkpoint() {
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // Connection handling
+    private interface Work {
+        void run(Connection connection) throws SQLException;
+    }
+
+    private interface Query<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    // Runs the work in one transaction; writes are serialized so batches cannot interleave
+    private void execute(Work work) throws SQLException {
+        synchronized (writeLock) {
+            Connection connection = pool.borrow();
+            try {
+                work.run(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                rollback(connection);
+                throw e;
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    private <T> T query(Query<T> query) throws SQLException {
+        Connection connection = pool.borrow();
+        try {
+            return query.run(connection);
+        } finally {
+            // ends the read transaction before the connection goes back
+            rollback(connection);
+            pool.release(connection);
+        }
+    }
+
+    // Writing: the records are deleted and the ones still in the tables inserted again, both as batches
+    private void deleteRecords(Connection connection, EntityType type, Collection<Integer> ids) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table(type) + " WHERE id = ?")) {
+            int pending = 0;
+            for (int id : ids) {
+                delete.setInt(1, id);
+                delete.addBatch();
+                if (++pending == batchSize) {
+                    delete.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                delete.executeBatch();
+            }
+        }
+    }
+
+    private void insertRecords(Connection connection, EntityType type, Collection<Integer> ids) throws SQLException {
+        int columnCount = columns(type).split(", ").length;
+        String placeholders = String.join(", ", Collections.nCopies(columnCount, "?"));
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table(type) + " (" + columns(type) + ") VALUES (" + placeholders + ")")) {
+            int pending = 0;
+            for (int id : ids) {
+                Object entity = tables.get(type, id);
+                if (entity == null) {
+                    continue;
+                }
+                Object[] values = values(type, entity);
+                for (int i = 0; i < values.length; i++) {
+                    insert.setObject(i + 1, values[i]);
+                }
+                insert.addBatch();
+                if (++pending == batchSize) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Rollback failed: " + e.getMessage());
+        }
+    }
+
+    // Schema
+    private static String table(EntityType type) {
+        return type.getBaseName();
+    }
+
+    private static String columns(EntityType type) {
+        switch (type) {
+            case STUDENT:
+                return "id, student_code, full_name, date_of_birth, gender, phone_number, email, hometown, room_id, status";
+            case ROOM:
+                return "id, room_number, bed_count, room_price, current_occupancy, status";
+            case CONTRACT:
+                return "id, contract_code, student_id, room_id, start_date, end_date, room_price, payment_method, "
+                        + "contract_status, deposit_amount";
+            default:
+                return "id, fee_code, student_id, fee_type, amount, payment_method, payment_status, due_date, "
+                        + "payment_date, description";
+        }
+    }
+
+    // Columns the panels and reports look records up by
+    private static String[] indexes(EntityType type) {
+        switch (type) {
+            case STUDENT: return new String[] {"student_code", "room_id"};
+            case ROOM: return new String[] {"room_number"};
+            case CONTRACT: return new String[] {"contract_code", "student_id", "room_id"};
+            default: return new String[] {"fee_code", "student_id", "due_date, payment_status"};
+        }
+    }
+
+    private static String columnDefinitions(EntityType type) {
+        switch (type) {
+            case STUDENT:
+                return "id INT PRIMARY KEY, student_code VARCHAR(50), full_name VARCHAR(255), date_of_birth DATE, "
+                        + "gender VARCHAR(20), phone_number VARCHAR(50), email VARCHAR(255), hometown VARCHAR(255), "
+                        + "room_id INT, status VARCHAR(50)";
+            case ROOM:
+                return "id INT PRIMARY KEY, room_number VARCHAR(50), bed_count INT, room_price DECIMAL(19,2), "
+                        + "current_occupancy INT, status VARCHAR(50)";
+            case CONTRACT:
+                return "id INT PRIMARY KEY, contract_code VARCHAR(50), student_id INT, room_id INT, start_date DATE, "
+                        + "end_date DATE, room_price DECIMAL(19,2), payment_method VARCHAR(50), "
+                        + "contract_status VARCHAR(50), deposit_amount DECIMAL(19,2)";
+            default:
+                return "id INT PRIMARY KEY, fee_code VARCHAR(50), student_id INT, fee_type VARCHAR(50), "
+                        + "amount DECIMAL(19,2), payment_method VARCHAR(50), payment_status VARCHAR(50), "
+                        + "due_date DATE, payment_date DATE, description VARCHAR(1000)";
+        }
+    }
+
+    // Column values in the order of columns(type)
+    private static Object[] values(EntityType type, Object entity) {
+        switch (type) {
+            case STUDENT:
+                Student student = (Student) entity;
+                return new Object[] {
+                    student.getStudentId(), student.getStudentCode(), student.getFullName(),
+                    toSqlDate(student.getDateOfBirth()), student.getGender(), student.getPhoneNumber(),
+                    student.getEmail(), student.getHometown(), student.getRoomId(), student.getStatus()
+                };
+            case ROOM:
+                Room room = (Room) entity;
+                return new Object[] {
+                    room.getRoomId(), room.getRoomNumber(), room.getBedCount(), room.getRoomPrice(),
+                    room.getCurrentOccupancy(), room.getStatus()
+                };
+            case CONTRACT:
+                Contract contract = (Contract) entity;
+                return new Object[] {
+                    contract.getContractId(), contract.getContractCode(), contract.getStudentId(),
+                    contract.getRoomId(), toSqlDate(contract.getStartDate()), toSqlDate(contract.getEndDate()),
+                    contract.getRoomPrice(), contract.getPaymentMethod(), contract.getContractStatus(),
+                    contract.getDepositAmount()
+                };
+            default:
+                Fee fee = (Fee) entity;
+                return new Object[] {
+                    fee.getFeeId(), fee.getFeeCode(), fee.getStudentId(), fee.getFeeType().name(),
+                    fee.getAmount(), fee.getPaymentMethod(), fee.getPaymentStatus(),
+                    toSqlDate(fee.getDueDate()), toSqlDate(fee.getPaymentDate()), fee.getDescription()
+                };
+        }
+    }
+
+    private static Object read(EntityType type, ResultSet row) throws SQLException {
+        switch (type) {
+            case STUDENT:
+                Student student = new Student(row.getString(2), row.getString(3), toLocalDate(row.getDate(4)),
+                        row.getString(5), row.getString(6), row.getString(7), row.getString(8));
+                student.setStudentId(row.getInt(1));
+                student.setRoomId(row.getInt(9));
+                student.setStatus(row.getString(10));
+                return student;
+            case ROOM:
+                Room room = new Room(row.getString(2), row.getInt(3), row.getBigDecimal(4));
+                room.setRoomId(row.getInt(1));
+                room.setCurrentOccupancy(row.getInt(5));
+                room.setStatus(row.getString(6));
+                return room;
+            case CONTRACT:
+                Contract contract = new Contract(row.getString(2), row.getInt(3), row.getInt(4),
+                        toLocalDate(row.getDate(5)), toLocalDate(row.getDate(6)), row.getBigDecimal(7));
+                contract.setContractId(row.getInt(1));
+                contract.setPaymentMethod(row.getString(8));
+                contract.setContractStatus(row.getString(9));
+                contract.setDepositAmount(row.getBigDecimal(10));
+                return contract;
+            default:
+                Fee fee = new Fee(row.getString(2), row.getInt(3), FeeType.valueOf(row.getString(4)),
+                        row.getBigDecimal(5), toLocalDate(row.getDate(8)));
+                fee.setFeeId(row.getInt(1));
+                fee.setPaymentMethod(row.getString(6));
+                fee.setPaymentStatus(row.getString(7));
+                fee.setPaymentDate(toLocalDate(row.getDate(9)));
+                fee.setDescription(row.getString(10));
+                return fee;
+        }
+    }
+
+    private static java.sql.Date toSqlDate(LocalDate date) {
+        return date != null ? java.sql.Date.valueOf(date) : null;
+    }
+
+    private static LocalDate toLocalDate(java.sql.Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
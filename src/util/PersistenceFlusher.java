@@ -0,0 +1,248 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Background thread that collects dirty entity IDs and hands them to a writer in batches,
+ * either every flush interval or as soon as the number of dirty records reaches the threshold.
+ * Many changes to the same entity type between two flushes cost a single write.
+ */
+public class PersistenceFlusher {
+
+    public interface Writer {
+        // Persists the current state of the given records; called on the flusher thread
+        void write(Map<EntityType, Set<Integer>> batch) throws Exception;
+    }
+
+    /**
+     * Hears about failed background writes once per outage rather than once per retry;
+     * called on the flusher thread.
+     */
+    public interface FailureListener {
+        // The first write that failed after a successful one
+        void failed(Exception e);
+
+        // The first write that succeeded after failures
+        void recovered();
+    }
+
+    private static final FailureListener PRINT_FAILURES = new FailureListener() {
+        @Override
+        public void failed(Exception e) {
+            System.err.println("Background save failed, retrying: " + e.getMessage());
+        }
+
+        @Override
+        public void recovered() {
+            System.err.println("Background save succeeded again");
+        }
+    };
+
+    private final Writer writer;
+    private final FailureListener failureListener;
+    private final long intervalMillis;
+    private final int threshold;
+    private final Thread thread;
+
+    // Guarded by "this"
+    private Map<EntityType, Set<Integer>> dirty = new EnumMap<>(EntityType.class);
+    private int dirtyCount;
+    private long markedSequence;   // incremented for every markDirty call
+    private long durableSequence;  // highest sequence known to be written
+    private long startedRounds;    // incremented whenever the thread takes a batch
+    private long failedRound;      // latest round whose write failed
+    private boolean failing;       // the latest write failed
+    private boolean flushRequested;
+    private boolean closed;
+
+    public PersistenceFlusher(Writer writer, long intervalMillis, int threshold) {
+        this(writer, intervalMillis, threshold, PRINT_FAILURES);
+    }
+
+    public PersistenceFlusher(Writer writer, long intervalMillis, int threshold, FailureListener failureListener) {
+        this.writer = writer;
+        this.failureListener = failureListener;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.threshold = Math.max(1, threshold);
+        this.thread = new Thread(this::run, "persistence-flusher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public synchronized void markDirty(EntityType type, Collection<Integer> ids) {
+        if (closed) {
+            throw new IllegalStateException("Flusher is closed");
+        }
+        Set<Integer> pending = dirty.computeIfAbsent(type, t -> new HashSet<>());
+        for (int id : ids) {
+            if (pending.add(id)) {
+                dirtyCount++;
+            }
+        }
+        markedSequence++;
+        if (dirtyCount >= threshold) {
+            notifyAll();
+        }
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Writes everything marked so far right away and waits for it. Records still waiting for
+     * the retry of a failed write are waited for too, after the usual pause between retries.
+     * Returns false if that write failed or the thread was interrupted.
+     */
+    public synchronized boolean flush() {
+        flushRequested = true;
+        notifyAll();
+        return waitFor(markedSequence, 0);
+    }
+
+    /**
+     * Waits until everything marked so far has been written by the regular schedule.
+     * Returns false as soon as a write that includes it fails. A timeout of 0 waits indefinitely.
+     */
+    public synchronized boolean awaitDurable(long timeoutMillis) {
+        return waitFor(markedSequence, timeoutMillis);
+    }
+
+    // True on the thread that runs the writer
+    public boolean isFlusherThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Only rounds started from now on carry everything up to sequence, requeued records included
+    private boolean waitFor(long sequence, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long firstRound = startedRounds + 1;
+        try {
+            while (durableSequence < sequence) {
+                if (failedRound >= firstRound || (closed && !thread.isAlive())) {
+                    return false;
+                }
+                if (timeoutMillis > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                } else {
+                    wait();
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<EntityType, Set<Integer>> batch;
+            long sequence;
+            long round;
+            boolean stopping;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + intervalMillis;
+                try {
+                    while (!closed && !flushRequested && dirtyCount < threshold) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                stopping = closed;
+                flushRequested = false;
+                batch = dirty;
+                sequence = markedSequence;
+                round = ++startedRounds;
+                dirty = new EnumMap<>(EntityType.class);
+                dirtyCount = 0;
+            }
+
+            Exception failure = null;
+            if (!batch.isEmpty()) {
+                try {
+                    writer.write(batch);
+                } catch (Exception e) {
+                    failure = e;
+                    requeue(batch);
+                }
+            }
+
+            boolean written = failure == null;
+            boolean changed;
+            synchronized (this) {
+                if (written) {
+                    durableSequence = Math.max(durableSequence, sequence);
+                } else {
+                    failedRound = round;
+                }
+                changed = failing == written;
+                failing = !written;
+                notifyAll();
+            }
+            if (changed) {
+                if (written) {
+                    failureListener.recovered();
+                } else {
+                    failureListener.failed(failure);
+                }
+            }
+            if (stopping) {
+                return;
+            }
+            if (!written && !pauseBeforeRetry()) {
+                return;
+            }
+        }
+    }
+
+    // Waits one interval before retrying a failed write; close cuts the pause short
+    private synchronized boolean pauseBeforeRetry() {
+        long deadline = System.currentTimeMillis() + intervalMillis;
+        try {
+            long remaining;
+            while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    // Keeps failed records dirty so the next round retries them
+    private synchronized void requeue(Map<EntityType, Set<Integer>> batch) {
+        for (Map.Entry<EntityType, Set<Integer>> entry : batch.entrySet()) {
+            Set<Integer> pending = dirty.computeIfAbsent(entry.getKey(), t -> new HashSet<>());
+            for (int id : entry.getValue()) {
+                if (pending.add(id)) {
+                    dirtyCount++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Reads and writes the comma-separated records of the data files in a single pass.
+ * Numbers and dates are parsed straight from the character range of their field, so only
+ * the text fields turn into Strings. A field containing a comma or a quote is written in
+ * double quotes, with quotes doubled inside it.
+ * Line breaks inside a field are written as spaces because every record is one line.
+ */
+public class RecordCodec {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final String NULL = "null";
+
+    /**
+     * Walks the records of a character range. Call nextRecord() before reading the fields
+     * of each record; it also skips whatever is left of the previous one.
+     */
+    public static class Reader {
+        private final char[] buf;
+        private final int limit;
+        private int pos;
+        private int field;          // index of the next field in the current record
+        private boolean inRecord;
+        private boolean fieldsLeft; // false once the end of the line has been consumed
+
+        public Reader(char[] buf, int offset, int length) {
+            this.buf = buf;
+            this.pos = offset;
+            this.limit = offset + length;
+        }
+
+        public Reader(String line) {
+            this(line.toCharArray(), 0, line.length());
+        }
+
+        // Moves to the start of the next non-empty line; false at the end of the input
+        public boolean nextRecord() {
+            if (inRecord) {
+                while (pos < limit && buf[pos] != '\n') {
+                    pos++;
+                }
+            }
+            while (pos < limit && (buf[pos] == '\n' || buf[pos] == '\r')) {
+                pos++;
+            }
+            inRecord = pos < limit;
+            fieldsLeft = inRecord;
+            field = 0;
+            return inRecord;
+        }
+
+        public boolean hasMoreFields() {
+            return fieldsLeft;
+        }
+
+        // Fails if the record has fields that were not read
+        public void endRecord() {
+            if (fieldsLeft) {
+                throw error("more fields than expected");
+            }
+        }
+
+        // Field readers
+        public int readInt() {
+            int start = pos;
+            int end = fieldEnd();
+            int i = start;
+            boolean negative = i < end && buf[i] == '-';
+            if (negative || (i < end && buf[i] == '+')) {
+                i++;
+            }
+            if (i == end) {
+                throw error("expected a number");
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = buf[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw error("expected a number");
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw error("number out of range");
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw error("number out of range");
+            }
+            finishField(end);
+            return (int) value;
+        }
+
+        public BigDecimal readDecimal() {
+            int start = pos;
+            int end = fieldEnd();
+            BigDecimal value = parseDecimal(start, end);
+            finishField(end);
+            return value;
+        }
+
+        public LocalDate readDate() {
+            int start = pos;
+            int end = fieldEnd();
+            LocalDate value = parseDate(start, end);
+            finishField(end);
+            return value;
+        }
+
+        // Returns null for the literal null
+        public LocalDate readNullableDate() {
+            int start = pos;
+            int end = fieldEnd();
+            LocalDate value = isNull(start, end) ? null : parseDate(start, end);
+            finishField(end);
+            return value;
+        }
+
+        public String readString() {
+            if (pos < limit && buf[pos] == QUOTE) {
+                return readQuoted();
+            }
+            int start = pos;
+            int end = fieldEnd();
+            finishField(end);
+            return new String(buf, start, end - start);
+        }
+
+        /**
+         * Returns null for an unquoted null. With legacyCommas set, ";;" in an unquoted field
+         * becomes a comma, which is how older versions stored commas in fee descriptions.
+         */
+        public String readNullableString(boolean legacyCommas) {
+            if (pos < limit && buf[pos] == QUOTE) {
+                return readQuoted();
+            }
+            int start = pos;
+            int end = fieldEnd();
+            finishField(end);
+            if (isNull(start, end)) {
+                return null;
+            }
+            String value = new String(buf, start, end - start);
+            return legacyCommas && value.contains(";;") ? value.replace(";;", ",") : value;
+        }
+
+        public void skipField() {
+            if (pos < limit && buf[pos] == QUOTE) {
+                readQuoted();
+            } else {
+                finishField(fieldEnd());
+            }
+        }
+
+        // Helpers
+        private int fieldEnd() {
+            if (!fieldsLeft) {
+                throw error("missing field");
+            }
+            int end = pos;
+            while (end < limit && buf[end] != SEPARATOR && buf[end] != '\n') {
+                end++;
+            }
+            // tolerate CRLF line endings
+            return end > pos && (end == limit || buf[end] == '\n') && buf[end - 1] == '\r' ? end - 1 : end;
+        }
+
+        // Steps over the separator or line end following a field that ends at end
+        private void finishField(int end) {
+            pos = end;
+            if (pos < limit && buf[pos] == '\r') {
+                pos++;
+            }
+            if (pos < limit && buf[pos] == SEPARATOR) {
+                pos++;
+            } else {
+                fieldsLeft = false;
+            }
+            field++;
+        }
+
+        private String readQuoted() {
+            if (!fieldsLeft) {
+                throw error("missing field");
+            }
+            StringBuilder value = new StringBuilder();
+            int i = pos + 1;
+            while (true) {
+                if (i >= limit || buf[i] == '\n') {
+                    throw error("unterminated quote");
+                }
+                if (buf[i] == QUOTE) {
+                    if (i + 1 < limit && buf[i + 1] == QUOTE) {
+                        value.append(QUOTE);
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+                value.append(buf[i++]);
+            }
+            int end = i + 1;
+            if (end < limit && buf[end] != SEPARATOR && buf[end] != '\n' && buf[end] != '\r') {
+                throw error("text after closing quote");
+            }
+            finishField(end);
+            return value.toString();
+        }
+
+        private boolean isNull(int start, int end) {
+            return end - start == 4 && buf[start] == 'n' && buf[start + 1] == 'u'
+                    && buf[start + 2] == 'l' && buf[start + 3] == 'l';
+        }
+
+        // Plain decimals up to 18 digits are parsed directly; anything else goes to BigDecimal
+        private BigDecimal parseDecimal(int start, int end) {
+            int i = start;
+            boolean negative = i < end && buf[i] == '-';
+            if (negative || (i < end && buf[i] == '+')) {
+                i++;
+            }
+            long unscaled = 0;
+            int digits = 0;
+            int scale = -1;
+            for (; i < end; i++) {
+                char c = buf[i];
+                if (c == '.' && scale < 0) {
+                    scale = 0;
+                } else if (c >= '0' && c <= '9' && digits < 18) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (i == end && digits > 0) {
+                return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+            }
+            try {
+                return new BigDecimal(buf, start, end - start);
+            } catch (NumberFormatException e) {
+                throw error("expected a decimal");
+            }
+        }
+
+        private LocalDate parseDate(int start, int end) {
+            if (end - start == 10 && buf[start + 4] == '-' && buf[start + 7] == '-') {
+                int year = digits(start, start + 4);
+                int month = digits(start + 5, start + 7);
+                int day = digits(start + 8, end);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    try {
+                        return LocalDate.of(year, month, day);
+                    } catch (RuntimeException e) {
+                        throw error("invalid date");
+                    }
+                }
+            }
+            try {
+                return LocalDate.parse(new String(buf, start, end - start));
+            } catch (RuntimeException e) {
+                throw error("expected a date");
+            }
+        }
+
+        // Returns -1 if the range is not all digits
+        private int digits(int start, int end) {
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buf[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Field " + (field + 1) + ": " + message);
+        }
+    }
+
+    /**
+     * Builds one record. Separators are added between fields automatically.
+     */
+    public static class Writer {
+        private final StringBuilder out = new StringBuilder(96);
+
+        public Writer writeInt(int value) {
+            separate().append(value);
+            return this;
+        }
+
+        public Writer writeDecimal(BigDecimal value) {
+            separate().append(value != null ? value.toString() : NULL);
+            return this;
+        }
+
+        // Dates are always written as yyyy-MM-dd, null as the literal null
+        public Writer writeDate(LocalDate value) {
+            separate().append(value != null ? value.toString() : NULL);
+            return this;
+        }
+
+        public Writer writeString(String value) {
+            appendText(separate(), value, false);
+            return this;
+        }
+
+        // Like writeString, but a real "null" string is quoted so it reads back as text
+        public Writer writeNullableString(String value) {
+            if (value == null) {
+                separate().append(NULL);
+            } else {
+                appendText(separate(), value, NULL.equals(value));
+            }
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+
+        private StringBuilder separate() {
+            if (out.length() > 0) {
+                out.append(SEPARATOR);
+            }
+            return out;
+        }
+
+        private static void appendText(StringBuilder out, String value, boolean forceQuotes) {
+            if (value == null) {
+                out.append(NULL);
+                return;
+            }
+            if (!forceQuotes && !needsQuotes(value)) {
+                out.append(value);
+                return;
+            }
+            out.append(QUOTE);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == QUOTE) {
+                    out.append(QUOTE).append(QUOTE);
+                } else if (c == '\n' || c == '\r') {
+                    out.append(' ');
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append(QUOTE);
+        }
+
+        private static boolean needsQuotes(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            // keeps ";;" from being read back as a comma in fee descriptions
+            return value.contains(";;");
+        }
+    }
+}
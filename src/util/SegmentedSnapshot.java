@@ -0,0 +1,234 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Snapshot of one entity type split into files of consecutive ID ranges, e.g.
+ * data/fees/segment-0000.txt for IDs 1-10000 and data/fees/segment-0001.txt for 10001-20000.
+ * A change only rewrites the segments holding the changed records, so the cost of a save
+ * no longer grows with the size of the whole table. The segment size the files were cut
+ * with is kept in a manifest next to them; if the configured size differs, the next write
+ * rewrites every segment rather than mixing id ranges of two sizes.
+ */
+public class SegmentedSnapshot {
+    private static final String PREFIX = "segment-";
+    private static final String TEXT_EXTENSION = ".txt";
+    private static final String BINARY_EXTENSION = ".bin";
+    private static final String MANIFEST = "segments.properties";
+    private static final String SIZE_KEY = "segmentSize";
+
+    private final File directory;
+    private final EntityType type;
+    private final int segmentSize;
+    private final boolean binary;
+
+    public SegmentedSnapshot(File dataDirectory, EntityType type, int segmentSize, boolean binary) {
+        this.directory = new File(dataDirectory, type.getBaseName());
+        this.type = type;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.binary = binary;
+    }
+
+    public boolean exists() {
+        return directory.isDirectory();
+    }
+
+    public int segmentOf(int id) {
+        return Math.max(0, (id - 1) / segmentSize);
+    }
+
+    public File getFile(int segment) {
+        return new File(directory, String.format("%s%04d%s", PREFIX, segment,
+                binary ? BINARY_EXTENSION : TEXT_EXTENSION));
+    }
+
+    /**
+     * Lists the segment files in segment order. Files in the other format are included
+     * so a format switch can still read them; where both exist, the configured format wins.
+     */
+    public List<File> listFiles() {
+        Map<Integer, File> files = new TreeMap<>();
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        for (File file : entries) {
+            int segment = parseSegment(file);
+            if (segment >= 0 && (!files.containsKey(segment) || hasConfiguredFormat(file))) {
+                files.put(segment, file);
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    // True if the segments were cut with the configured size; unknown for older directories
+    public boolean isCurrentSize() {
+        return readStoredSize() == segmentSize;
+    }
+
+    // True if every segment is stored in the configured format
+    public boolean isCurrentFormat() {
+        for (File file : listFiles()) {
+            if (!hasConfiguredFormat(file)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the segments holding the given IDs, or every segment when ids is null or the
+     * files on disk were cut with another segment size. Segments left without records are deleted.
+     */
+    public void write(Map<Integer, ?> table, Set<Integer> ids) throws IOException {
+        Set<Integer> segments = null;
+        if (ids != null && exists() && !isCurrentSize()) {
+            ids = null;
+        }
+        if (ids != null) {
+            segments = new HashSet<>();
+            for (int id : ids) {
+                segments.add(segmentOf(id));
+            }
+            if (segments.isEmpty()) {
+                return;
+            }
+        }
+
+        // Dirty segments are fixed id ranges, so only their ids are looked up
+        Map<Integer, List<Object>> grouped = new TreeMap<>();
+        if (segments == null) {
+            int[] keys = keysOf(table);
+            Arrays.sort(keys);
+            for (int id : keys) {
+                addTo(grouped, segmentOf(id), lookup(table, id));
+            }
+        } else {
+            for (int segment : segments) {
+                long first = (long) segment * segmentSize + 1;
+                for (long id = first; id < first + segmentSize && id <= Integer.MAX_VALUE; id++) {
+                    addTo(grouped, segment, lookup(table, (int) id));
+                }
+            }
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        for (Map.Entry<Integer, List<Object>> segment : grouped.entrySet()) {
+            writeSegment(getFile(segment.getKey()), segment.getValue());
+        }
+
+        // Remove emptied segments and, after a full rewrite, files left in the other format
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return;
+        }
+        for (File file : entries) {
+            int segment = parseSegment(file);
+            if (segment < 0) {
+                continue;
+            }
+            boolean emptied = !grouped.containsKey(segment) && (segments == null || segments.contains(segment));
+            boolean replaced = segments == null && !hasConfiguredFormat(file);
+            if ((emptied || replaced) && !file.delete()) {
+                throw new IOException("Could not delete " + file);
+            }
+        }
+        if (segments == null) {
+            writeStoredSize();
+        }
+    }
+
+    // Deletes every segment file and the directory itself
+    public void delete() throws IOException {
+        File[] entries = directory.listFiles();
+        if (entries != null) {
+            for (File file : entries) {
+                if ((parseSegment(file) >= 0 || file.getName().equals(MANIFEST)) && !file.delete()) {
+                    throw new IOException("Could not delete " + file);
+                }
+            }
+        }
+        if (directory.exists() && !directory.delete()) {
+            throw new IOException("Could not delete " + directory + ", it still holds other files");
+        }
+    }
+
+    // Helpers
+    // Entities come in id order
+    private void writeSegment(File file, List<Object> entities) throws IOException {
+        if (binary) {
+            BinarySnapshot.write(file, type, entities);
+        } else {
+            List<String> lines = new ArrayList<>(entities.size());
+            for (Object entity : entities) {
+                lines.add(TextRecordFormat.format(type, entity));
+            }
+            SnapshotFile.write(file, lines);
+        }
+    }
+
+    private static void addTo(Map<Integer, List<Object>> grouped, int segment, Object entity) {
+        if (entity != null) {
+            grouped.computeIfAbsent(segment, s -> new ArrayList<>()).add(entity);
+        }
+    }
+
+    // IntObjectMap is read without boxing ids or entries
+    private static Object lookup(Map<Integer, ?> table, int id) {
+        return table instanceof IntObjectMap ? ((IntObjectMap<?>) table).get(id) : table.get(id);
+    }
+
+    private static int[] keysOf(Map<Integer, ?> table) {
+        if (table instanceof IntObjectMap) {
+            return ((IntObjectMap<?>) table).keys();
+        }
+        return table.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // The size recorded by the last full write, or -1 if there is no readable manifest
+    private int readStoredSize() {
+        Properties manifest = new Properties();
+        try (Reader reader = Files.newBufferedReader(new File(directory, MANIFEST).toPath(), StandardCharsets.UTF_8)) {
+            manifest.load(reader);
+            return Integer.parseInt(manifest.getProperty(SIZE_KEY, "-1").trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void writeStoredSize() throws IOException {
+        File manifest = new File(directory, MANIFEST);
+        File temp = new File(manifest.getPath() + ".tmp");
+        Files.write(temp.toPath(), (SIZE_KEY + "=" + segmentSize + "\n").getBytes(StandardCharsets.UTF_8));
+        SnapshotFile.moveIntoPlace(temp, manifest);
+    }
+
+    private boolean hasConfiguredFormat(File file) {
+        return file.getName().endsWith(binary ? BINARY_EXTENSION : TEXT_EXTENSION);
+    }
+
+    // Returns -1 for files that are not segments, such as leftover temp files
+    private static int parseSegment(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (!name.startsWith(PREFIX) || dot < 0) {
+            return -1;
+        }
+        String extension = name.substring(dot);
+        if (!extension.equals(TEXT_EXTENSION) && !extension.equals(BINARY_EXTENSION)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe reading and writing of the data/*.txt snapshot files.
+ * A snapshot is written to a temporary file, fsynced and atomically renamed over the old one,
+ * so readers only ever see the previous or the new version. The first line is a header
+ * "#snapshot v1" and the last a footer "#checksum crc32=xxxxxxxx records=n" covering every
+ * byte before it. A file with the header must have the footer, so one that lost its tail is
+ * rejected rather than loaded with records missing. Files with neither (written by older
+ * versions) are accepted as they are.
+ */
+public class SnapshotFile {
+    private static final String HEADER = "#snapshot v1";
+    private static final String HEADER_PREFIX = "#snapshot ";
+    private static final String FOOTER_PREFIX = "#checksum ";
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    public static class CorruptSnapshotException extends IOException {
+        public CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    public static void write(File target, List<String> lines) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream out = new FileOutputStream(temp);
+             BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024)) {
+            byte[] header = (HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+            crc.update(header);
+            buffered.write(header);
+            for (String line : lines) {
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                crc.update(bytes);
+                buffered.write(bytes);
+            }
+            buffered.write(footer(crc.getValue(), lines.size()).getBytes(StandardCharsets.UTF_8));
+            buffered.flush();
+            out.getChannel().force(true);
+        }
+        moveIntoPlace(temp, target);
+    }
+
+    /**
+     * Reads all records of a snapshot, checking the footer before anything is parsed.
+     * A missing file yields an empty list.
+     */
+    public static List<String> read(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Chunk chunk : readChunks(file, 1)) {
+            chunk.forEachLine(lines::add);
+        }
+        return lines;
+    }
+
+    /**
+     * Reads and verifies a snapshot and splits its records into at most maxChunks
+     * pieces of roughly equal size, cut on line boundaries so they can be parsed in parallel.
+     */
+    public static List<Chunk> readChunks(File file, int maxChunks) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        if (!file.exists()) {
+            return chunks;
+        }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        int bodyStart = findBodyStart(file, data);
+        int footerStart = findFooter(data);
+        if (bodyStart > 0 && footerStart < bodyStart) {
+            throw new CorruptSnapshotException(file.getName() + " is truncated: its checksum footer is missing");
+        }
+        int bodyEnd = footerStart >= 0 ? footerStart : data.length;
+
+        // Nothing has been parsed yet, so a damaged file is rejected as a whole
+        if (footerStart >= 0) {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, bodyEnd);
+            int records = 0;
+            for (int i = bodyStart; i < bodyEnd; i++) {
+                if (data[i] == '\n') {
+                    records++;
+                }
+            }
+            String footer = new String(data, footerStart, data.length - footerStart, StandardCharsets.UTF_8).trim();
+            if (!footer.equals(footer(crc.getValue(), records).trim())) {
+                throw new CorruptSnapshotException(file.getName() + " failed its checksum (" + footer + ")");
+            }
+        }
+
+        int bodySize = bodyEnd - bodyStart;
+        int pieces = Math.max(1, Math.min(maxChunks, bodySize / MIN_CHUNK_SIZE));
+        int start = bodyStart;
+        for (int piece = 1; piece <= pieces && start < bodyEnd; piece++) {
+            int end = piece == pieces ? bodyEnd
+                    : Math.max(start + 1, bodyStart + (int) ((long) bodySize * piece / pieces));
+            while (end < bodyEnd && data[end - 1] != '\n') {
+                end++;
+            }
+            chunks.add(new Chunk(data, start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // A run of whole lines inside the file contents
+    public static class Chunk {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+
+        Chunk(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        public void forEachLine(Consumer<String> action) {
+            int lineStart = start;
+            for (int i = start; i < end; i++) {
+                if (data[i] == '\n') {
+                    action.accept(decode(lineStart, i));
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < end) {
+                action.accept(decode(lineStart, end));
+            }
+        }
+
+        // Decodes the whole chunk once so its records can be parsed in place
+        public RecordCodec.Reader reader() {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(data, start, end - start));
+            return new RecordCodec.Reader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        }
+
+        private String decode(int from, int to) {
+            if (to > from && data[to - 1] == '\r') {
+                to--;
+            }
+            return new String(data, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Helpers
+    private static String footer(long crc, int records) {
+        return String.format("%scrc32=%08x records=%d\n", FOOTER_PREFIX, crc, records);
+    }
+
+    /**
+     * Returns the offset just past the header line, or 0 for a legacy file without one.
+     * A header naming another version is rejected rather than read as records.
+     */
+    private static int findBodyStart(File file, byte[] data) throws CorruptSnapshotException {
+        if (!startsWith(data, 0, HEADER_PREFIX)) {
+            return 0;
+        }
+        int end = 0;
+        while (end < data.length && data[end] != '\n') {
+            end++;
+        }
+        String header = new String(data, 0, end, StandardCharsets.UTF_8).trim();
+        if (!header.equals(HEADER)) {
+            throw new CorruptSnapshotException(file.getName() + " has an unsupported header (" + header + ")");
+        }
+        return Math.min(end + 1, data.length);
+    }
+
+    // Returns the offset of the footer line, or -1 if the file has none
+    private static int findFooter(byte[] data) {
+        int end = data.length;
+        while (end > 0 && (data[end - 1] == '\n' || data[end - 1] == '\r')) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && data[start - 1] != '\n') {
+            start--;
+        }
+        return startsWith(data, start, FOOTER_PREFIX) ? start : -1;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.US_ASCII);
+        if (data.length - offset < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void moveIntoPlace(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Make the rename itself durable; not supported on every platform
+        try (FileChannel directory = FileChannel.open(target.getAbsoluteFile().getParentFile().toPath(),
+                StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // ignored: the data itself is already on disk
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package util;
+
+import java.io.File;
+
+/**
+ * Copies the students, rooms, contracts and fees of a data directory into the SQL database,
+ * replacing whatever the database held. Reads the directory with its own storage.properties,
+ * so any file layout and format works, including a pending journal; the directory is only read,
+ * never converted or checkpointed.
+ * Run with: java -cp ... util.SqlMigration [dataDirectory] [jdbcUrl]
+ */
+public class SqlMigration {
+
+    public static void main(String[] args) throws Exception {
+        String directory = args.length > 0 ? args[0] : "data";
+        StorageConfig config = StorageConfig.load(directory);
+        String url = args.length > 1 ? args[1] : config.getJdbcUrl();
+
+        long start = System.nanoTime();
+        EntityTables tables = new EntityTables();
+        try (JdbcStorageEngine target = new JdbcStorageEngine(url, config.getJdbcUser(), config.getJdbcPassword(),
+                     config.getJdbcPoolSize(), config.getJdbcBatchSize());
+             FileStorageEngine source = FileStorageEngine.openReadOnly(new File(directory), config,
+                     (operation, e) -> System.err.println(operation + ": " + e.getMessage()))) {
+            source.load(tables);
+            if (!source.isIntact()) {
+                System.err.println("Some files in " + directory + " are damaged, nothing was migrated");
+                System.exit(1);
+            }
+            // the target's old rows are never read, replaceAll drops them
+            target.open(tables);
+            target.replaceAll();
+        }
+
+        System.out.printf("Migrated %d students, %d rooms, %d contracts and %d fees to %s in %.1f s%n",
+                tables.getStudents().size(), tables.getRooms().size(), tables.getContracts().size(),
+                tables.getFees().size(), url, (System.nanoTime() - start) / 1e9);
+    }
+}
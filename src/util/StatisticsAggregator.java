@@ -0,0 +1,399 @@
+package util;
+
+import model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Running totals behind the statistics tab: students by status, rooms and beds by room type,
+ * and fee amounts by fee type, split into paid and pending. Storage events move a record's
+ * contribution from what it was counted as to what it is now, so a snapshot costs as much as
+ * the number of statuses and types, not the number of records. Payments, fee due dates and
+ * contract starts are also rolled up by day and month, so a period is answered from a handful
+ * of buckets. verify() recounts everything from the tables and reports where the running
+ * totals went wrong.
+ */
+public class StatisticsAggregator implements StorageListener {
+    private final EntityTables tables;
+
+    // What each record is currently counted as; entities are edited in place
+    private final Map<Integer, String> studentStatuses = new HashMap<>();
+    private final Map<Integer, RoomFacts> roomFacts = new HashMap<>();
+    private final Map<Integer, FeeFacts> feeFacts = new HashMap<>();
+    private final Map<Integer, ContractFacts> contractFacts = new HashMap<>();
+    private final Totals totals = new Totals();
+
+    public StatisticsAggregator(EntityTables tables) {
+        this.tables = tables;
+    }
+
+    @Override
+    public synchronized void storageChanged(List<StorageEvent> events) {
+        for (StorageEvent event : events) {
+            if (event.getKind() == StorageEvent.Kind.RELOAD) {
+                rebuild(event.getType());
+            } else {
+                recount(event.getType(), event.getId());
+            }
+        }
+    }
+
+    // Recounts every record from the tables
+    public synchronized void rebuild() {
+        for (EntityType type : EntityType.values()) {
+            rebuild(type);
+        }
+    }
+
+    public synchronized Statistics snapshot() {
+        return snapshot(null, null);
+    }
+
+    /**
+     * Current totals, plus the payments, contract starts and due fees between the two dates
+     * (inclusive). A null bound leaves that side open; the period then starts or ends at the
+     * earliest or latest date on record.
+     */
+    public synchronized Statistics snapshot(LocalDate from, LocalDate to) {
+        Statistics statistics = new Statistics();
+        statistics.setTotalStudents(studentStatuses.size());
+        statistics.getStudentsByStatus().putAll(totals.studentsByStatus);
+
+        statistics.setTotalRooms(roomFacts.size());
+        statistics.setOccupiedRooms(sum(totals.roomsInUseByType));
+        statistics.calculateOccupancyRate();
+        statistics.setTotalBeds(sum(totals.bedsByType));
+        statistics.setOccupiedBeds(sum(totals.occupiedBedsByType));
+        statistics.getRoomsByType().putAll(totals.roomsByType);
+        statistics.getRoomsInUseByType().putAll(totals.roomsInUseByType);
+        statistics.getBedsByType().putAll(totals.bedsByType);
+        statistics.getOccupiedBedsByType().putAll(totals.occupiedBedsByType);
+
+        statistics.getFeeCountByType().putAll(totals.feeCountByType);
+        for (FeeType type : totals.feeCountByType.keySet()) {
+            statistics.getTotalByFeeType().put(type, money(totals.totalByFeeType[type.ordinal()]));
+            statistics.getPaidByFeeType().put(type, money(totals.paidByFeeType[type.ordinal()]));
+            statistics.getPendingByFeeType().put(type, money(totals.pendingByFeeType[type.ordinal()]));
+        }
+        statistics.addFinancialData("Total Revenue", statistics.getTotalRevenue().doubleValue());
+        statistics.addFinancialData("Pending Payments", statistics.getTotalPending().doubleValue());
+
+        DateRollup.Total payments = totals.payments.sum(from, to);
+        statistics.setPeriodRevenue(money(payments.getAmount()));
+        statistics.setPeriodPayments(payments.getCount());
+        statistics.setPeriodContractsStarted(totals.contractStarts.sum(from, to).getCount());
+        totals.dueByFeeType.forEach((type, rollup) -> {
+            DateRollup.Total due = rollup.sum(from, to);
+            if (due.getCount() > 0) {
+                DateRollup paid = totals.paidDueByFeeType.get(type);
+                statistics.getPeriodDueByFeeType().put(type, money(due.getAmount()));
+                statistics.getPeriodPaidDueByFeeType().put(type, money(paid != null ? paid.sum(from, to).getAmount() : 0));
+            }
+        });
+        statistics.addFinancialData("Period Revenue", statistics.getPeriodRevenue().doubleValue());
+
+        LocalDate start = from != null ? from : totals.firstDate();
+        LocalDate end = to != null ? to : totals.lastDate();
+        statistics.setPeriodStart(start != null ? start.atStartOfDay() : null);
+        statistics.setPeriodEnd(end != null ? end.atTime(LocalTime.MAX) : null);
+        return statistics;
+    }
+
+    /**
+     * Recounts from the tables and compares with the running totals. Returns one line per
+     * counter that differs; an empty list means the totals are consistent.
+     */
+    public synchronized List<String> verify() {
+        StatisticsAggregator fresh = new StatisticsAggregator(tables);
+        fresh.rebuild();
+        List<String> differences = new ArrayList<>();
+        if (studentStatuses.size() != fresh.studentStatuses.size()) {
+            differences.add("students: " + studentStatuses.size() + " counted, " + fresh.studentStatuses.size() + " stored");
+        }
+        if (roomFacts.size() != fresh.roomFacts.size()) {
+            differences.add("rooms: " + roomFacts.size() + " counted, " + fresh.roomFacts.size() + " stored");
+        }
+        if (feeFacts.size() != fresh.feeFacts.size()) {
+            differences.add("fees: " + feeFacts.size() + " counted, " + fresh.feeFacts.size() + " stored");
+        }
+        if (contractFacts.size() != fresh.contractFacts.size()) {
+            differences.add("contracts: " + contractFacts.size() + " counted, " + fresh.contractFacts.size() + " stored");
+        }
+        totals.compare(fresh.totals, differences);
+        return differences;
+    }
+
+    // Helpers
+    private void rebuild(EntityType type) {
+        switch (type) {
+            case STUDENT:
+                new ArrayList<>(studentStatuses.keySet()).forEach(id -> recountStudent(id, null));
+                tables.getStudents().forEach(this::recountStudent);
+                break;
+            case ROOM:
+                new ArrayList<>(roomFacts.keySet()).forEach(id -> recountRoom(id, null));
+                tables.getRooms().forEach(this::recountRoom);
+                break;
+            case FEE:
+                new ArrayList<>(feeFacts.keySet()).forEach(id -> recountFee(id, null));
+                tables.getFees().forEach(this::recountFee);
+                break;
+            default:
+                new ArrayList<>(contractFacts.keySet()).forEach(id -> recountContract(id, null));
+                tables.getContracts().forEach(this::recountContract);
+        }
+    }
+
+    private void recount(EntityType type, int id) {
+        switch (type) {
+            case STUDENT:
+                recountStudent(id, tables.getStudents().get(id));
+                break;
+            case ROOM:
+                recountRoom(id, tables.getRooms().get(id));
+                break;
+            case FEE:
+                recountFee(id, tables.getFees().get(id));
+                break;
+            default:
+                recountContract(id, tables.getContracts().get(id));
+        }
+    }
+
+    // Each recount takes back what the record was counted as and counts what it is now (null: deleted)
+    private void recountStudent(int id, Student student) {
+        String previous = student != null
+                ? studentStatuses.put(id, statusOf(student.getStatus()))
+                : studentStatuses.remove(id);
+        if (previous != null) {
+            Totals.add(totals.studentsByStatus, previous, -1);
+        }
+        if (student != null) {
+            Totals.add(totals.studentsByStatus, statusOf(student.getStatus()), 1);
+        }
+    }
+
+    private void recountRoom(int id, Room room) {
+        RoomFacts current = room != null ? new RoomFacts(room) : null;
+        RoomFacts previous = current != null ? roomFacts.put(id, current) : roomFacts.remove(id);
+        if (previous != null) {
+            totals.addRoom(previous, -1);
+        }
+        if (current != null) {
+            totals.addRoom(current, 1);
+        }
+    }
+
+    private void recountFee(int id, Fee fee) {
+        FeeFacts current = fee != null && fee.getFeeType() != null ? new FeeFacts(fee) : null;
+        FeeFacts previous = current != null ? feeFacts.put(id, current) : feeFacts.remove(id);
+        if (previous != null) {
+            totals.addFee(previous, -1);
+        }
+        if (current != null) {
+            totals.addFee(current, 1);
+        }
+    }
+
+    private void recountContract(int id, Contract contract) {
+        ContractFacts current = contract != null ? new ContractFacts(contract) : null;
+        ContractFacts previous = current != null ? contractFacts.put(id, current) : contractFacts.remove(id);
+        if (previous != null) {
+            totals.contractStarts.add(previous.startDate, previous.roomPrice, -1);
+        }
+        if (current != null) {
+            totals.contractStarts.add(current.startDate, current.roomPrice, 1);
+        }
+    }
+
+    private static String statusOf(String status) {
+        return status != null ? status : "UNKNOWN";
+    }
+
+    // Minor units back to an amount, once per figure shown
+    private static BigDecimal money(long minorUnits) {
+        return Money.ofMinor(minorUnits, Money.Currency.getDefault()).toBigDecimal();
+    }
+
+    private static int sum(Map<String, Integer> counts) {
+        int sum = 0;
+        for (int count : counts.values()) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static final class RoomFacts {
+        final String type;
+        final int beds;
+        final int occupiedBeds;
+        final boolean inUse;
+
+        RoomFacts(Room room) {
+            type = room.getRoomType();
+            beds = room.getBedCount();
+            occupiedBeds = room.getCurrentOccupancy();
+            inUse = "OCCUPIED".equals(room.getStatus()) || "FULL".equals(room.getStatus());
+        }
+    }
+
+    private static final class FeeFacts {
+        final FeeType type;
+        final long amount;
+        final boolean paid;
+        final boolean pending;
+        final LocalDate dueDate;
+        final LocalDate paymentDate;
+
+        FeeFacts(Fee fee) {
+            type = fee.getFeeType();
+            amount = fee.getAmountMinor();
+            paid = fee.getPaymentStatusType() == PaymentStatus.PAID;
+            pending = fee.isUnpaid();
+            dueDate = fee.getDueDate();
+            paymentDate = fee.getPaymentDate();
+        }
+    }
+
+    private static final class ContractFacts {
+        final LocalDate startDate;
+        final long roomPrice;
+
+        ContractFacts(Contract contract) {
+            startDate = contract.getStartDate();
+            roomPrice = contract.getRoomPriceMinor();
+        }
+    }
+
+    // The counters themselves; keys whose count drops to zero are removed
+    private static final class Totals {
+        final Map<String, Integer> studentsByStatus = new TreeMap<>();
+        final Map<String, Integer> roomsByType = new TreeMap<>();
+        final Map<String, Integer> roomsInUseByType = new TreeMap<>();
+        final Map<String, Integer> bedsByType = new TreeMap<>();
+        final Map<String, Integer> occupiedBedsByType = new TreeMap<>();
+        final Map<FeeType, Integer> feeCountByType = new EnumMap<>(FeeType.class);
+        // Amounts in minor units, by fee type ordinal
+        final long[] totalByFeeType = new long[FeeType.values().length];
+        final long[] paidByFeeType = new long[FeeType.values().length];
+        final long[] pendingByFeeType = new long[FeeType.values().length];
+
+        // Paid fees by payment date, fees by due date (all and the paid ones), contracts by start date
+        final DateRollup payments = new DateRollup();
+        final Map<FeeType, DateRollup> dueByFeeType = new EnumMap<>(FeeType.class);
+        final Map<FeeType, DateRollup> paidDueByFeeType = new EnumMap<>(FeeType.class);
+        final DateRollup contractStarts = new DateRollup();
+
+        void addRoom(RoomFacts room, int sign) {
+            add(roomsByType, room.type, sign);
+            add(bedsByType, room.type, sign * room.beds);
+            add(occupiedBedsByType, room.type, sign * room.occupiedBeds);
+            if (room.inUse) {
+                add(roomsInUseByType, room.type, sign);
+            }
+        }
+
+        void addFee(FeeFacts fee, int sign) {
+            long amount = sign * fee.amount;
+            int type = fee.type.ordinal();
+            add(feeCountByType, fee.type, sign);
+            totalByFeeType[type] += amount;
+            if (fee.paid) {
+                paidByFeeType[type] += amount;
+            }
+            if (fee.pending) {
+                pendingByFeeType[type] += amount;
+            }
+            dueByFeeType.computeIfAbsent(fee.type, t -> new DateRollup()).add(fee.dueDate, fee.amount, sign);
+            if (fee.paid) {
+                payments.add(fee.paymentDate, fee.amount, sign);
+                paidDueByFeeType.computeIfAbsent(fee.type, t -> new DateRollup()).add(fee.dueDate, fee.amount, sign);
+            }
+        }
+
+        LocalDate firstDate() {
+            LocalDate first = null;
+            for (DateRollup rollup : rollups()) {
+                LocalDate date = rollup.getFirstDate();
+                first = first == null || (date != null && date.isBefore(first)) ? date : first;
+            }
+            return first;
+        }
+
+        LocalDate lastDate() {
+            LocalDate last = null;
+            for (DateRollup rollup : rollups()) {
+                LocalDate date = rollup.getLastDate();
+                last = last == null || (date != null && date.isAfter(last)) ? date : last;
+            }
+            return last;
+        }
+
+        private List<DateRollup> rollups() {
+            List<DateRollup> rollups = new ArrayList<>(dueByFeeType.values());
+            rollups.add(payments);
+            rollups.add(contractStarts);
+            return rollups;
+        }
+
+        static <K> int add(Map<K, Integer> counts, K key, int delta) {
+            int count = counts.getOrDefault(key, 0) + delta;
+            if (count == 0) {
+                counts.remove(key);
+            } else {
+                counts.put(key, count);
+            }
+            return count;
+        }
+
+        void compare(Totals expected, List<String> differences) {
+            compareCounts("students by status", studentsByStatus, expected.studentsByStatus, differences);
+            compareCounts("rooms by type", roomsByType, expected.roomsByType, differences);
+            compareCounts("rooms in use by type", roomsInUseByType, expected.roomsInUseByType, differences);
+            compareCounts("beds by type", bedsByType, expected.bedsByType, differences);
+            compareCounts("occupied beds by type", occupiedBedsByType, expected.occupiedBedsByType, differences);
+            compareCounts("fees by type", feeCountByType, expected.feeCountByType, differences);
+            compareAmounts("total by fee type", totalByFeeType, expected.totalByFeeType, differences);
+            compareAmounts("paid by fee type", paidByFeeType, expected.paidByFeeType, differences);
+            compareAmounts("pending by fee type", pendingByFeeType, expected.pendingByFeeType, differences);
+            compareRollups("payments by date", payments, expected.payments, differences);
+            compareRollups("contract starts by date", contractStarts, expected.contractStarts, differences);
+            for (FeeType type : FeeType.values()) {
+                compareRollups("due " + type + " by date", dueByFeeType.get(type),
+                        expected.dueByFeeType.get(type), differences);
+                compareRollups("paid due " + type + " by date", paidDueByFeeType.get(type),
+                        expected.paidDueByFeeType.get(type), differences);
+            }
+        }
+
+        // A missing rollup is the same as an empty one
+        private static void compareRollups(String name, DateRollup actual, DateRollup expected,
+                                           List<String> differences) {
+            DateRollup counted = actual != null ? actual : new DateRollup();
+            DateRollup stored = expected != null ? expected : new DateRollup();
+            if (!counted.matches(stored)) {
+                differences.add(name + ": " + counted + " counted, " + stored + " stored");
+            }
+        }
+
+        private static <K> void compareCounts(String name, Map<K, Integer> actual, Map<K, Integer> expected,
+                                              List<String> differences) {
+            if (!actual.equals(expected)) {
+                differences.add(name + ": " + actual + " counted, " + expected + " stored");
+            }
+        }
+
+        private static void compareAmounts(String name, long[] actual, long[] expected, List<String> differences) {
+            for (FeeType type : FeeType.values()) {
+                long counted = actual[type.ordinal()];
+                long stored = expected[type.ordinal()];
+                if (counted != stored) {
+                    differences.add(name + " " + type + ": " + counted + " counted, " + stored + " stored");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Storage settings read from data/storage.properties. Every key can be
+ * overridden on the command line with -Ddormitory.&lt;key&gt;=&lt;value&gt;.
+ */
+public class StorageConfig {
+    public static final String CONFIG_FILE = "storage.properties";
+    private static final String SYSTEM_PREFIX = "dormitory.";
+
+    private final Properties properties;
+
+    public StorageConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static StorageConfig load(String directory) {
+        Properties properties = new Properties();
+        File file = new File(directory, CONFIG_FILE);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PREFIX)) {
+                properties.setProperty(name.substring(SYSTEM_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return new StorageConfig(properties);
+    }
+
+    // Storage engine: "file" (the data files), "memory" (nothing kept after exit) or "jdbc"
+    public String getEngine() {
+        return properties.getProperty("storage.engine", "file").trim().toLowerCase();
+    }
+
+    // Database settings for the jdbc engine; the default is an embedded H2 file database
+    public String getJdbcUrl() {
+        return properties.getProperty("storage.jdbc.url", "jdbc:h2:./data/dormitory").trim();
+    }
+
+    public String getJdbcUser() {
+        return properties.getProperty("storage.jdbc.user", "sa").trim();
+    }
+
+    public String getJdbcPassword() {
+        return properties.getProperty("storage.jdbc.password", "");
+    }
+
+    public int getJdbcPoolSize() {
+        return (int) Math.max(1, getLong("storage.jdbc.poolSize", 4));
+    }
+
+    // Rows sent to the database per JDBC batch
+    public int getJdbcBatchSize() {
+        return (int) Math.max(1, getLong("storage.jdbc.batchSize", 500));
+    }
+
+    // Snapshot format: "text" (data/*.txt) or "binary" (data/*.bin)
+    public boolean isBinarySnapshots() {
+        return "binary".equalsIgnoreCase(properties.getProperty("storage.format", "text").trim());
+    }
+
+    // File layout: "single" (data/fees.txt) or "segmented" (data/fees/segment-0000.txt, ...)
+    public boolean isSegmentedLayout() {
+        return "segmented".equalsIgnoreCase(properties.getProperty("storage.layout", "single").trim());
+    }
+
+    // Number of consecutive IDs per segment file
+    public int getSegmentSize() {
+        return (int) Math.max(1, getLong("storage.segmentSize", 10000));
+    }
+
+    // Journal settings
+    public boolean isJournalEnabled() {
+        return getBoolean("journal.enabled", false);
+    }
+
+    public DataJournal.SyncPolicy getJournalSyncPolicy() {
+        String value = properties.getProperty("journal.sync", DataJournal.SyncPolicy.INTERVAL.name());
+        try {
+            return DataJournal.SyncPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown journal.sync policy '" + value + "', using INTERVAL");
+            return DataJournal.SyncPolicy.INTERVAL;
+        }
+    }
+
+    public long getJournalSyncIntervalMillis() {
+        return getLong("journal.syncIntervalMillis", 1000);
+    }
+
+    public int getCheckpointThreshold() {
+        return (int) getLong("journal.checkpointRecords", 10000);
+    }
+
+    // Background flusher settings
+    public boolean isAsyncPersistence() {
+        return getBoolean("persistence.async", false);
+    }
+
+    public long getFlushIntervalMillis() {
+        return getLong("persistence.flushIntervalMillis", 500);
+    }
+
+    public int getFlushThreshold() {
+        return (int) getLong("persistence.flushThreshold", 200);
+    }
+
+    // Helpers
+    private boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
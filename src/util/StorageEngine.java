@@ -0,0 +1,53 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Where DataStorage keeps its data between runs. The engine fills the in-memory tables once at
+ * startup and from then on persists the records DataStorage reports as changed, reading their
+ * current state from the same tables. Selected with storage.engine in data/storage.properties.
+ */
+public interface StorageEngine extends Closeable {
+
+    // Short name for messages and benchmarks
+    String getName();
+
+    /**
+     * Reads every stored record into the tables and remembers them for later persist calls.
+     * Problems with single records or files are reported and skipped where possible.
+     */
+    void load(EntityTables tables) throws IOException;
+
+    /**
+     * Persists the current state of the given records. IDs no longer present in the tables
+     * are deleted from the store.
+     */
+    void persist(Map<EntityType, Set<Integer>> batch) throws IOException;
+
+    // Rewrites the whole store from the tables, e.g. after they were replaced by an import
+    void replaceAll() throws IOException;
+
+    // Visits every stored record of a type, as read back from the store
+    void forEach(EntityType type, Consumer<Object> action) throws IOException;
+
+    // Returns the stored record with the given ID, or null
+    Object lookup(EntityType type, int id) throws IOException;
+
+    // Compacts what has been persisted so far, e.g. folds a journal into the snapshot files
+    void checkpoint() throws IOException;
+
+    // Forces everything persisted so far to durable storage
+    void sync() throws IOException;
+
+    /**
+     * False if part of the stored data was found damaged or unreadable and left out; DataStorage then
+     * does not create sample data over it.
+     */
+    default boolean isIntact() {
+        return true;
+    }
+}
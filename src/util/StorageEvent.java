@@ -0,0 +1,47 @@
+package util;
+
+import java.util.Objects;
+
+/**
+ * One change to the tables: a record of the given type was inserted, updated or deleted.
+ * RELOAD means every record of the type may have changed, e.g. after an import; its id is 0.
+ */
+public final class StorageEvent {
+    public enum Kind { INSERT, UPDATE, DELETE, RELOAD }
+
+    private final EntityType type;
+    private final int id;
+    private final Kind kind;
+
+    public StorageEvent(EntityType type, int id, Kind kind) {
+        this.type = type;
+        this.id = kind == Kind.RELOAD ? 0 : id;
+        this.kind = kind;
+    }
+
+    public static StorageEvent reload(EntityType type) {
+        return new StorageEvent(type, 0, Kind.RELOAD);
+    }
+
+    public EntityType getType() { return type; }
+    public int getId() { return id; }
+    public Kind getKind() { return kind; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StorageEvent)) return false;
+        StorageEvent other = (StorageEvent) o;
+        return type == other.type && id == other.id && kind == other.kind;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id, kind);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + type.getBaseName() + (kind == Kind.RELOAD ? "" : " #" + id);
+    }
+}
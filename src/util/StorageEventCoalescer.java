@@ -0,0 +1,76 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Collects storage events until they are drained, keeping at most one event per record:
+ * an insert followed by updates stays an insert, an insert followed by a delete cancels out,
+ * and a reload of a type replaces every pending event of that type. Events come out in the
+ * order their records first changed.
+ */
+public class StorageEventCoalescer {
+    private final Map<Long, StorageEvent> pending = new LinkedHashMap<>();
+    private final Set<EntityType> reloaded = EnumSet.noneOf(EntityType.class);
+
+    // Returns true if nothing was pending before, i.e. a drain needs to be scheduled
+    public synchronized boolean add(List<StorageEvent> events) {
+        boolean wasEmpty = pending.isEmpty();
+        for (StorageEvent event : events) {
+            add(event);
+        }
+        return wasEmpty && !pending.isEmpty();
+    }
+
+    public synchronized List<StorageEvent> drain() {
+        List<StorageEvent> events = new ArrayList<>(pending.values());
+        pending.clear();
+        reloaded.clear();
+        return events;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void add(StorageEvent event) {
+        EntityType type = event.getType();
+        if (event.getKind() == StorageEvent.Kind.RELOAD) {
+            pending.values().removeIf(e -> e.getType() == type);
+            reloaded.add(type);
+            pending.put(key(type, 0), event);
+            return;
+        }
+        if (reloaded.contains(type)) {
+            // the pending reload already covers it
+            return;
+        }
+        long key = key(type, event.getId());
+        StorageEvent merged = merge(pending.get(key), event);
+        if (merged != null) {
+            pending.put(key, merged);
+        } else {
+            pending.remove(key);
+        }
+    }
+
+    // The single event equivalent to previous followed by next; null if they cancel out
+    private static StorageEvent merge(StorageEvent previous, StorageEvent next) {
+        if (previous == null) {
+            return next;
+        }
+        switch (previous.getKind()) {
+            case INSERT:
+                return next.getKind() == StorageEvent.Kind.DELETE ? null : previous;
+            case DELETE:
+                // ids are not reused, but if one comes back the row must be rebuilt
+                return next.getKind() == StorageEvent.Kind.INSERT
+                        ? new StorageEvent(next.getType(), next.getId(), StorageEvent.Kind.UPDATE) : next;
+            default:
+                return next;
+        }
+    }
+
+    private static long key(EntityType type, int id) {
+        return ((long) type.ordinal() << 32) | (id & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,11 @@
+package util;
+
+import java.util.List;
+
+/**
+ * Told about changes to the DataStorage tables as they are made, on the thread that made them.
+ * Records changed together, like the fees removed by a cascading delete, arrive in one list.
+ */
+public interface StorageListener {
+    void storageChanged(List<StorageEvent> events);
+}
@@ -0,0 +1,63 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Folds text for searching: lower case, Vietnamese tone and vowel marks removed
+ * ("Nguyễn Thị Đào" becomes "nguyen thi dao"). Indexes fold their text once when an entity
+ * is indexed and fold the query once per search, so rows are never folded while typing.
+ */
+public final class TextFolding {
+
+    private TextFolding() {
+    }
+
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        if (isAscii(trimmed)) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+        // NFD splits "ễ" into "e" plus combining marks; đ has no decomposition and is mapped by hand
+        String decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            folded.append(c == '\u0111' || c == '\u0110' ? 'd' : Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+
+    // Splits folded text into its words
+    public static List<String> tokens(String folded) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,196 @@
+package util;
+
+import model.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Maps entities to and from the comma-separated lines of the data/*.txt files.
+ * Shared by the text snapshots, the journal and the import/export path.
+ */
+public class TextRecordFormat {
+
+    // Throws IllegalArgumentException for a malformed line
+    public static Object parse(EntityType type, String line) {
+        RecordCodec.Reader reader = new RecordCodec.Reader(line);
+        if (!reader.nextRecord()) {
+            throw new IllegalArgumentException("Empty record");
+        }
+        return read(type, reader);
+    }
+
+    // Reads the record the reader is positioned on
+    public static Object read(EntityType type, RecordCodec.Reader reader) {
+        switch (type) {
+            case STUDENT: return readStudent(reader);
+            case ROOM: return readRoom(reader);
+            case CONTRACT: return readContract(reader);
+            default: return readFee(reader);
+        }
+    }
+
+    public static String format(EntityType type, Object entity) {
+        switch (type) {
+            case STUDENT: return formatStudent((Student) entity);
+            case ROOM: return formatRoom((Room) entity);
+            case CONTRACT: return formatContract((Contract) entity);
+            default: return formatFee((Fee) entity);
+        }
+    }
+
+    // Parsing
+    public static Student parseStudent(String line) {
+        return (Student) parse(EntityType.STUDENT, line);
+    }
+
+    public static Room parseRoom(String line) {
+        return (Room) parse(EntityType.ROOM, line);
+    }
+
+    public static Contract parseContract(String line) {
+        return (Contract) parse(EntityType.CONTRACT, line);
+    }
+
+    public static Fee parseFee(String line) {
+        return (Fee) parse(EntityType.FEE, line);
+    }
+
+    private static Student readStudent(RecordCodec.Reader reader) {
+        int studentId = reader.readInt();
+        Student student = new Student(
+            reader.readString(), // studentCode
+            reader.readString(), // fullName
+            reader.readDate(),   // dateOfBirth
+            reader.readString(), // gender
+            reader.readString(), // phoneNumber
+            reader.readString(), // email
+            reader.readString()  // hometown
+        );
+        student.setStudentId(studentId);
+        student.setRoomId(reader.readInt());
+        student.setStatus(reader.readString());
+        reader.endRecord();
+        return student;
+    }
+
+    private static Room readRoom(RecordCodec.Reader reader) {
+        int roomId = reader.readInt();
+        String roomNumber = reader.readString();
+        reader.skipField(); // roomType is derived from the bed count
+        int bedCount = reader.readInt();
+        BigDecimal roomPrice = reader.readDecimal();
+        int occupancy = reader.readInt();
+        String status = reader.readString();
+        // older files may carry extra columns; the status is always the last one
+        while (reader.hasMoreFields()) {
+            status = reader.readString();
+        }
+
+        Room room = new Room(roomNumber, bedCount, roomPrice);
+        room.setRoomId(roomId);
+        room.setCurrentOccupancy(occupancy);
+        room.setStatus(status);
+        return room;
+    }
+
+    private static Contract readContract(RecordCodec.Reader reader) {
+        int contractId = reader.readInt();
+        Contract contract = new Contract(
+            reader.readString(),  // contractCode
+            reader.readInt(),     // studentId
+            reader.readInt(),     // roomId
+            reader.readDate(),    // startDate
+            reader.readDate(),    // endDate
+            reader.readDecimal()  // roomPrice
+        );
+        contract.setContractId(contractId);
+        contract.setPaymentMethod(reader.readString());
+        contract.setContractStatus(reader.readString());
+        contract.setDepositAmount(reader.readDecimal());
+        reader.endRecord();
+        return contract;
+    }
+
+    private static Fee readFee(RecordCodec.Reader reader) {
+        int feeId = reader.readInt();
+        Fee fee = new Fee(
+            reader.readString(),                   // feeCode
+            reader.readInt(),                      // studentId
+            FeeType.valueOf(reader.readString()),  // feeType
+            reader.readDecimal(),                  // amount
+            null
+        );
+        fee.setFeeId(feeId);
+        fee.setPaymentMethod(reader.readString());
+        fee.setPaymentStatus(reader.readString());
+        fee.setDueDate(reader.readDate());
+        fee.setPaymentDate(reader.readNullableDate());
+        fee.setDescription(reader.readNullableString(true));
+        reader.endRecord();
+        return fee;
+    }
+
+    // Formatting
+    public static String formatStudent(Student student) {
+        return new RecordCodec.Writer()
+            .writeInt(student.getStudentId())
+            .writeString(student.getStudentCode())
+            .writeString(student.getFullName())
+            .writeDate(student.getDateOfBirth())
+            .writeString(orEmpty(student.getGender()))
+            .writeString(student.getPhoneNumber())
+            .writeString(student.getEmail())
+            .writeString(student.getHometown())
+            .writeInt(student.getRoomId())
+            .writeString(orEmpty(student.getStatus()))
+            .toString();
+    }
+
+    public static String formatRoom(Room room) {
+        return new RecordCodec.Writer()
+            .writeInt(room.getRoomId())
+            .writeString(room.getRoomNumber())
+            .writeString(room.getRoomType())
+            .writeInt(room.getBedCount())
+            .writeDecimal(room.getRoomPrice().setScale(2, RoundingMode.HALF_UP))
+            .writeInt(room.getCurrentOccupancy())
+            .writeString(room.getStatus())
+            .toString();
+    }
+
+    public static String formatContract(Contract contract) {
+        return new RecordCodec.Writer()
+            .writeInt(contract.getContractId())
+            .writeString(contract.getContractCode())
+            .writeInt(contract.getStudentId())
+            .writeInt(contract.getRoomId())
+            .writeDate(contract.getStartDate())
+            .writeDate(contract.getEndDate())
+            .writeDecimal(contract.getRoomPrice())
+            .writeString(contract.getPaymentMethod())
+            .writeString(orEmpty(contract.getContractStatus()))
+            .writeDecimal(contract.getDepositAmount())
+            .toString();
+    }
+
+    public static String formatFee(Fee fee) {
+        return new RecordCodec.Writer()
+            .writeInt(fee.getFeeId())
+            .writeString(fee.getFeeCode())
+            .writeInt(fee.getStudentId())
+            .writeString(fee.getFeeType().name())
+            .writeDecimal(fee.getAmount())
+            .writeString(orEmpty(fee.getPaymentMethod()))
+            .writeString(orEmpty(fee.getPaymentStatus()))
+            .writeDate(fee.getDueDate())
+            .writeDate(fee.getPaymentDate())
+            .writeNullableString(fee.getDescription())
+            .toString();
+    }
+
+    // Enum-valued fields: a missing value is written as an empty field, which reads back as null
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
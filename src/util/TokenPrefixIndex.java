@@ -0,0 +1,87 @@
+package util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Word-prefix search over folded text (see TextFolding): "ng th c" finds "Nguyễn Thị C".
+ * Every folded word maps to a CompressedBitmap of ids in a sorted map, so the words starting
+ * with a prefix are one contiguous range. A query matches the ids that have, for each of its
+ * words, some word starting with it.
+ */
+public class TokenPrefixIndex<T> {
+    private final Function<T, String[]> fieldsFunction;
+    private final TreeMap<String, CompressedBitmap> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> tokensById = new HashMap<>();
+
+    public TokenPrefixIndex(Function<T, String[]> fieldsFunction) {
+        this.fieldsFunction = fieldsFunction;
+    }
+
+    // Ids matching every word of the query as a prefix, in ascending order
+    public synchronized CompressedBitmap search(String query) {
+        List<String> prefixes = TextFolding.tokens(TextFolding.fold(query));
+        if (prefixes.isEmpty()) {
+            return new CompressedBitmap();
+        }
+        CompressedBitmap result = null;
+        for (String prefix : prefixes) {
+            CompressedBitmap matches = new CompressedBitmap();
+            for (CompressedBitmap bitmap : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                matches = matches.or(bitmap);
+            }
+            result = result == null ? matches : result.and(matches);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public synchronized void put(int id, T entity) {
+        Set<String> tokens = new HashSet<>();
+        for (String field : fieldsFunction.apply(entity)) {
+            tokens.addAll(TextFolding.tokens(TextFolding.fold(field)));
+        }
+        Set<String> previous = tokensById.put(id, tokens);
+        if (previous != null) {
+            for (String token : previous) {
+                if (!tokens.contains(token)) {
+                    removePosting(token, id);
+                }
+            }
+        }
+        for (String token : tokens) {
+            if (previous == null || !previous.contains(token)) {
+                postings.computeIfAbsent(token, t -> new CompressedBitmap()).add(id);
+            }
+        }
+    }
+
+    public synchronized void remove(int id) {
+        Set<String> previous = tokensById.remove(id);
+        if (previous != null) {
+            previous.forEach(token -> removePosting(token, id));
+        }
+    }
+
+    public synchronized void rebuild(Map<Integer, ? extends T> table) {
+        clear();
+        table.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        tokensById.clear();
+    }
+
+    private void removePosting(String token, int id) {
+        CompressedBitmap bitmap = postings.get(token);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Substring search over a few text fields per entity. Every run of three characters in a
+ * field is a trigram with a CompressedBitmap of the ids containing it; a query's candidates
+ * are the intersection of its trigrams' bitmaps, which are then checked and ranked on the
+ * stored text, folded once at index time. Queries shorter than three characters check every entry.
+ * Fields are given in order of importance, which breaks ties in the ranking.
+ */
+public class TrigramIndex<T> {
+    private final Function<T, String[]> fieldsFunction;
+    private final Map<Integer, String[]> fieldsById = new HashMap<>();
+    private final Map<Long, CompressedBitmap> postings = new HashMap<>();
+
+    public TrigramIndex(Function<T, String[]> fieldsFunction) {
+        this.fieldsFunction = fieldsFunction;
+    }
+
+    /**
+     * Returns the ids whose fields contain the query, best matches first: a field equal to
+     * the query, then one starting with it, then a word starting with it, then any substring.
+     * A blank query matches nothing.
+     */
+    public synchronized List<Integer> search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<long[]> matches = new ArrayList<>();
+        Set<Long> grams = trigrams(normalized);
+        if (grams.isEmpty()) {
+            fieldsById.forEach((id, fields) -> addMatch(matches, id, fields, normalized));
+        } else {
+            CompressedBitmap candidates = intersect(grams);
+            candidates.forEach(id -> addMatch(matches, id, fieldsById.get(id), normalized));
+        }
+        // higher score first, then lower id
+        matches.sort((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+        List<Integer> ids = new ArrayList<>(matches.size());
+        for (long[] match : matches) {
+            ids.add((int) match[1]);
+        }
+        return ids;
+    }
+
+    // Indexes the entity's current fields; only trigrams that changed are touched
+    public synchronized void put(int id, T entity) {
+        String[] fields = normalizeAll(fieldsFunction.apply(entity));
+        String[] previous = fieldsById.put(id, fields);
+        if (previous == null) {
+            // a new id: adding is idempotent, so no set of distinct trigrams is needed
+            for (String field : fields) {
+                for (int i = 0; i + 3 <= field.length(); i++) {
+                    postings.computeIfAbsent(trigram(field, i), g -> new CompressedBitmap()).add(id);
+                }
+            }
+            return;
+        }
+        Set<Long> added = trigrams(fields);
+        for (long gram : trigrams(previous)) {
+            // kept trigrams need no change, dropped ones lose the id
+            if (!added.remove(gram)) {
+                removePosting(gram, id);
+            }
+        }
+        for (long gram : added) {
+            postings.computeIfAbsent(gram, g -> new CompressedBitmap()).add(id);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        String[] previous = fieldsById.remove(id);
+        if (previous != null) {
+            trigrams(previous).forEach(gram -> removePosting(gram, id));
+        }
+    }
+
+    public synchronized void rebuild(Map<Integer, ? extends T> table) {
+        clear();
+        table.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        fieldsById.clear();
+        postings.clear();
+    }
+
+    public synchronized int size() {
+        return fieldsById.size();
+    }
+
+    // Text is compared folded: case and Vietnamese diacritics are ignored
+    private static String normalize(String text) {
+        return TextFolding.fold(text);
+    }
+
+    // Helpers
+    private static String[] normalizeAll(String[] fields) {
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = normalize(fields[i]);
+        }
+        return normalized;
+    }
+
+    private static Set<Long> trigrams(String... fields) {
+        Set<Long> grams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                grams.add(trigram(field, i));
+            }
+        }
+        return grams;
+    }
+
+    private static long trigram(String field, int index) {
+        return ((long) field.charAt(index) << 32) | ((long) field.charAt(index + 1) << 16) | field.charAt(index + 2);
+    }
+
+    // Intersects the smallest bitmaps first, so the result shrinks as early as possible
+    private CompressedBitmap intersect(Set<Long> grams) {
+        List<CompressedBitmap> bitmaps = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            CompressedBitmap bitmap = postings.get(gram);
+            if (bitmap == null) {
+                return new CompressedBitmap();
+            }
+            bitmaps.add(bitmap);
+        }
+        bitmaps.sort(Comparator.comparingInt(CompressedBitmap::getCardinality));
+        CompressedBitmap result = bitmaps.get(0);
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            result = result.and(bitmaps.get(i));
+        }
+        return result;
+    }
+
+    private void removePosting(long gram, int id) {
+        CompressedBitmap bitmap = postings.get(gram);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static void addMatch(List<long[]> matches, int id, String[] fields, String query) {
+        int score = score(fields, query);
+        if (score >= 0) {
+            matches.add(new long[]{score, id});
+        }
+    }
+
+    // Match quality 0-3 weighted above the field position; -1 if no field contains the query
+    private static int score(String[] fields, String query) {
+        int best = -1;
+        for (int field = 0; field < fields.length; field++) {
+            String value = fields[field];
+            int index = value.indexOf(query);
+            if (index < 0) {
+                continue;
+            }
+            int quality = 0;
+            if (index == 0) {
+                quality = value.length() == query.length() ? 3 : 2;
+            } else {
+                for (int i = index; i >= 0; i = value.indexOf(query, i + 1)) {
+                    if (!Character.isLetterOrDigit(value.charAt(i - 1))) {
+                        quality = 1;
+                        break;
+                    }
+                }
+            }
+            best = Math.max(best, quality * 16 + Math.max(0, 15 - field));
+        }
+        return best;
+    }
+}
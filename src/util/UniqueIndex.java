@@ -0,0 +1,104 @@
+package util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Maps a natural key (student code, room number, ...) to the id of the entity holding it.
+ * The key each id was indexed under is remembered as well, because the panels edit entities
+ * in place: by the time an update reaches the index the entity already carries its new key.
+ * Entities without a key (null or blank) are not indexed.
+ */
+public class UniqueIndex<T> {
+    private final Function<T, String> keyFunction;
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> keysById = new ConcurrentHashMap<>();
+
+    public UniqueIndex(Function<T, String> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    // Returns the id holding the key, or null
+    public Integer get(String key) {
+        String normalized = normalize(key);
+        return normalized != null ? idsByKey.get(normalized) : null;
+    }
+
+    // True if the key is free or already belongs to the given id
+    public boolean isAvailable(String key, int id) {
+        Integer holder = get(key);
+        return holder == null || holder == id;
+    }
+
+    /**
+     * Indexes the entity under its current key, replacing the key the id had before.
+     * Returns false and leaves the index unchanged if another id already holds the key.
+     */
+    public synchronized boolean put(int id, T entity) {
+        String key = normalize(keyFunction.apply(entity));
+        String previous = keysById.get(id);
+        if (key != null && !key.equals(previous)) {
+            Integer holder = idsByKey.putIfAbsent(key, id);
+            if (holder != null && holder != id) {
+                return false;
+            }
+        }
+        if (previous != null && !previous.equals(key)) {
+            idsByKey.remove(previous, id);
+        }
+        if (key != null) {
+            keysById.put(id, key);
+        } else {
+            keysById.remove(id);
+        }
+        return true;
+    }
+
+    public synchronized void remove(int id) {
+        String key = keysById.remove(id);
+        if (key != null) {
+            idsByKey.remove(key, id);
+        }
+    }
+
+    /**
+     * Rebuilds the index from a table. Files written before keys were enforced may contain
+     * duplicates; the lowest id keeps the key and the others stay editable under it.
+     * Returns the number of duplicates found.
+     */
+    public synchronized int rebuild(Map<Integer, T> table) {
+        clear();
+        int duplicates = 0;
+        for (Map.Entry<Integer, T> entry : new TreeMap<>(table).entrySet()) {
+            String key = normalize(keyFunction.apply(entry.getValue()));
+            if (key == null) {
+                continue;
+            }
+            keysById.put(entry.getKey(), key);
+            if (idsByKey.putIfAbsent(key, entry.getKey()) != null) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+
+    public synchronized void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+
+    public int size() {
+        return idsByKey.size();
+    }
+
+    // Keys are compared trimmed, but otherwise exactly as entered
+    private static String normalize(String key) {
+        if (key == null) {
+            return null;
+        }
+        String trimmed = key.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -35,7 +35,7 @@ public class ContractTest {
         assertEquals(roomPrice, contract.getRoomPrice());
         assertEquals("MONTHLY", contract.getPaymentMethod());
         assertEquals("ACTIVE", contract.getContractStatus());
-        assertEquals(BigDecimal.ZERO, contract.getDepositAmount());
+        assertEquals(new BigDecimal("0.00"), contract.getDepositAmount());
     }
 
     @Test
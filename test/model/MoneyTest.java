@@ -0,0 +1,55 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+public class MoneyTest {
+
+    @Test
+    public void testMinorUnitsFollowTheCurrencyScale() {
+        Money dollars = Money.of(new BigDecimal("120.5"), Money.Currency.USD);
+        assertEquals(12050, dollars.getMinorUnits());
+        assertEquals(new BigDecimal("120.50"), dollars.toBigDecimal());
+
+        Money dong = Money.of(new BigDecimal("500000"), Money.Currency.VND);
+        assertEquals(500000, dong.getMinorUnits());
+        assertEquals(new BigDecimal("500000"), dong.toBigDecimal());
+
+        assertEquals(13, Money.of(new BigDecimal("0.125"), Money.Currency.USD).getMinorUnits());
+        assertNull(Money.of(null));
+    }
+
+    @Test
+    public void testArithmeticAndComparison() {
+        Money a = Money.ofMinor(1050, Money.Currency.USD);
+        Money b = Money.ofMinor(250, Money.Currency.USD);
+        assertEquals(Money.ofMinor(1300, Money.Currency.USD), a.plus(b));
+        assertEquals(Money.ofMinor(800, Money.Currency.USD), a.minus(b));
+        assertEquals(Money.ofMinor(12600, Money.Currency.USD), a.times(12));
+        assertTrue(a.compareTo(b) > 0);
+        assertEquals("10.50 USD", a.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCurrenciesAreNotMixed() {
+        Money.ofMinor(100, Money.Currency.USD).plus(Money.ofMinor(100, Money.Currency.VND));
+    }
+
+    @Test
+    public void testSumOverFees() {
+        List<Fee> fees = Arrays.asList(
+                new Fee("F1", 1, FeeType.ROOM_FEE, new BigDecimal("120.00"), null),
+                new Fee("F2", 1, FeeType.WATER, new BigDecimal("12.34"), null),
+                new Fee("F3", 1, FeeType.ELECTRICITY, null, null));
+        assertEquals(new BigDecimal("132.34"), Money.sum(fees, Fee::getAmountMinor).toBigDecimal());
+    }
+
+    @Test
+    public void testUnsupportedDefaultCurrencyFallsBackToUsd() {
+        assertEquals(Money.Currency.VND, Money.DefaultCurrency.parse(" vnd"));
+        assertEquals(Money.Currency.USD, Money.DefaultCurrency.parse("EUR"));
+    }
+}
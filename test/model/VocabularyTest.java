@@ -0,0 +1,68 @@
+package model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class VocabularyTest {
+
+    @Test
+    public void testLenientParsing() {
+        assertEquals(PaymentMethod.BANK_TRANSFER, PaymentMethod.parse("Bank Transfer"));
+        assertEquals(PaymentStatus.PAID, PaymentStatus.parse(" paid "));
+        assertEquals(ContractStatus.TERMINATED, ContractStatus.parse("Terminated"));
+        assertEquals(Gender.FEMALE, Gender.parse("Nữ"));
+        assertEquals(Gender.MALE, Gender.parse("MALE"));
+        assertNull(StudentStatus.parse(""));
+        assertNull(StudentStatus.parse(null));
+    }
+
+    @Test
+    public void testUnknownValuesAreKeptAsText() {
+        assertNull(PaymentStatus.parse("HALF_PAID"));
+        assertNull(StudentStatus.parse("null"));
+
+        Fee fee = new Fee("F1", 1, FeeType.WATER, new BigDecimal("10.00"), null);
+        fee.setPaymentStatus("HALF_PAID");
+        assertNull(fee.getPaymentStatusType());
+        assertEquals("HALF_PAID", fee.getPaymentStatus());
+        assertFalse(fee.isUnpaid());
+        fee.setPaymentStatusType(PaymentStatus.PENDING);
+        assertEquals("PENDING", fee.getPaymentStatus());
+
+        Student student = new Student("ST1", "A", null, "M", null, null, null);
+        assertNull(student.getGenderType());
+        assertEquals("M", student.getGender());
+        student.setGender("null");
+        assertNull(student.getGender());
+    }
+
+    @Test
+    public void testStringAccessorsKeepTheirValues() {
+        Student student = new Student("ST1", "Nguyen Van A", LocalDate.of(2004, 1, 1),
+                "female", "0900000000", "a@example.com", new String("Ha Noi"));
+        assertEquals("Female", student.getGender());
+        assertEquals(StudentStatus.ACTIVE, student.getStatusType());
+        student.setStatus("graduated");
+        assertEquals("GRADUATED", student.getStatus());
+
+        Fee fee = new Fee("F1", 1, FeeType.WATER, new BigDecimal("10.00"), null);
+        fee.setPaymentMethod("Credit Card");
+        assertEquals("CREDIT_CARD", fee.getPaymentMethod());
+        assertTrue(fee.isUnpaid());
+        fee.setPaymentStatusType(PaymentStatus.PAID);
+        assertFalse(fee.isUnpaid());
+    }
+
+    @Test
+    public void testRepeatedHometownsShareOneString() {
+        Student first = new Student("ST1", "A", null, "Male", null, null, new String("Hai Phong"));
+        Student second = new Student("ST2", "B", null, "Male", null, null, new String("Hai Phong"));
+        assertSame(first.getHometown(), second.getHometown());
+
+        Contract contract = new Contract("C1", 1, 1, null, null, BigDecimal.ONE);
+        contract.setPaymentMethod(new String("QUARTERLY"));
+        assertSame(Vocabulary.intern("QUARTERLY"), contract.getPaymentMethod());
+    }
+}
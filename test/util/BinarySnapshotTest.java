@@ -0,0 +1,141 @@
+package util;
+
+import model.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class BinarySnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStudentRoundTrip() throws Exception {
+        Student student = new Student("ST001", "Nguyễn Thị C", LocalDate.of(2005, 4, 25),
+                "Female", "0916627268", "c@email.com", "Hồ Chí Minh");
+        student.setStudentId(3);
+        student.setRoomId(2);
+
+        Student loaded = (Student) roundTrip(EntityType.STUDENT, student).get(0);
+        assertEquals(3, loaded.getStudentId());
+        assertEquals("Nguyễn Thị C", loaded.getFullName());
+        assertEquals(LocalDate.of(2005, 4, 25), loaded.getDateOfBirth());
+        assertEquals("Hồ Chí Minh", loaded.getHometown());
+        assertEquals(2, loaded.getRoomId());
+        assertEquals("ACTIVE", loaded.getStatus());
+    }
+
+    @Test
+    public void testRoomRoundTrip() throws Exception {
+        Room room = new Room("P801", 8, new BigDecimal("80.00"));
+        room.setRoomId(4);
+        room.setCurrentOccupancy(3);
+
+        Room loaded = (Room) roundTrip(EntityType.ROOM, room).get(0);
+        assertEquals("P801", loaded.getRoomNumber());
+        assertEquals(new BigDecimal("80.00"), loaded.getRoomPrice());
+        assertEquals(3, loaded.getCurrentOccupancy());
+        assertEquals("OCCUPIED", loaded.getStatus());
+    }
+
+    @Test
+    public void testContractRoundTrip() throws Exception {
+        Contract contract = new Contract("C001", 1, 2, LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 7, 1), new BigDecimal("120.00"));
+        contract.setContractId(9);
+        contract.setDepositAmount(new BigDecimal("240.5"));
+
+        Contract loaded = (Contract) roundTrip(EntityType.CONTRACT, contract).get(0);
+        assertEquals("C001", loaded.getContractCode());
+        assertEquals(LocalDate.of(2025, 7, 1), loaded.getEndDate());
+        assertEquals(new BigDecimal("240.50"), loaded.getDepositAmount());
+    }
+
+    @Test
+    public void testFeeRoundTripWithNulls() throws Exception {
+        Fee unpaid = new Fee("F001", 1, FeeType.WATER, new BigDecimal("12.34"), LocalDate.of(2025, 3, 1));
+        unpaid.setFeeId(1);
+        Fee paid = new Fee("F002", 1, FeeType.ROOM_FEE, new BigDecimal("120.00"), LocalDate.of(2025, 3, 1));
+        paid.setFeeId(2);
+        paid.setPaymentStatus("PAID");
+        paid.setPaymentDate(LocalDate.of(2025, 2, 27));
+        paid.setDescription("March, room fee");
+
+        List<Object> loaded = roundTrip(EntityType.FEE, unpaid, paid);
+        Fee first = (Fee) loaded.get(0);
+        Fee second = (Fee) loaded.get(1);
+        assertNull(first.getPaymentDate());
+        assertNull(first.getDescription());
+        assertEquals(FeeType.WATER, first.getFeeType());
+        assertEquals(LocalDate.of(2025, 2, 27), second.getPaymentDate());
+        assertEquals("March, room fee", second.getDescription());
+    }
+
+    @Test
+    public void testMoneyIsStoredAsMinorUnits() throws Exception {
+        Room room = new Room("P401", 4, new BigDecimal("120.50"));
+        File file = new File(folder.getRoot(), "rooms.bin");
+        BinarySnapshot.write(file, EntityType.ROOM, Arrays.asList(room));
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        // header, then the dictionary "P401" and "AVAILABLE", then id, room number and bed count
+        int money = 28 + (4 + 4) + (4 + 9) + 4 * 3;
+        assertEquals(12050, content.getLong(money));
+        assertEquals(BinarySnapshot.rowWidth(EntityType.ROOM), content.getInt(16));
+    }
+
+    @Test
+    public void testVersionOneFileIsStillRead() throws Exception {
+        byte[] number = "P401".getBytes(StandardCharsets.UTF_8);
+        byte[] status = "AVAILABLE".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content = ByteBuffer.allocate(24 + 8 + number.length + status.length + 29 + 8);
+        content.putInt(0x4B545842).putInt(1).putInt(EntityType.ROOM.ordinal()).putInt(1).putInt(29).putInt(2);
+        content.putInt(number.length).put(number).putInt(status.length).put(status);
+        // id, room number, bed count, 120.5 as unscaled value and scale, occupancy, status
+        content.putInt(7).putInt(0).putInt(4).putLong(1205).put((byte) 1).putInt(2).putInt(1);
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), 0, content.position());
+        content.putLong(crc.getValue());
+        File file = new File(folder.getRoot(), "rooms.bin");
+        Files.write(file.toPath(), content.array());
+
+        List<Object> loaded = new ArrayList<>();
+        BinarySnapshot.read(file, EntityType.ROOM, loaded::add);
+        Room room = (Room) loaded.get(0);
+        assertEquals(7, room.getRoomId());
+        assertEquals(new BigDecimal("120.50"), room.getRoomPrice());
+        assertEquals(2, room.getCurrentOccupancy());
+    }
+
+    @Test(expected = SnapshotFile.CorruptSnapshotException.class)
+    public void testDamagedFileIsRejected() throws Exception {
+        Room room = new Room("P401", 4, new BigDecimal("120.00"));
+        File file = new File(folder.getRoot(), "rooms.bin");
+        BinarySnapshot.write(file, EntityType.ROOM, Arrays.asList(room));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(30);
+            raf.write(0x7F);
+        }
+        BinarySnapshot.read(file, EntityType.ROOM, entity -> { });
+    }
+
+    private List<Object> roundTrip(EntityType type, Object... entities) throws Exception {
+        File file = new File(folder.getRoot(), type.getBinaryFileName());
+        BinarySnapshot.write(file, type, Arrays.asList(entities));
+        List<Object> loaded = new ArrayList<>();
+        assertEquals(entities.length, BinarySnapshot.read(file, type, loaded::add));
+        return loaded;
+    }
+}
@@ -0,0 +1,83 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.BitSet;
+import java.util.Random;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void testAddRemoveContains() {
+        CompressedBitmap bitmap = CompressedBitmap.of(5, 1, 70000, 5);
+        assertEquals(3, bitmap.getCardinality());
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(2));
+        assertArrayEquals(new int[]{1, 5, 70000}, bitmap.toArray());
+
+        bitmap.remove(70000);
+        bitmap.remove(3);
+        assertArrayEquals(new int[]{1, 5}, bitmap.toArray());
+        bitmap.remove(1);
+        bitmap.remove(5);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void testDenseChunksSwitchRepresentation() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(10000, bitmap.getCardinality());
+        for (int i = 0; i < 10000; i += 2) {
+            bitmap.remove(i);
+        }
+        assertEquals(5000, bitmap.getCardinality());
+        assertTrue(bitmap.contains(9999));
+        assertFalse(bitmap.contains(9998));
+        for (int i = 1; i < 10000; i += 4) {
+            bitmap.remove(i);
+        }
+        assertEquals(2500, bitmap.getCardinality());
+        assertEquals(3, bitmap.toArray()[0]);
+    }
+
+    // Compares the set operations against java.util.BitSet on mixed sparse and dense data
+    @Test
+    public void testSetOperationsMatchBitSet() {
+        Random random = new Random(42);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        CompressedBitmap x = new CompressedBitmap();
+        CompressedBitmap y = new CompressedBitmap();
+        for (int i = 0; i < 60000; i++) {
+            int dense = random.nextInt(20000);
+            int sparse = random.nextInt(1 << 22);
+            a.set(dense);
+            x.add(dense);
+            b.set(sparse);
+            y.add(sparse);
+            if (i % 3 == 0) {
+                b.set(dense);
+                y.add(dense);
+            }
+        }
+
+        BitSet and = (BitSet) a.clone();
+        and.and(b);
+        BitSet or = (BitSet) a.clone();
+        or.or(b);
+        BitSet andNot = (BitSet) a.clone();
+        andNot.andNot(b);
+        BitSet reverse = (BitSet) b.clone();
+        reverse.andNot(a);
+
+        assertArrayEquals(and.stream().toArray(), x.and(y).toArray());
+        assertArrayEquals(or.stream().toArray(), x.or(y).toArray());
+        assertArrayEquals(andNot.stream().toArray(), x.andNot(y).toArray());
+        assertArrayEquals(reverse.stream().toArray(), y.andNot(x).toArray());
+        assertEquals(or.cardinality(), x.or(y).getCardinality());
+        assertEquals(x, x.copy());
+    }
+}
@@ -0,0 +1,82 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPoolTest {
+
+    // Connections that only know whether they have been closed
+    private static Connection fakeConnection() {
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close": closed[0] = true; return null;
+                        case "isClosed": return closed[0];
+                        case "isValid": return !closed[0];
+                        case "hashCode": return System.identityHashCode(proxy);
+                        case "equals": return proxy == args[0];
+                        default: return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ConnectionPool pool = new ConnectionPool(() -> {
+            created.incrementAndGet();
+            return fakeConnection();
+        }, 2, 100);
+
+        Connection first = pool.borrow();
+        pool.release(first);
+        assertSame(first, pool.borrow());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testBorrowWaitsForFreeConnection() throws Exception {
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::fakeConnection, 1, 50);
+        Connection only = pool.borrow();
+        try {
+            pool.borrow();
+            fail("Expected a timeout");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("No database connection free"));
+        }
+        pool.release(only);
+        assertNotNull(pool.borrow());
+    }
+
+    @Test
+    public void testClosedConnectionIsReplaced() throws Exception {
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::fakeConnection, 1, 100);
+        Connection broken = pool.borrow();
+        broken.close();
+        pool.release(broken);
+
+        assertEquals(0, pool.getIdleCount());
+        assertNotSame(broken, pool.borrow());
+    }
+
+    @Test
+    public void testCloseClosesIdleConnections() throws Exception {
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::fakeConnection, 2, 100);
+        Connection connection = pool.borrow();
+        pool.release(connection);
+        pool.close();
+
+        assertTrue(connection.isClosed());
+        try {
+            pool.borrow();
+            fail("Expected the pool to be closed");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+}
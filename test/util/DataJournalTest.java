@@ -0,0 +1,95 @@
+package util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DataJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private DataJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.getRoot();
+        journal = new DataJournal(directory, DataJournal.SyncPolicy.ALWAYS, 0);
+    }
+
+    @Test
+    public void testReplayInOrder() throws Exception {
+        journal.appendPut(EntityType.FEE, 1, "1,F001,first");
+        journal.appendPut(EntityType.FEE, 2, "2,F002,second");
+        journal.appendDelete(EntityType.FEE, 1);
+        journal.close();
+
+        List<String> events = replay(new DataJournal(directory, DataJournal.SyncPolicy.NEVER, 0), EntityType.FEE);
+        assertEquals(3, events.size());
+        assertEquals("put 1 1,F001,first", events.get(0));
+        assertEquals("put 2 2,F002,second", events.get(1));
+        assertEquals("delete 1", events.get(2));
+    }
+
+    @Test
+    public void testJournalsArePerEntityType() throws Exception {
+        journal.appendPut(EntityType.STUDENT, 1, "student");
+        journal.appendPut(EntityType.ROOM, 1, "room");
+
+        assertEquals(1, journal.getRecordCount(EntityType.STUDENT));
+        assertEquals(1, journal.getRecordCount(EntityType.ROOM));
+        assertEquals(0, journal.getRecordCount(EntityType.FEE));
+        assertTrue(new File(directory, "students.journal").exists());
+        assertTrue(new File(directory, "rooms.journal").exists());
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws Exception {
+        journal.appendPut(EntityType.CONTRACT, 1, "1,C001");
+        journal.close();
+        try (FileWriter writer = new FileWriter(new File(directory, "contracts.journal"), true)) {
+            writer.write("deadbeef|P|2|1,C0");
+        }
+
+        DataJournal reopened = new DataJournal(directory, DataJournal.SyncPolicy.ALWAYS, 0);
+        assertEquals(1, replay(reopened, EntityType.CONTRACT).size());
+
+        // Records appended after recovery must not be hidden behind the damaged tail
+        reopened.appendPut(EntityType.CONTRACT, 3, "3,C003");
+        reopened.close();
+        List<String> events = replay(new DataJournal(directory, DataJournal.SyncPolicy.NEVER, 0), EntityType.CONTRACT);
+        assertEquals(2, events.size());
+        assertEquals("put 3 3,C003", events.get(1));
+    }
+
+    @Test
+    public void testTruncateAfterCheckpoint() throws Exception {
+        journal.appendPut(EntityType.STUDENT, 1, "student");
+        journal.truncate(EntityType.STUDENT);
+
+        assertEquals(0, journal.getRecordCount(EntityType.STUDENT));
+        assertTrue(replay(journal, EntityType.STUDENT).isEmpty());
+    }
+
+    private List<String> replay(DataJournal source, EntityType type) throws Exception {
+        List<String> events = new ArrayList<>();
+        source.replay(type, new DataJournal.Visitor() {
+            @Override
+            public void put(int id, String record) {
+                events.add("put " + id + " " + record);
+            }
+
+            @Override
+            public void delete(int id) {
+                events.add("delete " + id);
+            }
+        });
+        return events;
+    }
+}
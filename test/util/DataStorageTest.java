@@ -6,6 +6,10 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class DataStorageTest {
     private DataStorage dataStorage;
@@ -17,9 +21,11 @@ public class DataStorageTest {
     @Before
     public void setUp() {
         dataStorage = DataStorage.getInstance();
-        
+        // codes are unique, so every test needs its own
+        String suffix = Long.toString(System.nanoTime(), 36);
+
         testStudent = new Student(
-            "TST001",
+            "TST" + suffix,
             "Test Student",
             LocalDate.now(),
             "Male",
@@ -29,13 +35,13 @@ public class DataStorageTest {
         );
 
         testRoom = new Room(
-            "TR101",
+            "TR" + suffix,
             4,
             new BigDecimal("120.00")
         );
 
         testContract = new Contract(
-            "TC001",
+            "TC" + suffix,
             1,
             1,
             LocalDate.now(),
@@ -44,7 +50,7 @@ public class DataStorageTest {
         );
 
         testFee = new Fee(
-            "TF001",
+            "TF" + suffix,
             1,
             FeeType.ROOM_FEE,
             new BigDecimal("120.00"),
@@ -84,6 +90,62 @@ public class DataStorageTest {
         assertEquals(testFee.getFeeCode(), retrieved.getFeeCode());
     }
 
+    @Test
+    public void testGetIdsSortedAndFollowsDeletes() {
+        dataStorage.addStudent(testStudent);
+        int[] ids = dataStorage.getIds(EntityType.STUDENT);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+        assertEquals(testStudent.getStudentId(), ids[ids.length - 1]);
+
+        dataStorage.deleteStudent(testStudent.getStudentId());
+        int[] after = dataStorage.getIds(EntityType.STUDENT);
+        assertEquals(ids.length - 1, after.length);
+    }
+
+    @Test
+    public void testListenersSeeInsertsUpdatesAndCascadedDeletes() {
+        List<StorageEvent> seen = new ArrayList<>();
+        StorageListener listener = seen::addAll;
+        dataStorage.addStorageListener(listener);
+        try {
+            dataStorage.addStudent(testStudent);
+            int studentId = testStudent.getStudentId();
+            testFee.setStudentId(studentId);
+            dataStorage.addFee(testFee);
+            testFee.setDescription("changed");
+            dataStorage.updateFee(testFee);
+            dataStorage.deleteStudent(studentId);
+
+            assertEquals(Arrays.asList(
+                    new StorageEvent(EntityType.STUDENT, studentId, StorageEvent.Kind.INSERT),
+                    new StorageEvent(EntityType.FEE, testFee.getFeeId(), StorageEvent.Kind.INSERT),
+                    new StorageEvent(EntityType.FEE, testFee.getFeeId(), StorageEvent.Kind.UPDATE),
+                    new StorageEvent(EntityType.STUDENT, studentId, StorageEvent.Kind.DELETE),
+                    new StorageEvent(EntityType.FEE, testFee.getFeeId(), StorageEvent.Kind.DELETE)), seen);
+        } finally {
+            dataStorage.removeStorageListener(listener);
+        }
+    }
+
+    @Test
+    public void testStatisticsStayConsistentWithTheTables() {
+        int students = dataStorage.getStatistics().getTotalStudents();
+        dataStorage.addStudent(testStudent);
+        testFee.setStudentId(testStudent.getStudentId());
+        dataStorage.addFee(testFee);
+        dataStorage.recordFeePayment(testFee.getFeeId());
+        testStudent.setStatus("INACTIVE");
+        dataStorage.updateStudent(testStudent);
+
+        assertEquals(students + 1, dataStorage.getStatistics().getTotalStudents());
+        assertTrue(dataStorage.verifyStatistics().isEmpty());
+        dataStorage.deleteStudent(testStudent.getStudentId());
+        assertEquals(students, dataStorage.getStatistics().getTotalStudents());
+        assertTrue(dataStorage.verifyStatistics().isEmpty());
+    }
+
     @Test
     public void testUpdateStudent() {
         dataStorage.addStudent(testStudent);
@@ -130,4 +192,108 @@ public class DataStorageTest {
         dataStorage.addRoom(testRoom);
         assertFalse(dataStorage.isRoomFull(testRoom.getRoomId()));
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testLookupByCode() {
+        dataStorage.addStudent(testStudent);
+        dataStorage.addRoom(testRoom);
+        dataStorage.addContract(testContract);
+        dataStorage.addFee(testFee);
+        assertSame(testStudent, dataStorage.getStudentByCode(testStudent.getStudentCode()));
+        assertSame(testRoom, dataStorage.getRoomByNumber(testRoom.getRoomNumber()));
+        assertSame(testContract, dataStorage.getContractByCode(testContract.getContractCode()));
+        assertSame(testFee, dataStorage.getFeeByCode(testFee.getFeeCode()));
+        assertNull(dataStorage.getStudentByCode("no such code"));
+    }
+
+    @Test
+    public void testDuplicateCodesRejected() {
+        assertTrue(dataStorage.addStudent(testStudent));
+        Student duplicate = new Student(testStudent.getStudentCode(), "Other", LocalDate.now(),
+                "Female", "0123456789", "other@example.com", "Test City");
+        assertFalse(dataStorage.addStudent(duplicate));
+
+        assertTrue(dataStorage.addRoom(testRoom));
+        Room other = new Room(testRoom.getRoomNumber() + "B", 4, new BigDecimal("120.00"));
+        assertTrue(dataStorage.addRoom(other));
+        assertFalse(dataStorage.isRoomNumberAvailable(testRoom.getRoomNumber(), other.getRoomId()));
+        assertTrue(dataStorage.isRoomNumberAvailable(other.getRoomNumber(), other.getRoomId()));
+        String otherNumber = other.getRoomNumber();
+        Room edited = new Room(testRoom.getRoomNumber(), 4, new BigDecimal("150.00"));
+        edited.setRoomId(other.getRoomId());
+        assertFalse(dataStorage.updateRoom(edited));
+        assertSame(testRoom, dataStorage.getRoomByNumber(testRoom.getRoomNumber()));
+        assertSame(other, dataStorage.getRoomById(other.getRoomId()));
+        assertEquals(otherNumber, dataStorage.getRoomById(other.getRoomId()).getRoomNumber());
+        assertTrue(dataStorage.verifyStatistics().isEmpty());
+    }
+
+    @Test
+    public void testCodeFreedOnDeleteAndRename() {
+        dataStorage.addContract(testContract);
+        String code = testContract.getContractCode();
+        testContract.setContractCode(code + "X");
+        assertTrue(dataStorage.updateContract(testContract));
+        assertNull(dataStorage.getContractByCode(code));
+        assertSame(testContract, dataStorage.getContractByCode(code + "X"));
+
+        assertTrue(dataStorage.deleteContract(testContract.getContractId()));
+        assertNull(dataStorage.getContractByCode(code + "X"));
+    }
+
+    @Test
+    public void testRelatedRowsFollowUpdatesAndCascades() {
+        dataStorage.addStudent(testStudent);
+        dataStorage.addRoom(testRoom);
+        int studentId = testStudent.getStudentId();
+        dataStorage.assignStudentToRoom(studentId, testRoom.getRoomId());
+        testContract.setStudentId(studentId);
+        testContract.setRoomId(testRoom.getRoomId());
+        dataStorage.addContract(testContract);
+        testFee.setStudentId(studentId);
+        dataStorage.addFee(testFee);
+
+        assertEquals(Collections.singletonList(testStudent), dataStorage.getStudentsInRoom(testRoom.getRoomId()));
+        assertEquals(Collections.singletonList(testContract), dataStorage.getContractsForRoom(testRoom.getRoomId()));
+        assertEquals(Collections.singletonList(testFee), dataStorage.getFeesForStudent(studentId));
+
+        dataStorage.deleteRoom(testRoom.getRoomId());
+        assertTrue(dataStorage.getStudentsInRoom(testRoom.getRoomId()).isEmpty());
+        assertTrue(dataStorage.getContractsForStudent(studentId).isEmpty());
+        assertNull(dataStorage.getContractById(testContract.getContractId()));
+
+        dataStorage.deleteStudent(studentId);
+        assertTrue(dataStorage.getFeesForStudent(studentId).isEmpty());
+        assertNull(dataStorage.getFeeById(testFee.getFeeId()));
+    }
+
+    @Test
+    public void testPaymentRemovesFeeFromOverdueList() {
+        testFee.setDueDate(LocalDate.of(2001, 1, 1));
+        dataStorage.addFee(testFee);
+        assertTrue(dataStorage.getOverdueFees(LocalDate.of(2001, 1, 2)).contains(testFee));
+        assertTrue(dataStorage.getFeesDueBetween(LocalDate.of(2001, 1, 1), LocalDate.of(2001, 1, 1)).contains(testFee));
+
+        assertTrue(dataStorage.recordFeePayment(testFee.getFeeId()));
+        assertEquals("PAID", testFee.getPaymentStatus());
+        assertFalse(dataStorage.getOverdueFees(LocalDate.of(2001, 1, 2)).contains(testFee));
+    }
+
+    @Test
+    public void testBitmapFiltersFollowUpdates() {
+        testFee.setFeeType(FeeType.ELECTRICITY);
+        dataStorage.addFee(testFee);
+        int feeId = testFee.getFeeId();
+        CompressedBitmap pendingElectricity = dataStorage.select(IndexedColumn.FEE_TYPE, "ELECTRICITY")
+                .and(dataStorage.select(IndexedColumn.FEE_STATUS, "PENDING"));
+        assertTrue(pendingElectricity.contains(feeId));
+
+        int paidBefore = dataStorage.count(IndexedColumn.FEE_STATUS, "PAID");
+        dataStorage.recordFeePayment(feeId);
+        assertFalse(dataStorage.select(IndexedColumn.FEE_STATUS, "PENDING").contains(feeId));
+        assertEquals(paidBefore + 1, dataStorage.count(IndexedColumn.FEE_STATUS, "PAID"));
+
+        dataStorage.deleteFee(feeId);
+        assertFalse(dataStorage.select(IndexedColumn.FEE_TYPE, "ELECTRICITY").contains(feeId));
+    }
+}
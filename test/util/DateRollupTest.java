@@ -0,0 +1,51 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.time.LocalDate;
+
+public class DateRollupTest {
+
+    private static LocalDate day(String date) {
+        return LocalDate.parse(date);
+    }
+
+    @Test
+    public void testSumsAcrossDayAndMonthBuckets() {
+        DateRollup rollup = new DateRollup();
+        rollup.add(day("2024-01-30"), 10, 1);
+        rollup.add(day("2024-02-10"), 20, 1);
+        rollup.add(day("2024-03-01"), 40, 1);
+        rollup.add(day("2024-03-05"), 80, 1);
+        rollup.add(null, 1000, 1);
+
+        DateRollup.Total all = rollup.sum(null, null);
+        assertEquals(4, all.getCount());
+        assertEquals(150, all.getAmount());
+
+        DateRollup.Total middle = rollup.sum(day("2024-01-31"), day("2024-03-01"));
+        assertEquals(2, middle.getCount());
+        assertEquals(60, middle.getAmount());
+
+        assertEquals(1, rollup.sum(day("2024-03-02"), day("2024-03-31")).getCount());
+        assertEquals(0, rollup.sum(day("2024-04-01"), null).getCount());
+        assertEquals(day("2024-01-30"), rollup.getFirstDate());
+        assertEquals(day("2024-03-05"), rollup.getLastDate());
+    }
+
+    @Test
+    public void testTakingBackEmptiesBuckets() {
+        DateRollup rollup = new DateRollup();
+        rollup.add(day("2024-05-01"), 1250, 1);
+        rollup.add(day("2024-05-01"), 1250, -1);
+        assertTrue(rollup.isEmpty());
+        assertTrue(rollup.matches(new DateRollup()));
+
+        DateRollup other = new DateRollup();
+        rollup.add(day("2024-05-02"), 1250, 1);
+        other.add(day("2024-05-02"), 1250, 1);
+        assertTrue(rollup.matches(other));
+        other.add(day("2024-05-02"), 1, 1);
+        assertFalse(rollup.matches(other));
+    }
+}
@@ -0,0 +1,48 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DirtyTrackerTest {
+
+    @Test
+    public void testOnlyChangedTypesAreDirty() {
+        DirtyTracker tracker = new DirtyTracker();
+        assertFalse(tracker.isDirty(EntityType.STUDENT));
+
+        tracker.markChanged(EntityType.STUDENT, Arrays.asList(1, 2));
+        assertTrue(tracker.isDirty(EntityType.STUDENT));
+        assertFalse(tracker.isDirty(EntityType.ROOM));
+
+        DirtyTracker.Changes changes = tracker.takeChanges(EntityType.STUDENT);
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(changes.getIds().toArray()));
+        tracker.markSaved(changes);
+        assertFalse(tracker.isDirty(EntityType.STUDENT));
+    }
+
+    @Test
+    public void testChangeDuringSaveStaysDirty() {
+        DirtyTracker tracker = new DirtyTracker();
+        tracker.markChanged(EntityType.FEE, Collections.singleton(5));
+        DirtyTracker.Changes changes = tracker.takeChanges(EntityType.FEE);
+
+        tracker.markChanged(EntityType.FEE, Collections.singleton(6));
+        tracker.markSaved(changes);
+
+        assertTrue(tracker.isDirty(EntityType.FEE));
+        assertEquals(Collections.singleton(6), tracker.takeChanges(EntityType.FEE).getIds());
+    }
+
+    @Test
+    public void testRestoreAfterFailedSave() {
+        DirtyTracker tracker = new DirtyTracker();
+        tracker.markChanged(EntityType.CONTRACT, Collections.singleton(3));
+        DirtyTracker.Changes changes = tracker.takeChanges(EntityType.CONTRACT);
+        tracker.restore(changes);
+
+        assertTrue(tracker.isDirty(EntityType.CONTRACT));
+        assertEquals(Collections.singleton(3), tracker.takeChanges(EntityType.CONTRACT).getIds());
+    }
+}
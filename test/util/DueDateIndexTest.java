@@ -0,0 +1,51 @@
+package util;
+
+import model.Fee;
+import model.FeeType;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DueDateIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    private static Fee fee(int id, LocalDate dueDate) {
+        Fee fee = new Fee("F" + id, 1, FeeType.ROOM_FEE, new BigDecimal("120.00"), dueDate);
+        fee.setFeeId(id);
+        return fee;
+    }
+
+    @Test
+    public void testRangesOrderedByDateThenId() {
+        DueDateIndex index = new DueDateIndex();
+        index.put(fee(5, DAY));
+        index.put(fee(2, DAY));
+        index.put(fee(9, DAY.minusDays(1)));
+        index.put(fee(1, DAY.plusDays(1)));
+        index.put(fee(3, null));
+
+        assertEquals(Arrays.asList(9, 2, 5, 1), index.getDueBetween(DAY.minusDays(1), DAY.plusDays(1)));
+        assertEquals(Arrays.asList(2, 5), index.getDueBetween(DAY, DAY));
+        assertEquals(Collections.singletonList(9), index.getDueBefore(DAY));
+        assertTrue(index.getDueBetween(DAY, DAY.minusDays(1)).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testPaidAndMovedFeesLeaveTheirOldEntry() {
+        DueDateIndex index = new DueDateIndex();
+        Fee fee = fee(4, DAY);
+        index.put(fee);
+        fee.setDueDate(DAY.plusMonths(1));
+        index.put(fee);
+        assertTrue(index.getDueBetween(DAY, DAY).isEmpty());
+
+        fee.setPaymentStatus("PAID");
+        index.put(fee);
+        assertEquals(0, index.size());
+        assertTrue(index.getDueBefore(DAY.plusYears(1)).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package util;
+
+import model.Fee;
+import model.FeeType;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures the heap taken by a fee table of ConcurrentHashMap against IntObjectMap, not
+ * counting the fees themselves, and times lookups of ids in random order in both.
+ * Run with: java -Xmx2g -cp ... util.EntityTableFootprintBenchmark [feeCount]
+ */
+public class EntityTableFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Fee[] fees = new Fee[count];
+        for (int i = 0; i < count; i++) {
+            fees[i] = new Fee(String.format("F%07d", i + 1), i % 5000 + 1, FeeType.ROOM_FEE,
+                    new BigDecimal("120.00"), LocalDate.of(2025, 1, 1).plusDays(i % 365));
+            fees[i].setFeeId(i + 1);
+        }
+
+        long before = usedHeap();
+        Map<Integer, Fee> concurrent = new ConcurrentHashMap<>();
+        for (Fee fee : fees) {
+            concurrent.put(fee.getFeeId(), fee);
+        }
+        long concurrentBytes = usedHeap() - before;
+        double concurrentLookup = timeLookups(concurrent, count);
+        concurrent = null;
+
+        before = usedHeap();
+        IntObjectMap<Fee> primitive = new IntObjectMap<>();
+        for (Fee fee : fees) {
+            primitive.put(fee.getFeeId(), fee);
+        }
+        long primitiveBytes = usedHeap() - before;
+        double primitiveLookup = timeLookups(primitive, count);
+
+        System.out.printf("%d fees%n", count);
+        System.out.printf("ConcurrentHashMap: %6.1f MB (%5.1f bytes/entry), lookup %5.1f ns%n",
+                concurrentBytes / 1e6, (double) concurrentBytes / count, concurrentLookup);
+        System.out.printf("IntObjectMap:      %6.1f MB (%5.1f bytes/entry), lookup %5.1f ns%n",
+                primitiveBytes / 1e6, (double) primitiveBytes / count, primitiveLookup);
+        // the fees must outlive both measurements or their collection would skew the second
+        Reference.reachabilityFence(fees);
+        Reference.reachabilityFence(primitive);
+    }
+
+    private static double timeLookups(Map<Integer, Fee> table, int count) {
+        int[] ids = new int[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count; i++) {
+            int j = random.nextInt(i + 1);
+            ids[i] = ids[j];
+            ids[j] = i + 1;
+        }
+        long sum = 0;
+        long start = 0;
+        for (int round = 0; round < 6; round++) {
+            if (round == 1) {
+                start = System.nanoTime();
+            }
+            for (int id : ids) {
+                sum += table instanceof IntObjectMap ? ((IntObjectMap<Fee>) table).get(id).getStudentId()
+                        : table.get(id).getStudentId();
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / (5L * count);
+        if (sum == 42) {
+            System.out.println();
+        }
+        return nanos;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
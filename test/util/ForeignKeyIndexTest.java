@@ -0,0 +1,51 @@
+package util;
+
+import model.Fee;
+import model.FeeType;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ForeignKeyIndexTest {
+
+    private static Fee fee(int id, int studentId) {
+        Fee fee = new Fee("F" + id, studentId, FeeType.ROOM_FEE, new BigDecimal("120.00"), LocalDate.now());
+        fee.setFeeId(id);
+        return fee;
+    }
+
+    @Test
+    public void testChildrenFollowTheirParent() {
+        ForeignKeyIndex<Fee> index = new ForeignKeyIndex<>(Fee::getStudentId);
+        Fee moved = fee(2, 1);
+        index.put(3, fee(3, 1));
+        index.put(2, moved);
+        index.put(4, fee(4, 9));
+        assertEquals(Arrays.asList(2, 3), index.get(1));
+
+        moved.setStudentId(9);
+        index.put(2, moved);
+        assertEquals(Collections.singletonList(3), index.get(1));
+        assertEquals(Arrays.asList(2, 4), index.get(9));
+
+        index.remove(3);
+        assertEquals(0, index.count(1));
+        assertTrue(index.get(1).isEmpty());
+    }
+
+    @Test
+    public void testParentZeroIsNotIndexed() {
+        Map<Integer, Fee> table = new HashMap<>();
+        table.put(1, fee(1, 0));
+        table.put(2, fee(2, 5));
+        ForeignKeyIndex<Fee> index = new ForeignKeyIndex<>(Fee::getStudentId);
+        index.rebuild(table);
+        assertTrue(index.get(0).isEmpty());
+        assertEquals(Collections.singletonList(2), index.get(5));
+    }
+}
@@ -0,0 +1,98 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void testPutGetRemoveAndRevive() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertNull(map.put(7, "seven"));
+        assertEquals("seven", map.put(7, "SEVEN"));
+        assertEquals("SEVEN", map.get(7));
+        assertEquals("SEVEN", map.get((Object) 7));
+        assertNull(map.get("7"));
+
+        assertEquals("SEVEN", map.remove(7));
+        assertNull(map.get(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(0, map.size());
+        assertNull(map.put(7, "again"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testGrowsAndKeepsEveryEntry() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(20_000) - 10_000;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, Integer.valueOf(i)));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void testIteratorRemoveAndViews() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int i = 1; i <= 10; i++) {
+            map.put(i, "v" + i);
+        }
+        map.values().removeIf(value -> value.endsWith("0") || value.equals("v3"));
+        assertEquals(8, map.size());
+        assertFalse(map.keySet().contains(3));
+        assertTrue(map.keySet().contains(4));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.keys().length);
+    }
+
+    @Test
+    public void testReadersNeverSeeTornEntries() throws Exception {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (int key = 0; key < 5_000; key++) {
+                    Integer value = map.get(key);
+                    if (value != null && value != key) {
+                        failure.set("key " + key + " read " + value);
+                    }
+                }
+                map.forEachEntry((key, value) -> {
+                    if (key != value) {
+                        failure.set("entry " + key + " -> " + value);
+                    }
+                });
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 5_000; key++) {
+                map.put(key, Integer.valueOf(key));
+            }
+            for (int key = round % 2; key < 5_000; key += 2) {
+                map.remove(key);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
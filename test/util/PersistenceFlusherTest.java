@@ -0,0 +1,110 @@
+package util;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PersistenceFlusherTest {
+    private final List<Map<EntityType, Set<Integer>>> batches = new CopyOnWriteArrayList<>();
+    private PersistenceFlusher flusher;
+
+    @After
+    public void tearDown() {
+        if (flusher != null) {
+            flusher.close();
+        }
+    }
+
+    @Test
+    public void testChangesAreCoalescedIntoOneBatch() {
+        flusher = new PersistenceFlusher(batches::add, 60000, 1000);
+        for (int i = 0; i < 300; i++) {
+            flusher.markDirty(EntityType.FEE, Collections.singletonList(i % 50));
+        }
+        flusher.markDirty(EntityType.STUDENT, Arrays.asList(1, 2));
+
+        assertTrue(flusher.flush());
+        assertEquals(1, batches.size());
+        assertEquals(50, batches.get(0).get(EntityType.FEE).size());
+        assertEquals(2, batches.get(0).get(EntityType.STUDENT).size());
+        assertEquals(0, flusher.getDirtyCount());
+    }
+
+    @Test
+    public void testThresholdTriggersEarlyWrite() {
+        flusher = new PersistenceFlusher(batches::add, 60000, 10);
+        for (int i = 0; i < 10; i++) {
+            flusher.markDirty(EntityType.ROOM, Collections.singletonList(i));
+        }
+        assertTrue(flusher.awaitDurable(5000));
+        assertFalse(batches.isEmpty());
+    }
+
+    @Test
+    public void testIntervalTriggersWrite() {
+        flusher = new PersistenceFlusher(batches::add, 20, 1000);
+        flusher.markDirty(EntityType.CONTRACT, Collections.singletonList(7));
+        assertTrue(flusher.awaitDurable(5000));
+        assertTrue(batches.get(0).get(EntityType.CONTRACT).contains(7));
+    }
+
+    @Test
+    public void testFailedWriteIsReported() {
+        flusher = new PersistenceFlusher(batch -> {
+            throw new java.io.IOException("disk full");
+        }, 60000, 1000);
+        flusher.markDirty(EntityType.FEE, Collections.singletonList(1));
+        assertFalse(flusher.flush());
+        assertEquals(1, flusher.getDirtyCount());
+    }
+
+    @Test
+    public void testFlushWaitsForTheRetryOfAFailedWrite() {
+        AtomicInteger attempts = new AtomicInteger();
+        flusher = new PersistenceFlusher(batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new java.io.IOException("disk full");
+            }
+            batches.add(batch);
+        }, 50, 1000);
+        flusher.markDirty(EntityType.FEE, Collections.singletonList(1));
+        assertFalse(flusher.flush());
+
+        // nothing new was marked, but the requeued record is written by the retry
+        assertTrue(flusher.flush());
+        assertEquals(2, attempts.get());
+        assertTrue(batches.get(0).get(EntityType.FEE).contains(1));
+    }
+
+    @Test
+    public void testFailureIsReportedOnceUntilItClears() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> reports = new CopyOnWriteArrayList<>();
+        flusher = new PersistenceFlusher(batch -> {
+            if (attempts.incrementAndGet() <= 3) {
+                throw new java.io.IOException("disk full");
+            }
+        }, 10, 1000, new PersistenceFlusher.FailureListener() {
+            @Override
+            public void failed(Exception e) {
+                reports.add("failed: " + e.getMessage());
+            }
+
+            @Override
+            public void recovered() {
+                reports.add("recovered");
+            }
+        });
+        flusher.markDirty(EntityType.ROOM, Collections.singletonList(3));
+        while (!flusher.flush()) {
+            assertTrue(attempts.get() <= 3);
+        }
+        flusher.close();
+
+        assertEquals(4, attempts.get());
+        assertEquals(Arrays.asList("failed: disk full", "recovered"), reports);
+    }
+}
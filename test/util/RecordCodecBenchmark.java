@@ -0,0 +1,82 @@
+package util;
+
+import model.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the split-based fee parser the loader used before with RecordCodec
+ * on the same in-memory fees file.
+ * Run with: java -cp ... util.RecordCodecBenchmark [feeCount]
+ */
+public class RecordCodecBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        StringBuilder text = new StringBuilder();
+        FeeType[] types = FeeType.values();
+        for (int i = 1; i <= count; i++) {
+            Fee fee = new Fee("F" + i, i % 5000 + 1, types[i % types.length],
+                    new BigDecimal(i % 300 + ".50"), LocalDate.of(2024, 1, 1).plusDays(i % 700));
+            fee.setFeeId(i);
+            if (i % 3 == 0) {
+                fee.setPaymentStatus("PAID");
+                fee.setPaymentDate(fee.getDueDate().minusDays(2));
+                fee.setDescription("Paid at the office");
+            }
+            text.append(TextRecordFormat.formatFee(fee)).append('\n');
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%d fees, %.1f MB%n", count, data.length / 1e6);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Fee> split = new ArrayList<>(count);
+            for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                split.add(parseFeeWithSplit(line));
+            }
+            long splitNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Fee> codec = new ArrayList<>(count);
+            SnapshotFile.Chunk chunk = new SnapshotFile.Chunk(data, 0, data.length);
+            RecordCodec.Reader reader = chunk.reader();
+            while (reader.nextRecord()) {
+                codec.add((Fee) TextRecordFormat.read(EntityType.FEE, reader));
+            }
+            long codecNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: split %6.1f ms, codec %6.1f ms (%d/%d rows)%n", round,
+                    splitNanos / 1e6, codecNanos / 1e6, split.size(), codec.size());
+        }
+    }
+
+    // The loader as it was before RecordCodec
+    private static Fee parseFeeWithSplit(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 10) {
+            return null;
+        }
+        Fee fee = new Fee(
+            parts[1],
+            Integer.parseInt(parts[2]),
+            FeeType.valueOf(parts[3]),
+            new BigDecimal(parts[4]),
+            LocalDate.parse(parts[7])
+        );
+        fee.setFeeId(Integer.parseInt(parts[0]));
+        fee.setPaymentMethod(parts[5]);
+        fee.setPaymentStatus(parts[6]);
+        if (!"null".equals(parts[8])) {
+            fee.setPaymentDate(LocalDate.parse(parts[8]));
+        }
+        if (!"null".equals(parts[9])) {
+            fee.setDescription(parts[9].replace(";;", ","));
+        }
+        return fee;
+    }
+}
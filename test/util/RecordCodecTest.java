@@ -0,0 +1,91 @@
+package util;
+
+import model.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class RecordCodecTest {
+
+    @Test
+    public void testReadTypedFields() {
+        RecordCodec.Reader reader = new RecordCodec.Reader("42,-7,120.50,2025-05-29,null,text");
+        assertTrue(reader.nextRecord());
+        assertEquals(42, reader.readInt());
+        assertEquals(-7, reader.readInt());
+        BigDecimal amount = reader.readDecimal();
+        assertEquals(new BigDecimal("120.50"), amount);
+        assertEquals(2, amount.scale());
+        assertEquals(LocalDate.of(2025, 5, 29), reader.readDate());
+        assertNull(reader.readNullableDate());
+        assertEquals("text", reader.readString());
+        reader.endRecord();
+        assertFalse(reader.nextRecord());
+    }
+
+    @Test
+    public void testQuotedFieldsRoundTrip() {
+        String line = new RecordCodec.Writer()
+            .writeString("Nguyễn, Văn \"A\"")
+            .writeNullableString("null")
+            .writeNullableString(null)
+            .toString();
+        assertEquals("\"Nguyễn, Văn \"\"A\"\"\",\"null\",null", line);
+
+        RecordCodec.Reader reader = new RecordCodec.Reader(line);
+        assertTrue(reader.nextRecord());
+        assertEquals("Nguyễn, Văn \"A\"", reader.readString());
+        assertEquals("null", reader.readNullableString(false));
+        assertNull(reader.readNullableString(false));
+        reader.endRecord();
+    }
+
+    @Test
+    public void testLegacyFeeDescription() {
+        Fee fee = TextRecordFormat.parseFee(
+            "1,F001,1,ROOM_FEE,120.00,CASH,PENDING,2025-05-29,null,Room;; May");
+        assertEquals("Room, May", fee.getDescription());
+        assertNull(fee.getPaymentDate());
+
+        fee.setDescription("Room, June;; paid");
+        Fee copy = TextRecordFormat.parseFee(TextRecordFormat.formatFee(fee));
+        assertEquals("Room, June;; paid", copy.getDescription());
+    }
+
+    @Test
+    public void testTrailingEmptyField() {
+        Fee fee = TextRecordFormat.parseFee("2,F002,2,ROOM_FEE,120.00,CASH,PAID,2025-05-29,2025-05-30,");
+        assertEquals(2, fee.getFeeId());
+        assertEquals("", fee.getDescription());
+        assertEquals(LocalDate.of(2025, 5, 30), fee.getPaymentDate());
+    }
+
+    @Test
+    public void testMultipleRecordsAndRecovery() {
+        char[] text = "1,a\r\nbroken\n\n3,c\n".toCharArray();
+        RecordCodec.Reader reader = new RecordCodec.Reader(text, 0, text.length);
+        assertTrue(reader.nextRecord());
+        assertEquals(1, reader.readInt());
+        assertEquals("a", reader.readString());
+        reader.endRecord();
+
+        assertTrue(reader.nextRecord());
+        try {
+            reader.readInt();
+            fail("Expected a parse error");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Field 1"));
+        }
+
+        assertTrue(reader.nextRecord());
+        assertEquals(3, reader.readInt());
+        assertEquals("c", reader.readString());
+        assertFalse(reader.nextRecord());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFieldIsRejected() {
+        TextRecordFormat.parseContract("1,C001,1,1,2025-05-29,2025-11-29,120.00,Cash,ACTIVE");
+    }
+}
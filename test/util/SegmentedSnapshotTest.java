@@ -0,0 +1,130 @@
+package util;
+
+import model.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+public class SegmentedSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<Integer, Fee> createFees(int count) {
+        Map<Integer, Fee> fees = new TreeMap<>();
+        for (int i = 1; i <= count; i++) {
+            Fee fee = new Fee("F" + i, 1, FeeType.ROOM_FEE, new BigDecimal("120.00"), LocalDate.of(2025, 1, 1));
+            fee.setFeeId(i);
+            fees.put(i, fee);
+        }
+        return fees;
+    }
+
+    private List<Integer> readIds(File file) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (String line : SnapshotFile.read(file)) {
+            ids.add(TextRecordFormat.parseFee(line).getFeeId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testFullWriteSplitsByIdRange() throws Exception {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false);
+        snapshot.write(createFees(25), null);
+
+        List<File> files = snapshot.listFiles();
+        assertEquals(3, files.size());
+        assertEquals("segment-0000.txt", files.get(0).getName());
+        assertEquals(Arrays.asList(21, 22, 23, 24, 25), readIds(files.get(2)));
+        assertEquals(0, snapshot.segmentOf(10));
+        assertEquals(1, snapshot.segmentOf(11));
+    }
+
+    @Test
+    public void testPartialWriteTouchesOnlyChangedSegments() throws Exception {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false);
+        Map<Integer, Fee> fees = createFees(25);
+        snapshot.write(fees, null);
+        File first = snapshot.getFile(0);
+        File second = snapshot.getFile(1);
+        assertTrue(first.setLastModified(1000));
+
+        fees.remove(12);
+        snapshot.write(fees, Collections.singleton(12));
+
+        assertEquals(1000, first.lastModified());
+        assertFalse(readIds(second).contains(12));
+        assertEquals(9, readIds(second).size());
+    }
+
+    @Test
+    public void testPartialWriteFromIntObjectMapKeepsIdOrder() throws Exception {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false);
+        IntObjectMap<Fee> fees = new IntObjectMap<>();
+        fees.putAll(createFees(25));
+        snapshot.write(fees, null);
+        assertEquals(Arrays.asList(11, 12, 13, 14, 15, 16, 17, 18, 19, 20), readIds(snapshot.getFile(1)));
+
+        fees.remove(15);
+        snapshot.write(fees, new HashSet<>(Arrays.asList(15, 25)));
+        assertEquals(Arrays.asList(11, 12, 13, 14, 16, 17, 18, 19, 20), readIds(snapshot.getFile(1)));
+        assertEquals(Arrays.asList(21, 22, 23, 24, 25), readIds(snapshot.getFile(2)));
+    }
+
+    @Test
+    public void testChangedSegmentSizeRewritesEverySegment() throws Exception {
+        Map<Integer, Fee> fees = createFees(25);
+        new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false).write(fees, null);
+
+        SegmentedSnapshot resized = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 4, false);
+        assertFalse(resized.isCurrentSize());
+        fees.get(12).setDescription("changed");
+        resized.write(fees, Collections.singleton(12));
+
+        assertTrue(resized.isCurrentSize());
+        assertEquals(7, resized.listFiles().size());
+        assertEquals(Arrays.asList(9, 10, 11, 12), readIds(resized.getFile(2)));
+        List<Integer> all = new ArrayList<>();
+        for (File file : resized.listFiles()) {
+            all.addAll(readIds(file));
+        }
+        assertEquals(new ArrayList<>(fees.keySet()), all);
+    }
+
+    @Test
+    public void testEmptiedSegmentIsDeleted() throws Exception {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false);
+        Map<Integer, Fee> fees = createFees(25);
+        snapshot.write(fees, null);
+
+        Set<Integer> removed = new HashSet<>(Arrays.asList(21, 22, 23, 24, 25));
+        fees.keySet().removeAll(removed);
+        snapshot.write(fees, removed);
+
+        assertEquals(2, snapshot.listFiles().size());
+        assertFalse(snapshot.getFile(2).exists());
+    }
+
+    @Test
+    public void testFormatSwitchReplacesOldFiles() throws Exception {
+        Map<Integer, Fee> fees = createFees(15);
+        new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, false).write(fees, null);
+
+        SegmentedSnapshot binary = new SegmentedSnapshot(folder.getRoot(), EntityType.FEE, 10, true);
+        assertFalse(binary.isCurrentFormat());
+        binary.write(fees, null);
+
+        assertTrue(binary.isCurrentFormat());
+        assertEquals(2, binary.listFiles().size());
+        List<Object> loaded = new ArrayList<>();
+        for (File file : binary.listFiles()) {
+            BinarySnapshot.read(file, EntityType.FEE, loaded::add);
+        }
+        assertEquals(15, loaded.size());
+    }
+}
@@ -0,0 +1,83 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnapshotFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File file = new File(folder.getRoot(), "students.txt");
+        List<String> lines = Arrays.asList("1,ST001,Nguyễn Văn A", "2,ST002,Trần Thị B");
+        SnapshotFile.write(file, lines);
+
+        assertEquals(lines, SnapshotFile.read(file));
+        assertFalse(new File(folder.getRoot(), "students.txt.tmp").exists());
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.contains("#checksum crc32="));
+        assertTrue(content.trim().endsWith("records=2"));
+    }
+
+    @Test
+    public void testOverwriteReplacesContent() throws Exception {
+        File file = new File(folder.getRoot(), "rooms.txt");
+        SnapshotFile.write(file, Arrays.asList("1,P401", "2,P402"));
+        SnapshotFile.write(file, Arrays.asList("3,P801"));
+
+        assertEquals(Arrays.asList("3,P801"), SnapshotFile.read(file));
+    }
+
+    @Test
+    public void testLegacyFileWithoutFooter() throws Exception {
+        File file = new File(folder.getRoot(), "fees.txt");
+        Files.write(file.toPath(), "1,F001\n2,F002\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Arrays.asList("1,F001", "2,F002"), SnapshotFile.read(file));
+    }
+
+    @Test(expected = SnapshotFile.CorruptSnapshotException.class)
+    public void testDamagedFileIsRejected() throws Exception {
+        File file = new File(folder.getRoot(), "contracts.txt");
+        SnapshotFile.write(file, Arrays.asList("1,C001,1,1", "2,C002,2,1"));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(3);
+            raf.write('X');
+        }
+        SnapshotFile.read(file);
+    }
+
+    @Test(expected = SnapshotFile.CorruptSnapshotException.class)
+    public void testTruncatedFileIsRejected() throws Exception {
+        File file = new File(folder.getRoot(), "students.txt");
+        SnapshotFile.write(file, Arrays.asList("1,ST001", "2,ST002", "3,ST003"));
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("#snapshot v1\n"));
+        // lost its tail after the second record, footer included
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(content.indexOf("3,ST003"));
+        }
+        SnapshotFile.read(file);
+    }
+
+    @Test
+    public void testEmptySnapshotHasNoRecords() throws Exception {
+        File file = new File(folder.getRoot(), "reports.txt");
+        SnapshotFile.write(file, Arrays.asList());
+        assertTrue(SnapshotFile.read(file).isEmpty());
+    }
+
+    @Test
+    public void testMissingFileIsEmpty() throws Exception {
+        assertTrue(SnapshotFile.read(new File(folder.getRoot(), "missing.txt")).isEmpty());
+    }
+}
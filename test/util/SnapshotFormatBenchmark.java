@@ -0,0 +1,67 @@
+package util;
+
+import model.*;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares loading the text snapshot with loading the binary snapshot of the same fees.
+ * Run with: java -cp ... util.SnapshotFormatBenchmark [feeCount]
+ */
+public class SnapshotFormatBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File directory = Files.createTempDirectory("snapshot-benchmark").toFile();
+        File textFile = new File(directory, EntityType.FEE.getFileName());
+        File binaryFile = new File(directory, EntityType.FEE.getBinaryFileName());
+
+        List<Fee> fees = new ArrayList<>();
+        FeeType[] types = FeeType.values();
+        for (int i = 1; i <= count; i++) {
+            Fee fee = new Fee("F" + i, i % 5000 + 1, types[i % types.length],
+                    new BigDecimal(i % 300 + ".50"), LocalDate.of(2024, 1, 1).plusDays(i % 700));
+            fee.setFeeId(i);
+            if (i % 3 == 0) {
+                fee.setPaymentStatus("PAID");
+                fee.setPaymentDate(fee.getDueDate().minusDays(2));
+            }
+            fees.add(fee);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Fee fee : fees) {
+            lines.add(TextRecordFormat.formatFee(fee));
+        }
+        SnapshotFile.write(textFile, lines);
+        BinarySnapshot.write(binaryFile, EntityType.FEE, fees);
+        System.out.printf("%d fees: text %.1f MB, binary %.1f MB%n", count,
+                textFile.length() / 1e6, binaryFile.length() / 1e6);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Fee> fromText = new ArrayList<>(count);
+            for (String line : SnapshotFile.read(textFile)) {
+                fromText.add(TextRecordFormat.parseFee(line));
+            }
+            long textNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Object> fromBinary = new ArrayList<>(count);
+            BinarySnapshot.read(binaryFile, EntityType.FEE, fromBinary::add);
+            long binaryNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: text %6.1f ms, binary %6.1f ms (%d/%d rows)%n", round,
+                    textNanos / 1e6, binaryNanos / 1e6, fromText.size(), fromBinary.size());
+        }
+
+        textFile.delete();
+        binaryFile.delete();
+        directory.delete();
+    }
+}
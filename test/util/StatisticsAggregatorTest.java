@@ -0,0 +1,150 @@
+package util;
+
+import model.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+public class StatisticsAggregatorTest {
+    private EntityTables tables;
+    private StatisticsAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        tables = new EntityTables();
+        aggregator = new StatisticsAggregator(tables);
+    }
+
+    private void changed(EntityType type, int id, StorageEvent.Kind kind) {
+        aggregator.storageChanged(Collections.singletonList(new StorageEvent(type, id, kind)));
+    }
+
+    private Student student(int id) {
+        Student student = new Student("SV" + id, "Student " + id, LocalDate.of(2003, 1, 1),
+                "Nam", "0900000000", "sv" + id + "@example.com", "Hà Nội");
+        student.setStudentId(id);
+        tables.put(EntityType.STUDENT, student);
+        changed(EntityType.STUDENT, id, StorageEvent.Kind.INSERT);
+        return student;
+    }
+
+    private Room room(int id, int beds, int occupancy) {
+        Room room = new Room("R" + id, beds, new BigDecimal("500000"));
+        room.setRoomId(id);
+        room.setCurrentOccupancy(occupancy);
+        tables.put(EntityType.ROOM, room);
+        changed(EntityType.ROOM, id, StorageEvent.Kind.INSERT);
+        return room;
+    }
+
+    private Fee fee(int id, FeeType type, String amount) {
+        Fee fee = new Fee("F" + id, 1, type, new BigDecimal(amount), LocalDate.of(2024, 1, 31));
+        fee.setFeeId(id);
+        tables.put(EntityType.FEE, fee);
+        changed(EntityType.FEE, id, StorageEvent.Kind.INSERT);
+        return fee;
+    }
+
+    @Test
+    public void testCountsFollowInPlaceEdits() {
+        Student first = student(1);
+        student(2);
+        first.setStatus("INACTIVE");
+        changed(EntityType.STUDENT, 1, StorageEvent.Kind.UPDATE);
+
+        Statistics statistics = aggregator.snapshot();
+        assertEquals(2, statistics.getTotalStudents());
+        assertEquals(1, statistics.getStudentCount("ACTIVE"));
+        assertEquals(1, statistics.getStudentCount("INACTIVE"));
+
+        tables.remove(EntityType.STUDENT, 2);
+        changed(EntityType.STUDENT, 2, StorageEvent.Kind.DELETE);
+        statistics = aggregator.snapshot();
+        assertEquals(1, statistics.getTotalStudents());
+        assertEquals(0, statistics.getStudentCount("ACTIVE"));
+        assertTrue(aggregator.verify().isEmpty());
+    }
+
+    @Test
+    public void testBedsAndRoomsInUseByType() {
+        room(1, 4, 0);
+        Room second = room(2, 4, 2);
+        room(3, 8, 8);
+        second.setCurrentOccupancy(4);
+        changed(EntityType.ROOM, 2, StorageEvent.Kind.UPDATE);
+
+        Statistics statistics = aggregator.snapshot();
+        assertEquals(3, statistics.getTotalRooms());
+        assertEquals(2, statistics.getOccupiedRooms());
+        assertEquals(16, statistics.getTotalBeds());
+        assertEquals(12, statistics.getOccupiedBeds());
+        assertEquals(Integer.valueOf(2), statistics.getRoomsByType().get("4-Person"));
+        assertEquals(Integer.valueOf(1), statistics.getRoomsInUseByType().get("4-Person"));
+        assertEquals(75.0, statistics.getBedOccupancyRate(), 0.001);
+    }
+
+    @Test
+    public void testPaidAndPendingByFeeType() {
+        Fee rent = fee(1, FeeType.ROOM_FEE, "500000");
+        fee(2, FeeType.ROOM_FEE, "300000");
+        fee(3, FeeType.ELECTRICITY, "120000");
+        rent.setPaymentStatus("PAID");
+        changed(EntityType.FEE, 1, StorageEvent.Kind.UPDATE);
+
+        Statistics statistics = aggregator.snapshot();
+        assertEquals(0, new BigDecimal("800000").compareTo(statistics.getTotalByFeeType().get(FeeType.ROOM_FEE)));
+        assertEquals(0, new BigDecimal("500000").compareTo(statistics.getTotalRevenue()));
+        assertEquals(0, new BigDecimal("420000").compareTo(statistics.getTotalPending()));
+
+        tables.remove(EntityType.FEE, 3);
+        changed(EntityType.FEE, 3, StorageEvent.Kind.DELETE);
+        assertFalse(aggregator.snapshot().getFeeCountByType().containsKey(FeeType.ELECTRICITY));
+    }
+
+    @Test
+    public void testPeriodCountsPaymentsDueFeesAndContractStarts() {
+        Fee january = fee(1, FeeType.ROOM_FEE, "500000");
+        january.setDueDate(LocalDate.of(2024, 1, 10));
+        january.setPaymentStatus("PAID");
+        january.setPaymentDate(LocalDate.of(2024, 2, 3));
+        changed(EntityType.FEE, 1, StorageEvent.Kind.UPDATE);
+        Fee february = fee(2, FeeType.ROOM_FEE, "300000");
+        february.setDueDate(LocalDate.of(2024, 2, 10));
+        changed(EntityType.FEE, 2, StorageEvent.Kind.UPDATE);
+        Contract contract = new Contract("HD1", 1, 1, LocalDate.of(2024, 2, 1),
+                LocalDate.of(2024, 7, 31), new BigDecimal("500000"));
+        contract.setContractId(1);
+        tables.put(EntityType.CONTRACT, contract);
+        changed(EntityType.CONTRACT, 1, StorageEvent.Kind.INSERT);
+
+        Statistics february2024 = aggregator.snapshot(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+        assertEquals(0, new BigDecimal("500000").compareTo(february2024.getPeriodRevenue()));
+        assertEquals(1, february2024.getPeriodPayments());
+        assertEquals(1, february2024.getPeriodContractsStarted());
+        assertEquals(0, new BigDecimal("300000").compareTo(february2024.getPeriodDueByFeeType().get(FeeType.ROOM_FEE)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(february2024.getPeriodPaidDueByFeeType().get(FeeType.ROOM_FEE)));
+        assertEquals(LocalDate.of(2024, 2, 1), february2024.getPeriodStart().toLocalDate());
+
+        Statistics allTime = aggregator.snapshot();
+        assertEquals(LocalDate.of(2024, 1, 10), allTime.getPeriodStart().toLocalDate());
+        assertEquals(LocalDate.of(2024, 2, 10), allTime.getPeriodEnd().toLocalDate());
+        assertEquals(0, new BigDecimal("800000").compareTo(allTime.getPeriodDueByFeeType().get(FeeType.ROOM_FEE)));
+        assertTrue(aggregator.verify().isEmpty());
+    }
+
+    @Test
+    public void testVerifyReportsMissedChangesUntilRebuilt() {
+        Fee fee = fee(1, FeeType.WATER, "50000");
+        student(1);
+        fee.setPaymentStatus("PAID");
+        tables.remove(EntityType.STUDENT, 1);
+
+        assertFalse(aggregator.verify().isEmpty());
+        aggregator.storageChanged(Collections.singletonList(StorageEvent.reload(EntityType.FEE)));
+        aggregator.storageChanged(Collections.singletonList(StorageEvent.reload(EntityType.STUDENT)));
+        assertTrue(aggregator.verify().isEmpty());
+    }
+}
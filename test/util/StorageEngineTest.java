@@ -0,0 +1,311 @@
+package util;
+
+import model.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.math.BigDecimal;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.*;
+
+public class StorageEngineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Fee createFee(int id, String code) {
+        Fee fee = new Fee(code, 1, FeeType.ROOM_FEE, new BigDecimal("120.00"), LocalDate.of(2025, 5, 29));
+        fee.setFeeId(id);
+        fee.setDescription("Room, May");
+        return fee;
+    }
+
+    // Adds two fees, updates one and deletes the other, then reopens the store
+    private void checkRoundTrip(StorageEngine engine, StorageEngine reopened) throws Exception {
+        EntityTables tables = new EntityTables();
+        engine.load(tables);
+        tables.put(EntityType.FEE, createFee(1, "F001"));
+        tables.put(EntityType.FEE, createFee(2, "F002"));
+        engine.persist(Collections.singletonMap(EntityType.FEE, new HashSet<>(Arrays.asList(1, 2))));
+
+        tables.getFees().get(1).setPaymentStatus("PAID");
+        tables.remove(EntityType.FEE, 2);
+        engine.persist(Collections.singletonMap(EntityType.FEE, new HashSet<>(Arrays.asList(1, 2))));
+        engine.sync();
+
+        Fee stored = (Fee) engine.lookup(EntityType.FEE, 1);
+        assertEquals("PAID", stored.getPaymentStatus());
+        assertEquals("Room, May", stored.getDescription());
+        assertNull(engine.lookup(EntityType.FEE, 2));
+        engine.close();
+
+        if (reopened != null) {
+            EntityTables loaded = new EntityTables();
+            reopened.load(loaded);
+            assertEquals(Collections.singleton(1), loaded.getFees().keySet());
+            assertEquals("PAID", loaded.getFees().get(1).getPaymentStatus());
+            assertTrue(loaded.getCounter(EntityType.FEE).get() >= 1);
+            reopened.close();
+        }
+    }
+
+    private StorageEngine fileEngine(Properties properties) {
+        return new FileStorageEngine(folder.getRoot(), new StorageConfig(properties),
+                (operation, e) -> fail(operation + ": " + e.getMessage()));
+    }
+
+    @Test
+    public void testFileEngine() throws Exception {
+        checkRoundTrip(fileEngine(new Properties()), fileEngine(new Properties()));
+        assertTrue(new File(folder.getRoot(), "fees.txt").exists());
+    }
+
+    @Test
+    public void testFileEngineWithJournal() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("journal.enabled", "true");
+        checkRoundTrip(fileEngine(properties), fileEngine(properties));
+        assertTrue(new File(folder.getRoot(), "fees.journal").length() > 0);
+    }
+
+    private void writeLines(String fileName, String... lines) throws Exception {
+        Files.write(new File(folder.getRoot(), fileName).toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private void checkBlankAndLegacyValues(EntityTables tables) {
+        Student blank = tables.getStudents().get(5);
+        assertNull(blank.getGender());
+        assertNull(blank.getStatus());
+        Student legacy = tables.getStudents().get(6);
+        assertEquals("M", legacy.getGender());
+        assertNull(legacy.getGenderType());
+        assertEquals("SUSPENDED", legacy.getStatus());
+
+        assertNull(tables.getContracts().get(1).getContractStatus());
+        assertEquals("CLOSED", tables.getContracts().get(2).getContractStatus());
+
+        Fee blankFee = tables.getFees().get(1);
+        assertNull(blankFee.getPaymentMethod());
+        assertNull(blankFee.getPaymentStatus());
+        Fee legacyFee = tables.getFees().get(2);
+        assertEquals("CARD", legacyFee.getPaymentMethod());
+        assertEquals("PART_PAID", legacyFee.getPaymentStatus());
+        assertNull(legacyFee.getPaymentStatusType());
+    }
+
+    // Blank and legacy enum values survive a save and a reload, in text and in binary
+    @Test
+    public void testBlankAndLegacyEnumValuesRoundTrip() throws Exception {
+        writeLines("students.txt",
+                "5,ST9,Name,2000-01-01,,000,e@x,HN,0,",
+                "6,ST10,Name,2000-01-01,M,000,e@x,HN,0,SUSPENDED");
+        writeLines("contracts.txt",
+                "1,C1,5,1,2024-01-01,2024-06-30,120.00,MONTHLY,,0.00",
+                "2,C2,5,1,2024-01-01,2024-06-30,120.00,MONTHLY,CLOSED,0.00");
+        writeLines("fees.txt",
+                "1,F1,5,ROOM_FEE,120.00,,,2024-01-31,null,",
+                "2,F2,5,ROOM_FEE,120.00,CARD,PART_PAID,2024-01-31,null,");
+
+        StorageEngine engine = fileEngine(new Properties());
+        EntityTables tables = new EntityTables();
+        engine.load(tables);
+        assertTrue(engine.isIntact());
+        checkBlankAndLegacyValues(tables);
+        engine.replaceAll();
+        engine.close();
+        String students = new String(Files.readAllBytes(new File(folder.getRoot(), "students.txt").toPath()),
+                StandardCharsets.UTF_8);
+        assertFalse(students.contains("null"));
+
+        EntityTables reloaded = new EntityTables();
+        StorageEngine reopened = fileEngine(new Properties());
+        reopened.load(reloaded);
+        checkBlankAndLegacyValues(reloaded);
+        reopened.close();
+
+        Properties binary = new Properties();
+        binary.setProperty("storage.format", "binary");
+        StorageEngine converted = fileEngine(binary);
+        converted.load(new EntityTables());
+        converted.close();
+        EntityTables fromBinary = new EntityTables();
+        StorageEngine binaryEngine = fileEngine(binary);
+        binaryEngine.load(fromBinary);
+        checkBlankAndLegacyValues(fromBinary);
+        binaryEngine.close();
+    }
+
+    @Test
+    public void testFormatSwitchRemovesTheOtherSingleFile() throws Exception {
+        checkRoundTrip(fileEngine(new Properties()), null);
+        File text = new File(folder.getRoot(), "fees.txt");
+        File binaryFile = new File(folder.getRoot(), "fees.bin");
+
+        Properties binary = new Properties();
+        binary.setProperty("storage.format", "binary");
+        EntityTables fromBinary = new EntityTables();
+        StorageEngine binaryEngine = fileEngine(binary);
+        binaryEngine.load(fromBinary);
+        binaryEngine.close();
+        assertTrue(binaryFile.exists());
+        assertFalse(text.exists());
+        assertEquals(Collections.singleton(1), fromBinary.getFees().keySet());
+
+        // and back to text, which reads the binary file before replacing it
+        EntityTables fromText = new EntityTables();
+        StorageEngine textEngine = fileEngine(new Properties());
+        textEngine.load(fromText);
+        textEngine.close();
+        assertTrue(text.exists());
+        assertFalse(binaryFile.exists());
+        assertEquals("PAID", fromText.getFees().get(1).getPaymentStatus());
+    }
+
+    // A record that cannot be read leaves the engine not intact and the file kept aside
+    @Test
+    public void testDroppedRecordKeepsTheFile() throws Exception {
+        writeLines("students.txt",
+                "1,ST1,Name,2000-01-01,Male,000,e@x,HN,0,ACTIVE",
+                "2,ST2,Name,not a date,Male,000,e@x,HN,0,ACTIVE");
+        List<String> errors = new ArrayList<>();
+        StorageEngine engine = new FileStorageEngine(folder.getRoot(), new StorageConfig(new Properties()),
+                (operation, e) -> errors.add(operation));
+        EntityTables tables = new EntityTables();
+        engine.load(tables);
+
+        assertFalse(engine.isIntact());
+        assertEquals(Collections.singleton(1), tables.getStudents().keySet());
+        assertEquals(1, errors.size());
+        File[] copies = folder.getRoot().listFiles((dir, name) -> name.startsWith("students.txt.corrupt-"));
+        assertEquals(1, copies.length);
+        assertTrue(new String(Files.readAllBytes(copies[0].toPath()), StandardCharsets.UTF_8).contains("ST2"));
+        engine.close();
+    }
+
+    @Test
+    public void testReadOnlyFileEngineChangesNothing() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("journal.enabled", "true");
+        checkRoundTrip(fileEngine(properties), null);
+        File journal = new File(folder.getRoot(), "fees.journal");
+        Files.write(journal.toPath(), "torn".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        long journalLength = journal.length();
+        File[] before = folder.getRoot().listFiles();
+
+        // configured for binary segments without a journal, which load would otherwise convert to
+        properties.setProperty("journal.enabled", "false");
+        properties.setProperty("storage.format", "binary");
+        properties.setProperty("storage.layout", "segmented");
+        FileStorageEngine engine = FileStorageEngine.openReadOnly(folder.getRoot(), new StorageConfig(properties),
+                (operation, e) -> fail(operation + ": " + e.getMessage()));
+        EntityTables tables = new EntityTables();
+        engine.load(tables);
+        assertEquals("PAID", tables.getFees().get(1).getPaymentStatus());
+        assertNull(tables.getFees().get(2));
+
+        assertEquals(journalLength, journal.length());
+        assertEquals(before.length, folder.getRoot().listFiles().length);
+        try {
+            engine.persist(Collections.singletonMap(EntityType.FEE, Collections.singleton(1)));
+            fail("Expected the write to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("read-only"));
+        }
+        engine.close();
+    }
+
+    @Test
+    public void testInMemoryEngine() throws Exception {
+        InMemoryStorageEngine engine = new InMemoryStorageEngine();
+        checkRoundTrip(engine, null);
+
+        List<Object> stored = new ArrayList<>();
+        engine.forEach(EntityType.FEE, stored::add);
+        assertEquals(1, stored.size());
+    }
+
+    // In-memory H2, kept alive between connections so the store can be reopened
+    private static String memoryDatabase(String name) {
+        return "jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    public void testJdbcEngine() throws Exception {
+        String url = memoryDatabase("roundtrip");
+        checkRoundTrip(new JdbcStorageEngine(url, "sa", "", 2, 100), new JdbcStorageEngine(url, "sa", "", 2, 100));
+    }
+
+    @Test
+    public void testJdbcEngineReplaceAllAndForEach() throws Exception {
+        String url = memoryDatabase("replace");
+        JdbcStorageEngine engine = new JdbcStorageEngine(url, "sa", "", 2, 1);
+        EntityTables tables = new EntityTables();
+        engine.load(tables);
+        for (int id = 1; id <= 3; id++) {
+            tables.put(EntityType.FEE, createFee(id, "F00" + id));
+        }
+        engine.replaceAll();
+        tables.remove(EntityType.FEE, 2);
+        engine.replaceAll();
+
+        List<Object> stored = new ArrayList<>();
+        engine.forEach(EntityType.FEE, stored::add);
+        assertEquals(2, stored.size());
+        assertNull(engine.lookup(EntityType.FEE, 2));
+        assertEquals("F003", ((Fee) engine.lookup(EntityType.FEE, 3)).getFeeCode());
+        engine.close();
+    }
+
+    @Test
+    public void testJdbcEngineOpenReadsNoRows() throws Exception {
+        String url = memoryDatabase("open");
+        JdbcStorageEngine engine = new JdbcStorageEngine(url, "sa", "", 2, 100);
+        EntityTables old = new EntityTables();
+        engine.load(old);
+        old.put(EntityType.FEE, createFee(1, "F001"));
+        engine.replaceAll();
+        engine.close();
+
+        JdbcStorageEngine target = new JdbcStorageEngine(url, "sa", "", 2, 100);
+        EntityTables tables = new EntityTables();
+        target.open(tables);
+        assertTrue(tables.getFees().isEmpty());
+        tables.put(EntityType.FEE, createFee(5, "F005"));
+        target.replaceAll();
+
+        assertNull(target.lookup(EntityType.FEE, 1));
+        assertEquals("F005", ((Fee) target.lookup(EntityType.FEE, 5)).getFeeCode());
+        target.close();
+    }
+
+    // A row the model cannot take fails the load with an IOException instead of escaping it
+    @Test
+    public void testJdbcEngineRejectsUnreadableRow() throws Exception {
+        String url = memoryDatabase("unreadable");
+        JdbcStorageEngine engine = new JdbcStorageEngine(url, "sa", "", 2, 100);
+        engine.load(new EntityTables());
+        engine.close();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO fees (id, fee_code, student_id, fee_type, amount, due_date) "
+                    + "VALUES (1, 'F001', 1, 'NO_SUCH_TYPE', 120.00, DATE '2025-05-29')");
+        }
+
+        JdbcStorageEngine reopened = new JdbcStorageEngine(url, "sa", "", 2, 100);
+        try {
+            reopened.load(new EntityTables());
+            fail("Expected the load to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("fees"));
+        }
+        reopened.close();
+    }
+}
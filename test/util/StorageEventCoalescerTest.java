@@ -0,0 +1,59 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StorageEventCoalescerTest {
+
+    private static StorageEvent event(EntityType type, int id, StorageEvent.Kind kind) {
+        return new StorageEvent(type, id, kind);
+    }
+
+    @Test
+    public void testRepeatedUpdatesBecomeOne() {
+        StorageEventCoalescer coalescer = new StorageEventCoalescer();
+        assertTrue(coalescer.add(Collections.singletonList(event(EntityType.FEE, 1, StorageEvent.Kind.UPDATE))));
+        assertFalse(coalescer.add(Collections.singletonList(event(EntityType.FEE, 1, StorageEvent.Kind.UPDATE))));
+        coalescer.add(Collections.singletonList(event(EntityType.FEE, 2, StorageEvent.Kind.UPDATE)));
+
+        assertEquals(Arrays.asList(event(EntityType.FEE, 1, StorageEvent.Kind.UPDATE),
+                event(EntityType.FEE, 2, StorageEvent.Kind.UPDATE)), coalescer.drain());
+        assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    public void testInsertAbsorbsUpdatesAndCancelsWithDelete() {
+        StorageEventCoalescer coalescer = new StorageEventCoalescer();
+        coalescer.add(Arrays.asList(
+                event(EntityType.STUDENT, 5, StorageEvent.Kind.INSERT),
+                event(EntityType.STUDENT, 5, StorageEvent.Kind.UPDATE),
+                event(EntityType.STUDENT, 6, StorageEvent.Kind.INSERT),
+                event(EntityType.STUDENT, 6, StorageEvent.Kind.DELETE),
+                event(EntityType.STUDENT, 7, StorageEvent.Kind.UPDATE),
+                event(EntityType.STUDENT, 7, StorageEvent.Kind.DELETE)));
+
+        assertEquals(Arrays.asList(event(EntityType.STUDENT, 5, StorageEvent.Kind.INSERT),
+                event(EntityType.STUDENT, 7, StorageEvent.Kind.DELETE)), coalescer.drain());
+    }
+
+    @Test
+    public void testReloadReplacesEventsOfItsType() {
+        StorageEventCoalescer coalescer = new StorageEventCoalescer();
+        coalescer.add(Arrays.asList(
+                event(EntityType.FEE, 1, StorageEvent.Kind.UPDATE),
+                event(EntityType.ROOM, 1, StorageEvent.Kind.UPDATE),
+                StorageEvent.reload(EntityType.FEE),
+                event(EntityType.FEE, 2, StorageEvent.Kind.INSERT)));
+
+        List<StorageEvent> events = coalescer.drain();
+        assertEquals(Arrays.asList(event(EntityType.ROOM, 1, StorageEvent.Kind.UPDATE),
+                StorageEvent.reload(EntityType.FEE)), events);
+
+        // after a drain the type is no longer covered by the reload
+        coalescer.add(Collections.singletonList(event(EntityType.FEE, 2, StorageEvent.Kind.UPDATE)));
+        assertEquals(1, coalescer.size());
+    }
+}
@@ -0,0 +1,23 @@
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+
+public class TextFoldingTest {
+
+    @Test
+    public void testFoldStripsVietnameseMarks() {
+        assertEquals("nguyen thi c", TextFolding.fold("Nguyễn Thị C"));
+        assertEquals("dang van dao", TextFolding.fold(" Đặng Văn Đào "));
+        assertEquals("ho chi minh", TextFolding.fold("Hồ Chí Minh"));
+        assertEquals("st001", TextFolding.fold("ST001"));
+        assertEquals("", TextFolding.fold(null));
+    }
+
+    @Test
+    public void testTokens() {
+        assertEquals(Arrays.asList("le", "thi", "a1"), TextFolding.tokens("le  thi-a1."));
+        assertTrue(TextFolding.tokens(" ,").isEmpty());
+    }
+}
@@ -0,0 +1,45 @@
+package util;
+
+import model.Student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.time.LocalDate;
+
+public class TokenPrefixIndexTest {
+
+    private static Student student(int id, String name, String hometown) {
+        Student student = new Student("ST" + id, name, LocalDate.of(2004, 1, 1), "Female", "0912345678",
+                "s" + id + "@example.com", hometown);
+        student.setStudentId(id);
+        return student;
+    }
+
+    @Test
+    public void testWordPrefixesIgnoreDiacritics() {
+        TokenPrefixIndex<Student> index = new TokenPrefixIndex<>(s -> new String[]{s.getFullName(), s.getHometown()});
+        index.put(1, student(1, "Nguyễn Thị C", "Hà Nội"));
+        index.put(2, student(2, "Nguyen Van B", "Hải Phòng"));
+        index.put(3, student(3, "Trần Đức Anh", "Đà Nẵng"));
+
+        assertArrayEquals(new int[]{1}, index.search("nguyen thi").toArray());
+        assertArrayEquals(new int[]{1, 2}, index.search("ng").toArray());
+        assertArrayEquals(new int[]{1}, index.search("ha noi ng").toArray());
+        assertArrayEquals(new int[]{3}, index.search("duc da").toArray());
+        assertTrue(index.search("thi phong").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+
+    @Test
+    public void testRenameReplacesWords() {
+        TokenPrefixIndex<Student> index = new TokenPrefixIndex<>(s -> new String[]{s.getFullName()});
+        Student student = student(1, "Lê Văn Tám", "Huế");
+        index.put(1, student);
+        student.setFullName("Lê Thị Tám");
+        index.put(1, student);
+        assertTrue(index.search("van").isEmpty());
+        assertArrayEquals(new int[]{1}, index.search("le thi").toArray());
+
+        index.remove(1);
+        assertTrue(index.search("le").isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package util;
+
+import model.Student;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Times StudentPanel-style searches through TrigramIndex against a lowercase contains scan
+ * over the same students.
+ * Run with: java -cp ... util.TrigramIndexBenchmark [studentCount]
+ */
+public class TrigramIndexBenchmark {
+    private static final String[] FAMILY = {"Nguyen", "Tran", "Le", "Pham", "Hoang", "Vu", "Dang", "Bui", "Do", "Ngo"};
+    private static final String[] GIVEN = {"Anh", "Binh", "Chi", "Dung", "Giang", "Hieu", "Khanh", "Linh", "Minh", "Quang"};
+    private static final String[] TOWNS = {"Ha Noi", "Hai Phong", "Da Nang", "Hue", "Nghe An", "Can Tho"};
+    private static final String[] QUERIES = {"ST04217", "st0999", "minh", "nguyen van quang", "@mail.vn", "0912000", "zzz"};
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(7);
+        Student[] students = new Student[count];
+        TrigramIndex<Student> index = new TrigramIndex<>(s -> new String[]{s.getStudentCode(), s.getFullName(),
+                s.getEmail(), s.getHometown(), s.getPhoneNumber()});
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            String name = FAMILY[random.nextInt(FAMILY.length)] + " Van " + GIVEN[random.nextInt(GIVEN.length)];
+            Student student = new Student(String.format("ST%06d", i + 1), name, LocalDate.of(2004, 1, 1), "Male",
+                    String.format("0912%06d", random.nextInt(1_000_000)), "s" + (i + 1) + "@mail.vn",
+                    TOWNS[random.nextInt(TOWNS.length)]);
+            student.setStudentId(i + 1);
+            students[i] = student;
+            index.put(i + 1, student);
+        }
+        System.out.printf("Indexed %d students in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+
+        for (String query : QUERIES) {
+            int hits = 0;
+            start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                hits = index.search(query).size();
+            }
+            double indexed = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+            int scanned = 0;
+            start = System.nanoTime();
+            for (int round = 0; round < 5; round++) {
+                scanned = scan(students, query);
+            }
+            double scan = (System.nanoTime() - start) / 1e6 / 5;
+            System.out.printf("%-18s %6d hits: index %8.3f ms, scan %8.3f ms (%d)%n",
+                    '"' + query + '"', hits, indexed, scan, scanned);
+        }
+    }
+
+    private static int scan(Student[] students, String query) {
+        String text = query.toLowerCase();
+        int hits = 0;
+        for (Student student : students) {
+            if (student.getFullName().toLowerCase().contains(text)
+                    || student.getStudentCode().toLowerCase().contains(text)
+                    || student.getEmail().toLowerCase().contains(text)
+                    || student.getHometown().toLowerCase().contains(text)
+                    || student.getPhoneNumber().toLowerCase().contains(text)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,63 @@
+package util;
+
+import model.Student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TrigramIndexTest {
+
+    private static Student student(int id, String code, String name, String email) {
+        Student student = new Student(code, name, LocalDate.of(2004, 1, 1), "Male", "0912345678", email, "Ha Noi");
+        student.setStudentId(id);
+        return student;
+    }
+
+    private static TrigramIndex<Student> index() {
+        return new TrigramIndex<>(s -> new String[]{s.getStudentCode(), s.getFullName(), s.getEmail()});
+    }
+
+    @Test
+    public void testSubstringMatchesRankedByQuality() {
+        TrigramIndex<Student> index = index();
+        index.put(1, student(1, "ST001", "Tran Van Anh", "anh.tran@example.com"));
+        index.put(2, student(2, "ST002", "Anh", "x@example.com"));
+        index.put(3, student(3, "ST003", "Le Thi Thanh", "thanh@example.com"));
+        index.put(4, student(4, "ST004", "Anhduong Pham", "pham@example.com"));
+
+        // exact name, then name prefix, then email prefix of 1, then word start
+        assertEquals(Arrays.asList(2, 4, 1, 3).subList(0, 3), index.search("ANH").subList(0, 3));
+        assertTrue(index.search("anh").contains(3));
+        assertEquals(Collections.singletonList(3), index.search("thanh@"));
+        assertTrue(index.search("zzz").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+        assertEquals(4, index.search("st").size());
+    }
+
+    @Test
+    public void testUpdatesAndRemovalsAreIncremental() {
+        TrigramIndex<Student> index = index();
+        Student student = student(1, "ST001", "Nguyen Van A", "a@example.com");
+        index.put(1, student);
+        assertEquals(Collections.singletonList(1), index.search("nguyen"));
+
+        student.setFullName("Pham Van A");
+        index.put(1, student);
+        assertTrue(index.search("nguyen").isEmpty());
+        assertEquals(Collections.singletonList(1), index.search("pham van"));
+
+        index.remove(1);
+        assertTrue(index.search("pham").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testQueriesWithoutToneMarksMatch() {
+        TrigramIndex<Student> index = index();
+        index.put(1, student(1, "ST001", "Nguyễn Thị Đào", "dao@example.com"));
+        assertEquals(Collections.singletonList(1), index.search("nguyen thi dao"));
+        assertEquals(Collections.singletonList(1), index.search("THỊ ĐÀO"));
+    }
+}
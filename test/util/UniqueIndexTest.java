@@ -0,0 +1,58 @@
+package util;
+
+import model.Room;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+public class UniqueIndexTest {
+
+    private static Room room(int id, String number) {
+        Room room = new Room(number, 4, new BigDecimal("120.00"));
+        room.setRoomId(id);
+        return room;
+    }
+
+    @Test
+    public void testPutRejectsKeyOfAnotherId() {
+        UniqueIndex<Room> index = new UniqueIndex<>(Room::getRoomNumber);
+        assertTrue(index.put(1, room(1, "P101")));
+        assertFalse(index.put(2, room(2, " P101 ")));
+        assertTrue(index.put(1, room(1, "P101")));
+        assertEquals(Integer.valueOf(1), index.get("P101"));
+        assertTrue(index.isAvailable("P101", 1));
+        assertFalse(index.isAvailable("P101", 2));
+    }
+
+    @Test
+    public void testRenameFreesOldKey() {
+        UniqueIndex<Room> index = new UniqueIndex<>(Room::getRoomNumber);
+        Room room = room(1, "P101");
+        index.put(1, room);
+        room.setRoomNumber("P102");
+        assertTrue(index.put(1, room));
+        assertNull(index.get("P101"));
+        assertTrue(index.put(2, room(2, "P101")));
+
+        index.remove(1);
+        assertNull(index.get("P102"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRebuildKeepsOldestOfDuplicates() {
+        Map<Integer, Room> table = new HashMap<>();
+        table.put(7, room(7, "P101"));
+        table.put(3, room(3, "P101"));
+        table.put(5, room(5, null));
+        UniqueIndex<Room> index = new UniqueIndex<>(Room::getRoomNumber);
+
+        assertEquals(1, index.rebuild(table));
+        assertEquals(Integer.valueOf(3), index.get("P101"));
+        // the newer duplicate can still be saved under its own code
+        assertTrue(index.put(7, table.get(7)));
+        assertEquals(Integer.valueOf(3), index.get("P101"));
+    }
+}